@@ -0,0 +1,237 @@
+package cs212.bench;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import cs212.engine.*;
+
+/**
+ * Provides the documents the benchmarks run on. The corpus is either generated or read from a directory,
+ * such as the input folder of the project tests, so the same benchmark can be run on both.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class BenchmarkCorpus
+{
+    /**
+     * The corpus name that selects generated documents instead of a directory
+     */
+    public static final String SYNTHETIC = "synthetic";
+
+    /**
+     * The number of generated documents
+     */
+    private static final int DOCUMENTS = 200;
+
+    /**
+     * The number of words in each generated document
+     */
+    private static final int WORDS_PER_DOCUMENT = 2000;
+
+    /**
+     * The number of distinct words in the generated vocabulary
+     */
+    private static final int VOCABULARY = 20000;
+
+    /**
+     * The syllables generated words are built from, so the stemmer sees English-like suffixes
+     */
+    private static final String[] SYLLABLES = {"al", "be", "con", "de", "er", "ing", "ion", "ly", "ment", "ness",
+            "or", "pre", "re", "sion", "ted", "tion", "un", "ver", "ed", "es", "ful", "ous", "ate", "ive"};
+
+    /**
+     * The location of each document
+     */
+    private final ArrayList<String> locations;
+
+    /**
+     * The plain text of each document
+     */
+    private final ArrayList<String> texts;
+
+    /**
+     * The HTML of each page
+     */
+    private final ArrayList<String> pages;
+
+    /**
+     * Single-arg constructor which generates or reads the corpus
+     *
+     * @param corpus    {@link #SYNTHETIC} or the path of a directory of text and HTML files
+     * @throws IOException if an IO error occurs while reading the directory
+     */
+    public BenchmarkCorpus(String corpus) throws IOException
+    {
+        locations = new ArrayList<>();
+        texts = new ArrayList<>();
+        pages = new ArrayList<>();
+
+        if (corpus.equals(SYNTHETIC))
+        {
+            generate();
+        }
+
+        else
+        {
+            read(Path.of(corpus));
+        }
+
+        if (pages.isEmpty())
+        {
+            for (String text : texts)
+            {
+                pages.add(toHtml(text));
+            }
+        }
+    }
+
+    /**
+     * Returns the location of each document
+     *
+     * @return  the locations
+     */
+    public List<String> getLocations()
+    {
+        return Collections.unmodifiableList(locations);
+    }
+
+    /**
+     * Returns the plain text of each document
+     *
+     * @return  the texts
+     */
+    public List<String> getTexts()
+    {
+        return Collections.unmodifiableList(texts);
+    }
+
+    /**
+     * Returns the HTML of each page. Directories without HTML files use the text documents wrapped in markup.
+     *
+     * @return  the pages
+     */
+    public List<String> getPages()
+    {
+        return Collections.unmodifiableList(pages);
+    }
+
+    /**
+     * Generates documents whose words follow a Zipf-like distribution, with capitals, digits and punctuation
+     * for the parser to clean
+     */
+    private void generate()
+    {
+        Random random = new Random(212);
+        String[] vocabulary = new String[VOCABULARY];
+
+        for (int i = 0; i < VOCABULARY; i++)
+        {
+            StringBuilder word = new StringBuilder();
+
+            for (int syllables = 1 + random.nextInt(4); syllables > 0; syllables--)
+            {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+
+            vocabulary[i] = word.toString();
+        }
+
+        for (int i = 0; i < DOCUMENTS; i++)
+        {
+            StringBuilder text = new StringBuilder();
+
+            for (int j = 0; j < WORDS_PER_DOCUMENT; j++)
+            {
+                String word = vocabulary[(int) Math.pow(VOCABULARY, random.nextDouble()) - 1];
+                int noise = random.nextInt(20);
+
+                if (noise == 0)
+                {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+
+                else if (noise == 1)
+                {
+                    word = word + random.nextInt(100);
+                }
+
+                text.append(word).append(noise == 2 ? ". " : noise == 3 ? ",\n" : " ");
+            }
+
+            locations.add("synthetic/document" + i + ".txt");
+            texts.add(text.toString());
+        }
+    }
+
+    /**
+     * Reads every text and HTML file under a directory
+     *
+     * @param directory the directory to read
+     * @throws IOException if an IO error occurs
+     */
+    private void read(Path directory) throws IOException
+    {
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.walk(directory))
+        {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        for (Path file : files)
+        {
+            String name = file.toString().toLowerCase();
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+            if (name.endsWith(".txt") || name.endsWith(".text"))
+            {
+                locations.add(file.toString());
+                texts.add(content);
+            }
+
+            else if (name.endsWith(".html") || name.endsWith(".htm"))
+            {
+                pages.add(content);
+            }
+        }
+
+        if (texts.isEmpty())
+        {
+            for (String page : pages)
+            {
+                locations.add("page" + locations.size() + ".html");
+                texts.add(HtmlCleaner.stripHtml(page));
+            }
+        }
+
+        if (texts.isEmpty())
+        {
+            throw new IOException("No text or HTML files found in " + directory);
+        }
+    }
+
+    /**
+     * Wraps a text document in markup with the elements HtmlCleaner removes
+     *
+     * @param text  the text of the document
+     * @return      the HTML page
+     */
+    private static String toHtml(String text)
+    {
+        StringBuilder html = new StringBuilder();
+
+        html.append("<!DOCTYPE html>\n<html>\n<head><title>Benchmark</title><style>p { margin: 0; }</style></head>\n<body>\n");
+        html.append("<!-- generated page -->\n<script>var unused = \"<p>\";</script>\n");
+
+        for (String paragraph : text.split("\n"))
+        {
+            html.append("<p class=\"text\">").append(paragraph).append(" &amp; more&hellip;</p>\n");
+        }
+
+        return html.append("</body>\n</html>\n").toString();
+    }
+}
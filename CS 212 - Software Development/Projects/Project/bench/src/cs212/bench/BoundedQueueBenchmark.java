@@ -0,0 +1,153 @@
+package cs212.bench;
+
+import java.lang.management.*;
+import java.util.concurrent.atomic.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures how much heap a producer that outpaces the workers fills with waiting tasks, with an unbounded
+ * WorkQueue and with a bounded one under each rejection policy. The main thread submits tasks that each hold a
+ * small payload, as a task holding a query line or a page does, and each task takes longer to run than to submit.
+ * The heap in use is sampled while the tasks are submitted.
+ *
+ * Usage: {@code java BoundedQueueBenchmark [tasks] [threads] [capacity]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class BoundedQueueBenchmark
+{
+    /**
+     * The size of the payload of each task in bytes
+     */
+    private static final int PAYLOAD_BYTES = 512;
+
+    /**
+     * How often the heap is sampled in milliseconds
+     */
+    private static final long SAMPLE_MILLIS = 5;
+
+    /**
+     * Samples the heap in use until it is interrupted
+     */
+    private static class HeapSampler extends Thread
+    {
+        /**
+         * The largest number of bytes in use
+         */
+        private volatile long peak;
+
+        /**
+         * Zero-arg constructor which implements a daemon sampler
+         */
+        private HeapSampler()
+        {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run()
+        {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+            while (!isInterrupted())
+            {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+
+                try
+                {
+                    Thread.sleep(SAMPLE_MILLIS);
+                }
+
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits every task and waits for the ones that were not dropped
+     *
+     * @param queue the queue
+     * @param tasks the number of tasks
+     * @param ran   counts the tasks that ran
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static void produce(WorkQueue queue, int tasks, LongAdder ran) throws InterruptedException
+    {
+        for (int i = 0; i < tasks; i++)
+        {
+            byte[] payload = new byte[PAYLOAD_BYTES];
+            payload[0] = (byte) i;
+
+            queue.execute(() -> {
+                long sum = 0;
+
+                // a few microseconds of work, so the workers fall behind the producer
+                for (int j = 0; j < 20; j++)
+                {
+                    for (byte value : payload)
+                    {
+                        sum += value;
+                    }
+                }
+
+                if (sum != Long.MIN_VALUE)
+                {
+                    ran.increment();
+                }
+            });
+        }
+
+        queue.finish();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional number of tasks, number of worker threads and capacity
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : WorkQueue.DEFAULT_CAPACITY;
+
+        // warm up the JIT before measuring
+        WorkQueue warmup = new WorkQueue(threads, capacity, WorkQueue.RejectionPolicy.BLOCK);
+        produce(warmup, tasks / 10, new LongAdder());
+        warmup.shutdown();
+
+        System.out.printf("%-12s %10s %10s %10s %12s %12s %10s %10s%n", "policy", "capacity", "seconds", "ran",
+                "caller runs", "dropped", "max depth", "peak MB");
+
+        for (int i = -1; i < WorkQueue.RejectionPolicy.values().length; i++)
+        {
+            boolean isBounded = i >= 0;
+            WorkQueue.RejectionPolicy policy = isBounded ? WorkQueue.RejectionPolicy.values()[i] : WorkQueue.RejectionPolicy.BLOCK;
+            WorkQueue queue = new WorkQueue(threads, isBounded ? capacity : WorkQueue.UNBOUNDED, policy);
+            LongAdder ran = new LongAdder();
+
+            System.gc();
+
+            HeapSampler sampler = new HeapSampler();
+            sampler.start();
+
+            long start = System.nanoTime();
+            produce(queue, tasks, ran);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            sampler.interrupt();
+            sampler.join();
+            queue.shutdown();
+
+            System.out.printf("%-12s %10s %10.3f %10d %12d %12d %10d %10.1f%n", isBounded ? policy : "unbounded",
+                    isBounded ? String.valueOf(capacity) : "none", seconds, ran.sum(), queue.getCallerRuns(),
+                    queue.getDropped(), queue.getMaxDepth(), sampler.peak / 1e6);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cs212.bench;
+
+import java.time.*;
+import java.util.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures crawl throughput against a {@link FixtureHttpServer} with a simulated network delay, at different
+ * limits on the number of requests in flight, and checks that every page is fetched only once.
+ *
+ * Usage: {@code java CrawlBenchmark [pages] [delay in milliseconds] [threads]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class CrawlBenchmark
+{
+    /**
+     * The limits on requests in flight the crawl is measured at
+     */
+    private static final int[] IN_FLIGHT = {1, 4, 16, 64};
+
+    /**
+     * Runs the benchmark and prints the throughput at each limit on requests in flight
+     *
+     * @param args the optional number of pages, delay and number of worker threads
+     * @throws Exception if the server cannot be started or the crawl fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Map<String, String> site = FixtureHttpServer.generate(pages);
+
+        System.out.printf("%10s %10s %12s %12s %10s%n", "inflight", "pages", "seconds", "pages/second", "repeated");
+
+        for (int inFlight : IN_FLIGHT)
+        {
+            try (FixtureHttpServer server = new FixtureHttpServer(site, delay))
+            {
+                ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+                WorkQueue queue = new WorkQueue(threads);
+                WebCrawler crawler = new WebCrawler(index, queue, pages, new PooledHtmlFetcher(inFlight));
+
+                Instant start = Instant.now();
+                crawler.crawl(server.url("/page0.html"));
+                double seconds = Duration.between(start, Instant.now()).toNanos() / 1e9;
+
+                crawler.shutdown();
+                queue.shutdown();
+
+                System.out.printf("%10d %10d %12.3f %12.1f %10d%n", inFlight, server.requestCount(), seconds,
+                        server.requestCount() / seconds, server.repeatedCount());
+
+                for (CrawlStage stage : crawler.getStages())
+                {
+                    System.out.println("           " + stage);
+                }
+            }
+        }
+    }
+}
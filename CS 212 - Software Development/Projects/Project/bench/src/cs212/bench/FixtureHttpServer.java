@@ -0,0 +1,343 @@
+package cs212.bench;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.sun.net.httpserver.*;
+
+/**
+ * A local HTTP stand-in for crawling without the network. It serves either the HTML files in a directory or a
+ * generated site where every page links to a few other pages, and it can delay each response to imitate the
+ * latency of a remote host. Every request is counted by path, so a crawl can check that no page was fetched twice.
+ * Pages carry an ETag derived from their HTML and conditional requests for an unchanged page are answered with
+ * 304 Not Modified, so a re-crawl can be measured after editing some of the pages.
+ *
+ * Usage: {@code java FixtureHttpServer [directory | pages] [delay in milliseconds]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class FixtureHttpServer implements Closeable
+{
+    /**
+     * The number of links on each generated page
+     */
+    private static final int LINKS_PER_PAGE = 5;
+
+    /**
+     * The name of the threads answering requests, so a benchmark can leave them out when counting its own threads
+     */
+    public static final String THREAD_NAME = "fixture-server";
+
+    /**
+     * The number of words on each generated page
+     */
+    private static final int WORDS_PER_PAGE = 300;
+
+    /**
+     * The HTML of each page by path
+     */
+    private final Map<String, String> pages;
+
+    /**
+     * The number of requests made for each path
+     */
+    private final ConcurrentHashMap<String, AtomicInteger> requests;
+
+    /**
+     * The number of requests being answered
+     */
+    private final AtomicInteger active;
+
+    /**
+     * The largest number of requests answered at a time
+     */
+    private final AtomicInteger maxActive;
+
+    /**
+     * The number of body bytes sent
+     */
+    private final AtomicLong bytesSent;
+
+    /**
+     * The time of the first and last request in nanoseconds
+     */
+    private final long[] requestTimes;
+
+    /**
+     * The delay before each response in milliseconds
+     */
+    private final long delay;
+
+    /**
+     * The server answering the requests
+     */
+    private final HttpServer server;
+
+    /**
+     * Multi-arg constructor which serves the given pages on a free local port
+     *
+     * @param pages the HTML of each page by path
+     * @param delay the delay before each response in milliseconds
+     * @throws IOException if the server cannot be started
+     */
+    public FixtureHttpServer(Map<String, String> pages, long delay) throws IOException
+    {
+        this.pages = pages;
+        this.delay = delay;
+        requests = new ConcurrentHashMap<>();
+        active = new AtomicInteger();
+        maxActive = new AtomicInteger();
+        bytesSent = new AtomicLong();
+        requestTimes = new long[] {-1, -1};
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    /**
+     * Generates a site where every page links to the next page and to a few pseudo-random pages
+     *
+     * @param count the number of pages
+     * @return      the HTML of each page by path
+     */
+    public static Map<String, String> generate(int count)
+    {
+        Random random = new Random(212);
+        HashMap<String, String> site = new HashMap<>();
+
+        for (int i = 0; i < count; i++)
+        {
+            StringBuilder html = new StringBuilder("<html>\n<head><title>Page ").append(i).append("</title></head>\n<body>\n<p>");
+
+            for (int j = 0; j < WORDS_PER_PAGE; j++)
+            {
+                int rank = (int) Math.pow(5000, random.nextDouble());
+                html.append("word").append(Integer.toString(rank, 36)).append(j % 12 == 11 ? "\n" : " ");
+            }
+
+            html.append("</p>\n<ul>\n");
+            html.append("<li><a href=\"page").append((i + 1) % count).append(".html\">next</a></li>\n");
+
+            for (int j = 1; j < LINKS_PER_PAGE; j++)
+            {
+                html.append("<li><a href=\"page").append(random.nextInt(count)).append(".html\">link</a></li>\n");
+            }
+
+            html.append("</ul>\n</body>\n</html>\n");
+            site.put("/page" + i + ".html", html.toString());
+        }
+
+        return site;
+    }
+
+    /**
+     * Reads every HTML file in a directory, using the path relative to the directory
+     *
+     * @param directory the directory to read
+     * @return          the HTML of each page by path
+     * @throws IOException if a file cannot be read
+     */
+    public static Map<String, String> read(Path directory) throws IOException
+    {
+        HashMap<String, String> site = new HashMap<>();
+
+        try (var paths = Files.walk(directory))
+        {
+            for (Path path : (Iterable<Path>) paths::iterator)
+            {
+                String name = path.getFileName().toString().toLowerCase();
+
+                if (Files.isRegularFile(path) && (name.endsWith(".html") || name.endsWith(".htm")))
+                {
+                    String relative = directory.relativize(path).toString().replace(File.separatorChar, '/');
+                    site.put("/" + relative, Files.readString(path, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        return site;
+    }
+
+    /**
+     * Answers a request with the page at its path, or a 404 if there is no such page
+     *
+     * @param exchange  the request and response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+
+        synchronized (requestTimes)
+        {
+            long now = System.nanoTime();
+            requestTimes[0] = requestTimes[0] < 0 ? now : requestTimes[0];
+            requestTimes[1] = now;
+        }
+
+        if (delay > 0)
+        {
+            try
+            {
+                Thread.sleep(delay);
+            }
+
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        String html = pages.get(path);
+
+        try
+        {
+            if (html == null)
+            {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String etag = "\"" + Integer.toHexString(html.hashCode()) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+            {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body = html.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            bytesSent.addAndGet(body.length);
+        }
+
+        finally
+        {
+            exchange.close();
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the URL of a page on this server
+     *
+     * @param path  the path of the page, starting with a slash
+     * @return      the URL of the page
+     */
+    public String url(String path)
+    {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + path;
+    }
+
+    /**
+     * Returns the total number of requests answered
+     *
+     * @return  the number of requests
+     */
+    public int requestCount()
+    {
+        return requests.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * Returns the number of paths that were requested more than once
+     *
+     * @return  the number of paths
+     */
+    public int repeatedCount()
+    {
+        return (int) requests.values().stream().filter(count -> count.get() > 1).count();
+    }
+
+    /**
+     * Returns the number of body bytes sent
+     *
+     * @return  the number of bytes
+     */
+    public long bytesSent()
+    {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the largest number of requests answered at a time
+     *
+     * @return  the number of requests
+     */
+    public int maxConcurrentCount()
+    {
+        return maxActive.get();
+    }
+
+    /**
+     * Returns the time the last request arrived
+     *
+     * @return  the time in nanoseconds, or -1 if there was no request
+     */
+    public long lastRequestNanos()
+    {
+        synchronized (requestTimes)
+        {
+            return requestTimes[1];
+        }
+    }
+
+    /**
+     * Returns the number of requests per second between the first and last request
+     *
+     * @return  the request rate
+     */
+    public double requestRate()
+    {
+        synchronized (requestTimes)
+        {
+            long elapsed = requestTimes[1] - requestTimes[0];
+            return elapsed > 0 ? (requestCount() - 1) / (elapsed / 1e9) : 0;
+        }
+    }
+
+    /**
+     * Stops the server
+     */
+    @Override
+    public void close()
+    {
+        server.stop(0);
+    }
+
+    /**
+     * Serves a directory or a generated site until the process is stopped
+     *
+     * @param args the optional directory or number of pages, and delay in milliseconds
+     * @throws IOException if the site cannot be read or the server cannot be started
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String source = args.length > 0 ? args[0] : "500";
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        Map<String, String> site = source.matches("\\d+") ? generate(Integer.parseInt(source)) : read(Path.of(source));
+        FixtureHttpServer server = new FixtureHttpServer(site, delay);
+
+        String first = site.containsKey("/page0.html") ? "/page0.html" : new TreeSet<>(site.keySet()).first();
+        System.out.println("Serving " + site.size() + " pages at " + server.url(first));
+    }
+}
@@ -0,0 +1,154 @@
+package cs212.bench;
+
+import java.net.*;
+import java.util.*;
+import java.util.function.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures how the cost of claiming a URL grows with the size of the crawl. Every page of the simulated crawl
+ * links to a few pages, most of which were already claimed, just as real sites link back to their own pages.
+ * The list the crawler used before the frontier is measured on the smaller crawls only, since its cost grows
+ * quadratically.
+ *
+ * Usage: {@code java FrontierScalingBenchmark [largest crawl]}, with a larger heap for crawls over 100000 pages
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class FrontierScalingBenchmark
+{
+    /**
+     * The number of links found on each page
+     */
+    private static final int LINKS_PER_PAGE = 10;
+
+    /**
+     * The largest crawl the list is measured on
+     */
+    private static final int LIST_LIMIT = 20000;
+
+    /**
+     * A frontier that scans a list, as the crawler did before
+     */
+    private static class ListFrontier implements Predicate<URL>
+    {
+        /**
+         * The claimed URLs
+         */
+        private final ArrayList<URL> claimed = new ArrayList<>();
+
+        /**
+         * The number of URLs that can be claimed
+         */
+        private final int limit;
+
+        /**
+         * Single-arg constructor which implements the limit
+         *
+         * @param limit the number of URLs that can be claimed
+         */
+        public ListFrontier(int limit)
+        {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized boolean test(URL url)
+        {
+            if (claimed.size() >= limit || claimed.contains(url))
+            {
+                return false;
+            }
+
+            return claimed.add(url);
+        }
+    }
+
+    /**
+     * Generates the links found while crawling a site of the given size
+     *
+     * @param pages the number of pages in the site
+     * @return      the links in the order they are found
+     * @throws MalformedURLException if a link cannot be created
+     */
+    private static URL[] generate(int pages) throws MalformedURLException
+    {
+        Random random = new Random(212);
+        URL[] links = new URL[pages * LINKS_PER_PAGE];
+
+        for (int i = 0; i < pages; i++)
+        {
+            links[i * LINKS_PER_PAGE] = new URL("https://www.example.com/docs/page" + i + ".html");
+
+            for (int j = 1; j < LINKS_PER_PAGE; j++)
+            {
+                links[i * LINKS_PER_PAGE + j] = new URL("https://www.example.com/docs/page" + random.nextInt(i + 1) + ".html");
+            }
+        }
+
+        return links;
+    }
+
+    /**
+     * Claims every link and returns the time taken
+     *
+     * @param frontier  claims a link
+     * @param links     the links to claim
+     * @return          the time taken in seconds
+     */
+    private static double run(Predicate<URL> frontier, URL[] links)
+    {
+        long start = System.nanoTime();
+        int claimed = 0;
+
+        for (URL link : links)
+        {
+            if (frontier.test(link))
+            {
+                claimed++;
+            }
+        }
+
+        if (claimed == 0)
+        {
+            throw new IllegalStateException();
+        }
+
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * Runs the benchmark and prints the cost of a claim for each frontier at each crawl size
+     *
+     * @param args the optional largest crawl
+     * @throws MalformedURLException if a link cannot be created
+     */
+    public static void main(String[] args) throws MalformedURLException
+    {
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        System.out.printf("%-10s %10s %12s %14s%n", "frontier", "pages", "seconds", "ns/claim");
+
+        for (int pages = 1000; pages <= largest; pages *= 10)
+        {
+            URL[] links = generate(pages);
+
+            LinkedHashMap<String, Predicate<URL>> frontiers = new LinkedHashMap<>();
+            frontiers.put("set", new CrawlFrontier(pages)::claim);
+            frontiers.put("bloom", new CrawlFrontier(pages, true)::claim);
+
+            if (pages <= LIST_LIMIT)
+            {
+                frontiers.put("list", new ListFrontier(pages));
+            }
+
+            for (Map.Entry<String, Predicate<URL>> entry : frontiers.entrySet())
+            {
+                double seconds = run(entry.getValue(), links);
+                System.out.printf("%-10s %10d %12.3f %14.1f%n", entry.getKey(), pages, seconds, seconds * 1e9 / links.length);
+            }
+        }
+    }
+}
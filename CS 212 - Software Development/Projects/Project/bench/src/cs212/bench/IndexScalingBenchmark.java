@@ -0,0 +1,130 @@
+package cs212.bench;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures how indexing throughput scales with the number of worker threads for each thread-safe index.
+ * Every task builds a partial index from one synthetic document and merges it into the shared index,
+ * the same way ThreadSafeInvertedIndexBuilder does for each text file.
+ *
+ * Usage: {@code java IndexScalingBenchmark [documents] [words per document]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class IndexScalingBenchmark
+{
+    /**
+     * The thread counts every index is measured at
+     */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    /**
+     * The number of distinct words in the synthetic vocabulary
+     */
+    private static final int VOCABULARY = 50000;
+
+    /**
+     * Generates documents whose words follow a Zipf-like distribution over the vocabulary
+     *
+     * @param documents         the number of documents to generate
+     * @param wordsPerDocument  the number of words in each document
+     * @return                  the words of each document
+     */
+    private static String[][] generate(int documents, int wordsPerDocument)
+    {
+        Random random = new Random(212);
+        String[][] corpus = new String[documents][wordsPerDocument];
+
+        for (int i = 0; i < documents; i++)
+        {
+            for (int j = 0; j < wordsPerDocument; j++)
+            {
+                int rank = (int) Math.pow(VOCABULARY, random.nextDouble());
+                corpus[i][j] = "w" + Integer.toString(rank, 36);
+            }
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Indexes the corpus into a fresh index with the given number of threads
+     *
+     * @param factory   creates the shared index to be measured
+     * @param corpus    the words of each document
+     * @param threads   the number of worker threads
+     * @return          the time taken in seconds
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static double run(Supplier<ThreadSafeIndexInterface> factory, String[][] corpus, int threads) throws InterruptedException
+    {
+        ThreadSafeIndexInterface index = factory.get();
+        WorkQueue queue = new WorkQueue(threads);
+
+        Instant start = Instant.now();
+
+        for (int i = 0; i < corpus.length; i++)
+        {
+            String location = "doc" + i + ".txt";
+            String[] words = corpus[i];
+
+            queue.execute(() -> {
+                InvertedIndex originIndex = new InvertedIndex();
+
+                for (int position = 0; position < words.length; position++)
+                {
+                    originIndex.add(words[position], location, position + 1);
+                }
+
+                index.addAll(originIndex);
+            });
+        }
+
+        queue.finish();
+
+        double seconds = Duration.between(start, Instant.now()).toNanos() / 1e9;
+
+        queue.shutdown();
+
+        return seconds;
+    }
+
+    /**
+     * Runs the benchmark and prints the throughput of each index at each thread count
+     *
+     * @param args the optional number of documents and words per document
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int wordsPerDocument = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        String[][] corpus = generate(documents, wordsPerDocument);
+
+        LinkedHashMap<String, Supplier<ThreadSafeIndexInterface>> indexes = new LinkedHashMap<>();
+        indexes.put("ThreadSafeInvertedIndex", ThreadSafeInvertedIndex::new);
+        indexes.put("ConcurrentInvertedIndex", ConcurrentInvertedIndex::new);
+
+        System.out.printf("%-25s %8s %12s %16s%n", "index", "threads", "seconds", "words/second");
+
+        for (Map.Entry<String, Supplier<ThreadSafeIndexInterface>> entry : indexes.entrySet())
+        {
+            // warm up the JIT before measuring
+            run(entry.getValue(), corpus, 4);
+
+            for (int threads : THREAD_COUNTS)
+            {
+                double seconds = run(entry.getValue(), corpus, threads);
+                double throughput = (double) documents * wordsPerDocument / seconds;
+
+                System.out.printf("%-25s %8d %12.3f %16.0f%n", entry.getKey(), threads, seconds, throughput);
+            }
+        }
+    }
+}
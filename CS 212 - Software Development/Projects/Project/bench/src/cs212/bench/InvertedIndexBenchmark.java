@@ -0,0 +1,261 @@
+package cs212.bench;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import opennlp.tools.stemmer.*;
+import opennlp.tools.stemmer.snowball.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures building, merging, searching and writing an index from stems that are prepared ahead of time, so
+ * only the index itself is measured. Each invocation covers the whole corpus or the whole query set.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvertedIndexBenchmark
+{
+    /**
+     * The number of query lines searched by each invocation
+     */
+    private static final int QUERIES = 500;
+
+    /**
+     * {@link BenchmarkCorpus#SYNTHETIC} or the path of a directory of text and HTML files
+     */
+    @Param({BenchmarkCorpus.SYNTHETIC})
+    public String corpus;
+
+    /**
+     * The index implementation to measure
+     */
+    @Param({"InvertedIndex", "CompactInvertedIndex"})
+    public String implementation;
+
+    /**
+     * The location of each document
+     */
+    private List<String> locations;
+
+    /**
+     * The stems of each document
+     */
+    private ArrayList<ArrayList<String>> stems;
+
+    /**
+     * The index of each document on its own, as the builders create before merging
+     */
+    private ArrayList<InvertedIndex> partialIndexes;
+
+    /**
+     * The index of the whole corpus
+     */
+    private InvertedIndex index;
+
+    /**
+     * The query lines for exact search
+     */
+    private ArrayList<Set<String>> exactQueries;
+
+    /**
+     * The query lines for partial search, made of the first few letters of stems
+     */
+    private ArrayList<Set<String>> partialQueries;
+
+    /**
+     * Creates an empty index of the implementation being measured
+     *
+     * @return  the empty index
+     */
+    private InvertedIndex newIndex()
+    {
+        switch (implementation)
+        {
+            case "InvertedIndex":
+                return new InvertedIndex();
+
+            case "CompactInvertedIndex":
+                return new CompactInvertedIndex();
+
+            default:
+                throw new IllegalArgumentException("Unknown index implementation: " + implementation);
+        }
+    }
+
+    /**
+     * Stems the corpus and prepares the indexes and queries
+     *
+     * @throws IOException if an IO error occurs while reading the corpus
+     */
+    @Setup(Level.Trial)
+    public void load() throws IOException
+    {
+        BenchmarkCorpus documents = new BenchmarkCorpus(corpus);
+        Stemmer stemmer = new SnowballStemmer(TextFileStemmer.DEFAULT);
+
+        locations = documents.getLocations();
+        stems = new ArrayList<>();
+        partialIndexes = new ArrayList<>();
+
+        for (String text : documents.getTexts())
+        {
+            stems.add(TextFileStemmer.listStems(text, stemmer));
+        }
+
+        for (int i = 0; i < stems.size(); i++)
+        {
+            InvertedIndex partialIndex = newIndex();
+            add(partialIndex, i);
+            partialIndexes.add(partialIndex);
+        }
+
+        index = add();
+
+        ArrayList<String> vocabulary = new ArrayList<>(index.getWords());
+        Random random = new Random(212);
+
+        exactQueries = new ArrayList<>();
+        partialQueries = new ArrayList<>();
+
+        for (int i = 0; i < QUERIES && !vocabulary.isEmpty(); i++)
+        {
+            TreeSet<String> exactQuery = new TreeSet<>();
+            TreeSet<String> partialQuery = new TreeSet<>();
+
+            for (int words = 1 + random.nextInt(3); words > 0; words--)
+            {
+                String word = vocabulary.get(random.nextInt(vocabulary.size()));
+
+                exactQuery.add(word);
+                partialQuery.add(word.substring(0, Math.min(word.length(), 1 + random.nextInt(4))));
+            }
+
+            exactQueries.add(exactQuery);
+            partialQueries.add(partialQuery);
+        }
+    }
+
+    /**
+     * Adds the stems of one document to an index
+     *
+     * @param target    the index to add to
+     * @param document  the index of the document
+     */
+    private void add(InvertedIndex target, int document)
+    {
+        String location = locations.get(document);
+        int position = 1;
+
+        for (String stem : stems.get(document))
+        {
+            target.add(stem, location, position++);
+        }
+    }
+
+    /**
+     * Measures InvertedIndex.add by indexing every stem of the corpus
+     *
+     * @return  the index built
+     */
+    @Benchmark
+    public InvertedIndex add()
+    {
+        InvertedIndex target = newIndex();
+
+        for (int i = 0; i < stems.size(); i++)
+        {
+            add(target, i);
+        }
+
+        return target;
+    }
+
+    /**
+     * Measures InvertedIndex.addAll by merging the index of every document
+     *
+     * @return  the merged index
+     */
+    @Benchmark
+    public InvertedIndex addAll()
+    {
+        InvertedIndex target = newIndex();
+
+        for (InvertedIndex partialIndex : partialIndexes)
+        {
+            target.addAll(partialIndex);
+        }
+
+        return target;
+    }
+
+    /**
+     * Measures InvertedIndex.exactSearch
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     */
+    @Benchmark
+    public void exactSearch(Blackhole blackhole)
+    {
+        for (Set<String> query : exactQueries)
+        {
+            blackhole.consume(index.exactSearch(query));
+        }
+    }
+
+    /**
+     * Measures InvertedIndex.partialSearch
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     */
+    @Benchmark
+    public void partialSearch(Blackhole blackhole)
+    {
+        for (Set<String> query : partialQueries)
+        {
+            blackhole.consume(index.partialSearch(query));
+        }
+    }
+
+    /**
+     * Measures SimpleJsonWriter.asInvertedIndex through the same UTF-8 buffered writer it uses for files,
+     * without the cost of the disk
+     *
+     * @throws IOException if an IO error occurs
+     */
+    @Benchmark
+    public void asInvertedIndex() throws IOException
+    {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)))
+        {
+            SimpleJsonWriter.asInvertedIndex(index, writer, 0);
+        }
+    }
+
+    /**
+     * Measures JsonStreamWriter writing the same index without the cost of the disk
+     *
+     * @throws IOException if an IO error occurs
+     */
+    @Benchmark
+    public void streamInvertedIndex() throws IOException
+    {
+        try (JsonStreamWriter writer = new JsonStreamWriter(Channels.newChannel(OutputStream.nullOutputStream()), false))
+        {
+            writer.writeInvertedIndex(index);
+        }
+    }
+}
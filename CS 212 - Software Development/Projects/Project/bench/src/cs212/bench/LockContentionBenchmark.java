@@ -0,0 +1,306 @@
+package cs212.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures a SimpleReadWriteLock guarding a sorted map, the way ThreadSafeInvertedIndex guards its words, with
+ * a mix of short lookups and writes. Each mode of the lock is measured with lookups under the read lock. The
+ * writer-preferring mode is also measured on a table of word slots, a fixed int array, both with lookups under
+ * the read lock and with optimistic lookups that only take the read lock when a writer got in. The table is
+ * used because every read of it terminates whatever a writer is doing, which a read of the map does not
+ * promise. The longest time a writer waited for the lock shows whether the readers starve the writers.
+ *
+ * Usage: {@code java LockContentionBenchmark [threads] [milliseconds per run]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class LockContentionBenchmark
+{
+    /**
+     * The percentages of operations that are lookups
+     */
+    private static final int[] READ_PERCENTS = {50, 90, 99};
+
+    /**
+     * The number of words in the map
+     */
+    private static final int WORDS = 10000;
+
+    /**
+     * The data the lock guards
+     */
+    private enum Data
+    {
+        /**
+         * A sorted map of the words, looked up under the read lock
+         */
+        MAP,
+
+        /**
+         * A table holding the number of each word, or -1 if it is absent, looked up under the read lock
+         */
+        TABLE,
+
+        /**
+         * The same table, looked up optimistically
+         */
+        OPTIMISTIC_TABLE
+    }
+
+    /**
+     * The result of one run
+     */
+    private static class Run
+    {
+        /**
+         * The number of lookups
+         */
+        private final LongAdder reads = new LongAdder();
+
+        /**
+         * The number of writes
+         */
+        private final LongAdder writes = new LongAdder();
+
+        /**
+         * The longest time a writer waited for the lock in nanoseconds
+         */
+        private final AtomicLong maxWriteWait = new AtomicLong();
+
+        /**
+         * The number of optimistic lookups that had to run again under the read lock
+         */
+        private final LongAdder retries = new LongAdder();
+
+        /**
+         * The number of lookups that found their word, which keeps the lookups from being optimized away
+         */
+        private final LongAdder hits = new LongAdder();
+    }
+
+    /**
+     * Looks up a word in the table without the lock, running the lookup again under the read lock if a writer
+     * got in. Reading one slot of a fixed array always terminates, so the lookup can safely race a writer.
+     *
+     * @param lock  the lock
+     * @param table the table
+     * @param word  the number of the word
+     * @param run   counts the lookups that ran again
+     * @return      whether the table has the word
+     */
+    private static boolean optimisticContains(SimpleReadWriteLock lock, int[] table, int word, Run run)
+    {
+        long stamp = lock.tryOptimisticRead();
+
+        if (stamp != 0)
+        {
+            boolean found = table[word] >= 0;
+
+            if (lock.validate(stamp))
+            {
+                return found;
+            }
+        }
+
+        run.retries.increment();
+        lock.readLock().lock();
+
+        try
+        {
+            return table[word] >= 0;
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs lookups and writes on every thread for a fixed time
+     *
+     * @param mode          the mode of the lock
+     * @param data          the data the lock guards
+     * @param readPercent   the percentage of operations that are lookups
+     * @param threads       the number of threads
+     * @param millis        how long to run
+     * @return              the result
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static Run run(SimpleReadWriteLock.Mode mode, Data data, int readPercent, int threads, long millis)
+            throws InterruptedException
+    {
+        SimpleReadWriteLock lock = new SimpleReadWriteLock(mode);
+        TreeMap<String, Integer> map = new TreeMap<>();
+        int[] table = new int[WORDS];
+
+        for (int i = 0; i < WORDS; i++)
+        {
+            if (i % 2 == 0)
+            {
+                map.put("word" + i, i);
+                table[i] = i;
+            }
+
+            else
+            {
+                table[i] = -1;
+            }
+        }
+
+        String[] words = new String[WORDS];
+
+        for (int i = 0; i < WORDS; i++)
+        {
+            words[i] = "word" + i;
+        }
+
+        Run run = new Run();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++)
+        {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long hits = 0;
+
+                while (!stop.get())
+                {
+                    int word = random.nextInt(WORDS);
+
+                    if (random.nextInt(100) < readPercent)
+                    {
+                        boolean found;
+
+                        if (data == Data.OPTIMISTIC_TABLE)
+                        {
+                            found = optimisticContains(lock, table, word, run);
+                        }
+
+                        else
+                        {
+                            lock.readLock().lock();
+
+                            try
+                            {
+                                found = data == Data.MAP ? map.containsKey(words[word]) : table[word] >= 0;
+                            }
+
+                            finally
+                            {
+                                lock.readLock().unlock();
+                            }
+                        }
+
+                        if (found)
+                        {
+                            hits++;
+                        }
+
+                        run.reads.increment();
+                    }
+
+                    else
+                    {
+                        long start = System.nanoTime();
+                        lock.writeLock().lock();
+                        run.maxWriteWait.accumulateAndGet(System.nanoTime() - start, Math::max);
+
+                        try
+                        {
+                            // a word is added or removed, so the map and the table keep their size
+                            if (data == Data.MAP)
+                            {
+                                if (map.remove(words[word]) == null)
+                                {
+                                    map.put(words[word], word);
+                                }
+                            }
+
+                            else
+                            {
+                                table[word] = table[word] < 0 ? word : -1;
+                            }
+                        }
+
+                        finally
+                        {
+                            lock.writeLock().unlock();
+                        }
+
+                        run.writes.increment();
+                    }
+                }
+
+                run.hits.add(hits);
+                done.countDown();
+            }).start();
+        }
+
+        Thread.sleep(millis);
+        stop.set(true);
+        done.await();
+
+        return run;
+    }
+
+    /**
+     * Runs lookups and writes on every thread for a fixed time and prints the result
+     *
+     * @param mode          the mode of the lock
+     * @param data          the data the lock guards
+     * @param readPercent   the percentage of operations that are lookups
+     * @param threads       the number of threads
+     * @param millis        how long to run
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void print(SimpleReadWriteLock.Mode mode, Data data, int readPercent, int threads, long millis)
+            throws InterruptedException
+    {
+        Run run = run(mode, data, readPercent, threads, millis);
+
+        System.out.printf("%-20s %-17s %6d %14.0f %14.0f %13.1f ms %12d %5.1f%%%n", mode, data, readPercent,
+                run.reads.sum() / (millis / 1e3), run.writes.sum() / (millis / 1e3), run.maxWriteWait.get() / 1e6,
+                run.retries.sum(), 100.0 * run.hits.sum() / Math.max(1, run.reads.sum()));
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional number of threads and time of each run in milliseconds
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+
+        // warm up the JIT before measuring
+        for (SimpleReadWriteLock.Mode mode : SimpleReadWriteLock.Mode.values())
+        {
+            run(mode, Data.MAP, 90, threads, millis / 2);
+        }
+
+        run(SimpleReadWriteLock.Mode.WRITER_PREFERENCE, Data.OPTIMISTIC_TABLE, 90, threads, millis / 2);
+
+        System.out.printf("%-20s %-17s %6s %14s %14s %16s %12s %6s%n", "mode", "data", "read%", "reads/s",
+                "writes/s", "max write wait", "retries", "hit%");
+
+        for (int readPercent : READ_PERCENTS)
+        {
+            for (SimpleReadWriteLock.Mode mode : SimpleReadWriteLock.Mode.values())
+            {
+                print(mode, Data.MAP, readPercent, threads, millis);
+            }
+
+            print(SimpleReadWriteLock.Mode.WRITER_PREFERENCE, Data.TABLE, readPercent, threads, millis);
+            print(SimpleReadWriteLock.Mode.WRITER_PREFERENCE, Data.OPTIMISTIC_TABLE, readPercent, threads, millis);
+        }
+    }
+}
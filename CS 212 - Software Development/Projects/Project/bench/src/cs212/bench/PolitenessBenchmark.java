@@ -0,0 +1,129 @@
+package cs212.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import cs212.engine.*;
+
+/**
+ * Crawls several local hosts at once to show how the host scheduler shares the crawl between them. The first
+ * host is a large site whose pages mostly link to each other, and the others are small sites linked from it.
+ * For each scheduler setting, the benchmark prints how many requests every host answered, how many it answered
+ * at a time and per second, and when its last request arrived.
+ *
+ * Usage: {@code java PolitenessBenchmark [small hosts] [delay in milliseconds]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class PolitenessBenchmark
+{
+    /**
+     * The number of pages on the large host
+     */
+    private static final int LARGE_PAGES = 300;
+
+    /**
+     * The number of pages on each small host
+     */
+    private static final int SMALL_PAGES = 30;
+
+    /**
+     * The number of links on each page
+     */
+    private static final int LINKS_PER_PAGE = 5;
+
+    /**
+     * Fills in the pages of every host, linking the large host to the small ones
+     *
+     * @param servers   the hosts, the large one first
+     * @param sites     the pages of each host by path
+     */
+    private static void generate(List<FixtureHttpServer> servers, List<Map<String, String>> sites)
+    {
+        Random random = new Random(212);
+
+        for (int host = 0; host < servers.size(); host++)
+        {
+            int pages = host == 0 ? LARGE_PAGES : SMALL_PAGES;
+
+            for (int i = 0; i < pages; i++)
+            {
+                StringBuilder html = new StringBuilder("<html>\n<body>\n<p>host ").append(host).append(" page ").append(i).append("</p>\n");
+                html.append("<a href=\"page").append((i + 1) % pages).append(".html\">next</a>\n");
+
+                for (int j = 1; j < LINKS_PER_PAGE; j++)
+                {
+                    html.append("<a href=\"page").append(random.nextInt(pages)).append(".html\">link</a>\n");
+                }
+
+                if (host == 0 && i % 10 == 0)
+                {
+                    int other = 1 + random.nextInt(servers.size() - 1);
+                    html.append("<a href=\"").append(servers.get(other).url("/page0.html")).append("\">other</a>\n");
+                }
+
+                html.append("</body>\n</html>\n");
+                sites.get(host).put("/page" + i + ".html", html.toString());
+            }
+        }
+    }
+
+    /**
+     * Runs the benchmark and prints the load on every host for each scheduler setting
+     *
+     * @param args the optional number of small hosts and delay
+     * @throws Exception if a server cannot be started or the crawl fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int smallHosts = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 20;
+
+        LinkedHashMap<String, HostScheduler> settings = new LinkedHashMap<>();
+        settings.put("no per-host cap", new HostScheduler(32, 32));
+        settings.put("4 per host", new HostScheduler(32, 4));
+        settings.put("4 per host, 50/s", new HostScheduler(32, 4, 50));
+
+        for (Map.Entry<String, HostScheduler> setting : settings.entrySet())
+        {
+            ArrayList<FixtureHttpServer> servers = new ArrayList<>();
+            ArrayList<Map<String, String>> sites = new ArrayList<>();
+
+            for (int host = 0; host <= smallHosts; host++)
+            {
+                ConcurrentHashMap<String, String> site = new ConcurrentHashMap<>();
+                sites.add(site);
+                servers.add(new FixtureHttpServer(site, delay));
+            }
+
+            generate(servers, sites);
+
+            ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+            WorkQueue queue = new WorkQueue(5);
+            WebCrawler crawler = new WebCrawler(index, queue, Integer.MAX_VALUE, new PooledHtmlFetcher(setting.getValue()));
+
+            long start = System.nanoTime();
+            crawler.crawl(servers.get(0).url("/page0.html"));
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            crawler.shutdown();
+            queue.shutdown();
+
+            System.out.printf("%s: %.3f seconds%n", setting.getKey(), seconds);
+            System.out.printf("%8s %10s %12s %12s %12s%n", "host", "requests", "concurrent", "requests/s", "last (s)");
+
+            for (int host = 0; host < servers.size(); host++)
+            {
+                FixtureHttpServer server = servers.get(host);
+
+                System.out.printf("%8d %10d %12d %12.1f %12.3f%n", host, server.requestCount(), server.maxConcurrentCount(),
+                        server.requestRate(), (server.lastRequestNanos() - start) / 1e9);
+
+                server.close();
+            }
+
+            System.out.println();
+        }
+    }
+}
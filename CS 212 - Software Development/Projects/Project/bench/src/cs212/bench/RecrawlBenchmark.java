@@ -0,0 +1,95 @@
+package cs212.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures an incremental re-crawl. A generated site is crawled once to record the crawl state, then a share of
+ * its pages is edited and the site is crawled again with and without the state. The benchmark prints the time,
+ * requests and bytes of each crawl and checks that the incremental crawl builds the same index as a full one.
+ *
+ * Usage: {@code java RecrawlBenchmark [pages] [percent changed] [delay in milliseconds]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class RecrawlBenchmark
+{
+    /**
+     * Crawls the site and prints its cost
+     *
+     * @param name    the name of the crawl
+     * @param server  the server of the site
+     * @param pages   the number of pages in the site
+     * @param state   the crawl state, or null
+     * @return        the index built by the crawl as JSON
+     * @throws Exception if the crawl fails
+     */
+    private static String crawl(String name, FixtureHttpServer server, int pages, CrawlState state) throws Exception
+    {
+        ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+        WorkQueue queue = new WorkQueue(5);
+        WebCrawler crawler = new WebCrawler(index, queue, new CrawlFrontier(pages), new PooledHtmlFetcher(), state);
+
+        int requests = server.requestCount();
+        long bytes = server.bytesSent();
+        long start = System.nanoTime();
+
+        crawler.crawl(server.url("/page0.html"));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        crawler.shutdown();
+        queue.shutdown();
+
+        System.out.printf("%-12s %10.3f %10d %12d   %s%n", name, seconds, server.requestCount() - requests,
+                server.bytesSent() - bytes, state != null ? state : "");
+
+        StringWriter json = new StringWriter();
+        SimpleJsonWriter.asInvertedIndex(index, json, 0);
+        return json.toString();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional number of pages, percent of pages changed and delay
+     * @throws Exception if the server cannot be started or the crawl fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int percent = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long delay = args.length > 2 ? Long.parseLong(args[2]) : 5;
+
+        ConcurrentHashMap<String, String> site = new ConcurrentHashMap<>(FixtureHttpServer.generate(pages));
+        Path statePath = Files.createTempFile("crawl", ".state");
+
+        System.out.printf("%-12s %10s %10s %12s%n", "crawl", "seconds", "requests", "bytes");
+
+        try (FixtureHttpServer server = new FixtureHttpServer(site, delay))
+        {
+            CrawlState first = new CrawlState();
+            crawl("first", server, pages, first);
+            first.write(statePath);
+
+            Random random = new Random(212);
+
+            for (int i = 0; i < pages * percent / 100; i++)
+            {
+                String path = "/page" + random.nextInt(pages) + ".html";
+                site.put(path, site.get(path).replace("<p>", "<p>edited " + i + " "));
+            }
+
+            String full = crawl("full", server, pages, null);
+            String incremental = crawl("incremental", server, pages, CrawlState.read(statePath));
+
+            System.out.println(full.equals(incremental) ? "indexes match" : "INDEXES DIFFER");
+        }
+
+        Files.delete(statePath);
+    }
+}
@@ -0,0 +1,115 @@
+package cs212.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures sorting search results the way InvertedIndex.rank does. The legacy comparator reproduces the
+ * previous Result.compareTo, which turned the other result's count into a String and parsed it back on every
+ * comparison, so the two can be compared on the same results.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultSortBenchmark
+{
+    /**
+     * Compares results the way Result.compareTo did before counts were kept as primitives
+     */
+    private static final Comparator<InvertedIndex.Result> LEGACY_ORDER = (first, second) ->
+    {
+        int priorityChecker = Double.compare(first.getPriority(), second.getPriority());
+
+        if (priorityChecker == 0)
+        {
+            int countChecker = Integer.compare(first.getCount(), Integer.parseInt(Integer.toString(second.getCount())));
+
+            if (countChecker == 0)
+            {
+                return first.getLocation().compareToIgnoreCase(second.getLocation());
+            }
+
+            return countChecker * -1;
+        }
+
+        return priorityChecker * -1;
+    };
+
+    /**
+     * The number of results to sort
+     */
+    @Param({"1000000"})
+    public int size;
+
+    /**
+     * The unsorted results every invocation starts from
+     */
+    private InvertedIndex.Result[] results;
+
+    /**
+     * The results being sorted by the current invocation
+     */
+    private ArrayList<InvertedIndex.Result> working;
+
+    /**
+     * Generates results with few distinct scores so ties fall through to the count and location
+     */
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        Random random = new Random(212);
+
+        results = new InvertedIndex.Result[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            int wordCount = 100 + random.nextInt(50);
+            int count = 1 + random.nextInt(20);
+
+            results[i] = new InvertedIndex.Result("file" + random.nextInt(size) + ".txt", count, wordCount);
+        }
+    }
+
+    /**
+     * Restores the unsorted order before every invocation
+     */
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        working = new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * Sorts the results with the legacy comparison
+     *
+     * @return  the sorted results
+     */
+    @Benchmark
+    public ArrayList<InvertedIndex.Result> legacy()
+    {
+        working.sort(LEGACY_ORDER);
+        return working;
+    }
+
+    /**
+     * Sorts the results with Result.compareTo
+     *
+     * @return  the sorted results
+     */
+    @Benchmark
+    public ArrayList<InvertedIndex.Result> primitive()
+    {
+        Collections.sort(working);
+        return working;
+    }
+}
@@ -0,0 +1,185 @@
+package cs212.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures how building an index of a skewed tree scales with the number of worker threads. The tree has many
+ * tiny files and a few very large ones, so a builder that queues one task per file leaves most workers idle
+ * while the large files are parsed. Every build is checked against a single-threaded build of the same tree.
+ *
+ * Usage: {@code java SkewBenchmark [tiny files] [large files] [megabytes per large file]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class SkewBenchmark
+{
+    /**
+     * The thread counts the builder is measured at
+     */
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    /**
+     * The number of distinct words in the generated vocabulary
+     */
+    private static final int VOCABULARY = 5000;
+
+    /**
+     * Generates a random word of letters, since the parser drops digits
+     *
+     * @param random    the source of randomness
+     * @return          the word
+     */
+    private static String word(Random random)
+    {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(6);
+
+        for (int i = 0; i < length; i++)
+        {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+
+        return word.toString();
+    }
+
+    /**
+     * Writes a file of random lines of words from the vocabulary
+     *
+     * @param path          the file
+     * @param bytes         the approximate size of the file
+     * @param vocabulary    the words to choose from
+     * @param random        the source of randomness
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path path, long bytes, String[] vocabulary, Random random) throws IOException
+    {
+        try (BufferedWriter writer = Files.newBufferedWriter(path))
+        {
+            long written = 0;
+
+            while (written < bytes)
+            {
+                StringBuilder line = new StringBuilder();
+
+                for (int i = 0; i < 12; i++)
+                {
+                    line.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+                }
+
+                writer.write(line.toString());
+                writer.newLine();
+                written += line.length() + 1;
+            }
+        }
+    }
+
+    /**
+     * Writes the index as JSON
+     *
+     * @param index the index
+     * @return      the JSON
+     * @throws IOException if the index cannot be written
+     */
+    private static String json(InvertedIndex index) throws IOException
+    {
+        StringWriter json = new StringWriter();
+        SimpleJsonWriter.asInvertedIndex(index, json, 0);
+        return json.toString();
+    }
+
+    /**
+     * Builds an index of the tree with the given number of threads
+     *
+     * @param root      the root of the tree
+     * @param threads   the number of worker threads
+     * @param expected  the JSON of the single-threaded index, or null to skip the check
+     * @return          the time taken in seconds
+     * @throws IOException if the tree cannot be read
+     * @throws InterruptedException if interrupted while waiting for the files to be parsed
+     */
+    private static double run(Path root, int threads, String expected) throws IOException, InterruptedException
+    {
+        ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+        WorkQueue queue = new WorkQueue(threads);
+
+        long start = System.nanoTime();
+        new ThreadSafeInvertedIndexBuilder(index, queue).directoryTraverseAndParse(root);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        queue.shutdown();
+
+        if (expected != null && !expected.equals(json(index)))
+        {
+            System.out.println("  index with " + threads + " threads does not match the single-threaded index");
+        }
+
+        return seconds;
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional number of tiny files, number of large files and megabytes per large file
+     * @throws IOException if the tree cannot be written or read
+     * @throws InterruptedException if interrupted while waiting for the files to be parsed
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int tiny = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int large = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        Path root = Files.createTempDirectory("skew");
+        Random random = new Random(212);
+        String[] vocabulary = new String[VOCABULARY];
+
+        for (int i = 0; i < vocabulary.length; i++)
+        {
+            vocabulary[i] = word(random);
+        }
+
+        for (int i = 0; i < tiny; i++)
+        {
+            write(root.resolve("tiny" + i + ".txt"), 200 + random.nextInt(2000), vocabulary, random);
+        }
+
+        for (int i = 0; i < large; i++)
+        {
+            write(root.resolve("large" + i + ".txt"), megabytes * 1024L * 1024L, vocabulary, random);
+        }
+
+        // warm up the JIT before measuring
+        run(root, 4, null);
+
+        InvertedIndex single = new InvertedIndex();
+        long start = System.nanoTime();
+        new InvertedIndexBuilder(single).directoryTraverseAndParse(root);
+        double baseline = (System.nanoTime() - start) / 1e9;
+        String expected = json(single);
+
+        System.out.printf("%-8s %12s %10s%n", "threads", "seconds", "speedup");
+        System.out.printf("%-8s %12.3f %10s%n", "serial", baseline, "1.00");
+
+        for (int threads : THREAD_COUNTS)
+        {
+            double seconds = run(root, threads, expected);
+            System.out.printf("%-8d %12.3f %10.2f%n", threads, seconds, baseline / seconds);
+        }
+
+        try (Stream<Path> files = Files.list(root))
+        {
+            for (Path file : files.collect(Collectors.toList()))
+            {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(root);
+    }
+}
@@ -0,0 +1,150 @@
+package cs212.bench;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import opennlp.tools.stemmer.*;
+import opennlp.tools.stemmer.snowball.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures the text processing done on every document before it is indexed: parsing, stemming and cleaning
+ * HTML. Each invocation processes the whole corpus.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextBenchmark
+{
+    /**
+     * {@link BenchmarkCorpus#SYNTHETIC} or the path of a directory of text and HTML files
+     */
+    @Param({BenchmarkCorpus.SYNTHETIC})
+    public String corpus;
+
+    /**
+     * The plain text of each document
+     */
+    private List<String> texts;
+
+    /**
+     * The plain text of each document encoded as UTF-8
+     */
+    private List<ByteBuffer> encoded;
+
+    /**
+     * The stem cache shared by every invocation, as it is shared by every file of a build
+     */
+    private StemCache cache;
+
+    /**
+     * The HTML of each page
+     */
+    private List<String> pages;
+
+    /**
+     * Loads the corpus
+     *
+     * @throws IOException if an IO error occurs while reading the corpus
+     */
+    @Setup(Level.Trial)
+    public void load() throws IOException
+    {
+        BenchmarkCorpus documents = new BenchmarkCorpus(corpus);
+
+        texts = documents.getTexts();
+        pages = documents.getPages();
+        encoded = new ArrayList<>();
+        cache = new StemCache(TextFileStemmer.DEFAULT, StemCache.DEFAULT_CAPACITY);
+
+        for (String text : texts)
+        {
+            encoded.add(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Measures TextParser.parse
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole)
+    {
+        for (String text : texts)
+        {
+            blackhole.consume(TextParser.parse(text));
+        }
+    }
+
+    /**
+     * Measures TextTokenizer.tokenize on the UTF-8 bytes of each document, which finds the same words as parse
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     * @throws CharacterCodingException if a document is not valid UTF-8
+     */
+    @Benchmark
+    public void tokenize(Blackhole blackhole) throws CharacterCodingException
+    {
+        for (ByteBuffer bytes : encoded)
+        {
+            blackhole.consume(TextTokenizer.tokenize(bytes.duplicate(), (word, position) -> blackhole.consume(word)));
+        }
+    }
+
+    /**
+     * Measures TextFileStemmer.listStems with one stemmer per document, as the builders use it
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     */
+    @Benchmark
+    public void listStems(Blackhole blackhole)
+    {
+        for (String text : texts)
+        {
+            Stemmer stemmer = new SnowballStemmer(TextFileStemmer.DEFAULT);
+            blackhole.consume(TextFileStemmer.listStems(text, stemmer));
+        }
+    }
+
+    /**
+     * Measures TextFileStemmer.listStems with a StemCache in front of the stemmer
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     */
+    @Benchmark
+    public void cachedListStems(Blackhole blackhole)
+    {
+        for (String text : texts)
+        {
+            blackhole.consume(TextFileStemmer.listStems(text, cache));
+        }
+    }
+
+    /**
+     * Measures HtmlCleaner.stripHtml
+     *
+     * @param blackhole consumes the results so they are not optimized away
+     */
+    @Benchmark
+    public void stripHtml(Blackhole blackhole)
+    {
+        for (String page : pages)
+        {
+            blackhole.consume(HtmlCleaner.stripHtml(page));
+        }
+    }
+}
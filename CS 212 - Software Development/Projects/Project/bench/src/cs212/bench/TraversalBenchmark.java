@@ -0,0 +1,165 @@
+package cs212.bench;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures how soon parsing starts and how long a build takes on a tree of many small files, when the whole
+ * tree is listed before any file is queued and when files are queued as the walk finds them. The tree has a
+ * symbolic link back to its root, which the streaming walk skips.
+ *
+ * Usage: {@code java TraversalBenchmark [files] [threads]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class TraversalBenchmark
+{
+    /**
+     * The number of files in each generated directory
+     */
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    /**
+     * Builder that records when the first file is queued
+     */
+    private static class TimedBuilder extends ThreadSafeInvertedIndexBuilder
+    {
+        /**
+         * The time the first file was queued, or 0 if none was
+         */
+        private long firstNanos;
+
+        /**
+         * Multi-arg constructor which implements a builder
+         *
+         * @param index the index to build
+         * @param queue the queue parsing the files
+         */
+        public TimedBuilder(ThreadSafeIndexInterface index, WorkQueue queue)
+        {
+            super(index, queue);
+        }
+
+        @Override
+        protected void execute(Runnable task)
+        {
+            if (firstNanos == 0)
+            {
+                firstNanos = System.nanoTime();
+            }
+
+            super.execute(task);
+        }
+    }
+
+    /**
+     * Generates a random word of letters, since the parser drops digits
+     *
+     * @param random    the source of randomness
+     * @return          the word
+     */
+    private static String word(Random random)
+    {
+        StringBuilder word = new StringBuilder();
+
+        for (int i = 0; i < 6; i++)
+        {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+
+        return word.toString();
+    }
+
+    /**
+     * Builds an index of the tree and prints the time to the first queued file and the total time
+     *
+     * @param name      the name of the run
+     * @param root      the root of the tree
+     * @param threads   the number of worker threads
+     * @param listFirst whether the whole tree is listed before any file is queued
+     * @throws Exception if the tree cannot be read
+     */
+    private static void run(String name, Path root, int threads, boolean listFirst) throws Exception
+    {
+        ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+        WorkQueue queue = new WorkQueue(threads);
+        TimedBuilder builder = new TimedBuilder(index, queue);
+
+        long start = System.nanoTime();
+
+        if (listFirst)
+        {
+            List<Path> listing;
+
+            try (Stream<Path> files = Files.walk(root).filter(InvertedIndexBuilder::isTextFile))
+            {
+                listing = files.collect(Collectors.toList());
+            }
+
+            for (Path path : listing)
+            {
+                builder.fileParse(path);
+            }
+
+            // walking an empty directory waits for the queued files and merges their partial indexes
+            Path empty = Files.createTempDirectory("empty");
+            builder.directoryTraverseAndParse(empty);
+            Files.delete(empty);
+        }
+
+        else
+        {
+            builder.directoryTraverseAndParse(root);
+        }
+
+        long end = System.nanoTime();
+        queue.shutdown();
+
+        System.out.printf("%-10s %14.1f %12.3f %10d%n", name, (builder.firstNanos - start) / 1e6, (end - start) / 1e9,
+                index.getWords().size());
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional number of files and worker threads
+     * @throws Exception if the tree cannot be written or read
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        Path root = Files.createTempDirectory("traversal");
+        Random random = new Random(212);
+
+        for (int i = 0; i < count; i++)
+        {
+            Path directory = root.resolve("d" + (i / FILES_PER_DIRECTORY / 10)).resolve("d" + (i / FILES_PER_DIRECTORY));
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("f" + i + ".txt"), word(random) + " and " + word(random));
+        }
+
+        System.out.printf("%-10s %14s %12s %10s%n", "walk", "first file ms", "seconds", "words");
+
+        run("list", root, threads, true);
+        run("stream", root, threads, false);
+        run("list", root, threads, true);
+        run("stream", root, threads, false);
+
+        Files.createSymbolicLink(root.resolve("d0").resolve("loop"), root);
+        run("stream+loop", root, threads, false);
+
+        try (Stream<Path> paths = Files.walk(root))
+        {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(path);
+            }
+        }
+    }
+}
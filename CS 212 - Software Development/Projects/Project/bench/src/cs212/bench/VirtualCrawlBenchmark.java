@@ -0,0 +1,255 @@
+package cs212.bench;
+
+import java.net.*;
+import java.time.*;
+import java.util.*;
+
+import cs212.engine.*;
+
+/**
+ * Compares the crawl of the Driver's -virtual mode with a crawl that blocks a thread on every fetch, against a
+ * {@link FixtureHttpServer} with a simulated network delay. At each level of concurrency, the blocking crawl
+ * waits on each fetch on a WorkQueue with one thread per fetch in flight and only finds links, so it is the
+ * cheaper of the two. The -virtual crawl indexes every page as well, with as many requests in flight but a
+ * fixed number of threads. The peak number of threads started by the crawl is sampled while it runs, leaving
+ * out the threads of the server and the threads that were already running.
+ *
+ * Usage: {@code java VirtualCrawlBenchmark [pages] [delay in milliseconds] [threads]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class VirtualCrawlBenchmark
+{
+    /**
+     * The numbers of fetches in flight each crawl is measured at
+     */
+    private static final int[] CONCURRENCY = {16, 256, 1024};
+
+    /**
+     * How often the threads are counted in milliseconds
+     */
+    private static final long SAMPLE_MILLIS = 5;
+
+    /**
+     * Counts the live threads that do not belong to the server until it is interrupted
+     */
+    private static class ThreadSampler extends Thread
+    {
+        /**
+         * The number of threads counted before the crawl started
+         */
+        private final int baseline;
+
+        /**
+         * The largest number of threads counted
+         */
+        private volatile int peak;
+
+        /**
+         * Zero-arg constructor which implements a daemon sampler
+         */
+        private ThreadSampler()
+        {
+            setDaemon(true);
+            baseline = count(new Thread[Thread.activeCount() * 2 + 16]);
+            peak = baseline;
+        }
+
+        /**
+         * Counts the live threads that do not belong to the server
+         *
+         * @param threads   an array to list the threads in, which should have room for every thread
+         * @return          the number of threads
+         */
+        private static int count(Thread[] threads)
+        {
+            int count = Thread.enumerate(threads);
+            int own = 0;
+
+            for (int i = 0; i < count; i++)
+            {
+                if (!FixtureHttpServer.THREAD_NAME.equals(threads[i].getName()))
+                {
+                    own++;
+                }
+            }
+
+            return own;
+        }
+
+        /**
+         * Returns the largest number of threads started since the sampler was created
+         *
+         * @return  the number of threads
+         */
+        private int getStarted()
+        {
+            return peak - baseline;
+        }
+
+        @Override
+        public void run()
+        {
+            Thread[] threads = new Thread[256];
+
+            while (!isInterrupted())
+            {
+                while (Thread.activeCount() >= threads.length)
+                {
+                    threads = new Thread[threads.length * 2];
+                }
+
+                peak = Math.max(peak, count(threads));
+
+                try
+                {
+                    Thread.sleep(SAMPLE_MILLIS);
+                }
+
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a task that fetches a page with a blocking fetch and queues a task for each new link on it
+     *
+     * @param queue     the queue running the tasks
+     * @param fetcher   the fetcher downloading each page
+     * @param frontier  the frontier claiming each link
+     * @param url       the page to fetch
+     * @return          the task
+     */
+    private static Runnable blockingFetch(WorkQueue queue, PooledHtmlFetcher fetcher, CrawlFrontier frontier, URL url)
+    {
+        return () -> {
+            String html = fetcher.fetch(url, 3).join();
+
+            if (html == null)
+            {
+                return;
+            }
+
+            try
+            {
+                for (URL link : LinkParser.listLinks(url, html))
+                {
+                    URL cleaned = LinkParser.clean(link);
+
+                    if (frontier.claim(cleaned))
+                    {
+                        queue.execute(blockingFetch(queue, fetcher, frontier, cleaned));
+                    }
+
+                    else if (frontier.isFull())
+                    {
+                        return;
+                    }
+                }
+            }
+
+            catch (MalformedURLException e)
+            {
+                return;
+            }
+        };
+    }
+
+    /**
+     * Crawls the site with a blocking fetch on every worker
+     *
+     * @param seed      the URL of the first page
+     * @param pages     the number of pages to crawl
+     * @param threads   the number of workers, which is the number of fetches in flight
+     * @throws Exception if the seed is not a URL or the crawl is interrupted
+     */
+    private static void blockingCrawl(String seed, int pages, int threads) throws Exception
+    {
+        WorkQueue queue = new WorkQueue(threads);
+        PooledHtmlFetcher fetcher = new PooledHtmlFetcher(new HostScheduler(threads, threads));
+        CrawlFrontier frontier = new CrawlFrontier(pages);
+
+        URL first = LinkParser.clean(new URL(seed));
+        frontier.claim(first);
+
+        queue.execute(blockingFetch(queue, fetcher, frontier, first));
+        queue.finish();
+        queue.shutdown();
+    }
+
+    /**
+     * Crawls the site the way the Driver does with -virtual
+     *
+     * @param seed      the URL of the first page
+     * @param pages     the number of pages to crawl
+     * @param inFlight  the number of fetches in flight
+     * @param threads   the number of workers and of threads completing responses
+     * @throws Exception if the seed is not a URL or the crawl is interrupted
+     */
+    private static void virtualCrawl(String seed, int pages, int inFlight, int threads) throws Exception
+    {
+        ThreadSafeInvertedIndex index = new ThreadSafeInvertedIndex();
+        WorkQueue queue = new WorkQueue(threads);
+        PooledHtmlFetcher fetcher = new PooledHtmlFetcher(new HostScheduler(inFlight, inFlight), threads);
+        WebCrawler crawler = new WebCrawler(index, queue, pages, fetcher);
+
+        crawler.crawl(seed);
+        crawler.shutdown();
+        queue.shutdown();
+    }
+
+    /**
+     * Runs the benchmark and prints the throughput and peak threads of each crawl at each level of concurrency
+     *
+     * @param args the optional number of pages, delay and number of worker threads
+     * @throws Exception if the server cannot be started or a crawl fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long delay = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Map<String, String> site = FixtureHttpServer.generate(pages);
+
+        System.out.printf("%-10s %10s %10s %12s %12s %12s %10s%n", "crawl", "inflight", "pages", "seconds",
+                "pages/second", "threads", "repeated");
+
+        for (int inFlight : CONCURRENCY)
+        {
+            for (boolean isVirtual : new boolean[] {false, true})
+            {
+                try (FixtureHttpServer server = new FixtureHttpServer(site, delay))
+                {
+                    ThreadSampler sampler = new ThreadSampler();
+                    sampler.start();
+
+                    Instant start = Instant.now();
+
+                    if (isVirtual)
+                    {
+                        virtualCrawl(server.url("/page0.html"), pages, inFlight, threads);
+                    }
+
+                    else
+                    {
+                        blockingCrawl(server.url("/page0.html"), pages, inFlight);
+                    }
+
+                    double seconds = Duration.between(start, Instant.now()).toNanos() / 1e9;
+
+                    sampler.interrupt();
+                    sampler.join();
+
+                    System.out.printf("%-10s %10d %10d %12.3f %12.1f %12d %10d%n", isVirtual ? "virtual" : "blocking",
+                            inFlight, server.requestCount(), seconds, server.requestCount() / seconds, sampler.getStarted(),
+                            server.repeatedCount());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package cs212.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures query latency while a {@link DirectoryWatcher} keeps an index up to date. The generated corpus is
+ * written to a temporary directory and indexed, then queries are timed first while nothing changes and then
+ * while another thread keeps rewriting files. Once the writes stop, the watched index is checked against an
+ * index built from scratch.
+ *
+ * Usage: {@code java WatchBenchmark [seconds per phase] [milliseconds between writes]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class WatchBenchmark
+{
+    /**
+     * The number of queries in the query set
+     */
+    private static final int QUERIES = 200;
+
+    /**
+     * Runs queries for a while and prints their latency percentiles
+     *
+     * @param name      the name of the phase
+     * @param index     the index to search
+     * @param queries   the queries to run
+     * @param seconds   the time to run queries for
+     */
+    private static void measure(String name, ThreadSafeIndexInterface index, List<Set<String>> queries, double seconds)
+    {
+        ArrayList<Long> latencies = new ArrayList<>();
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+
+        for (int i = 0; System.nanoTime() < end; i++)
+        {
+            long start = System.nanoTime();
+            index.partialSearch(queries.get(i % queries.size()), 10);
+            latencies.add(System.nanoTime() - start);
+        }
+
+        Collections.sort(latencies);
+
+        System.out.printf("%-28s %10d %10.1f %10.1f %10.1f%n", name, latencies.size(),
+                latencies.get(latencies.size() / 2) / 1e3, latencies.get(latencies.size() * 99 / 100) / 1e3,
+                latencies.get(latencies.size() - 1) / 1e3);
+    }
+
+    /**
+     * Writes the index as JSON
+     *
+     * @param index the index
+     * @return      the JSON
+     * @throws IOException if the index cannot be written
+     */
+    private static String json(InvertedIndexInterface index) throws IOException
+    {
+        StringWriter json = new StringWriter();
+        SimpleJsonWriter.asInvertedIndex(index, json, 0);
+        return json.toString();
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional seconds per phase and milliseconds between writes
+     * @throws Exception if the files cannot be written or indexed
+     */
+    public static void main(String[] args) throws Exception
+    {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        long interval = args.length > 1 ? Long.parseLong(args[1]) : 20;
+
+        BenchmarkCorpus corpus = new BenchmarkCorpus(BenchmarkCorpus.SYNTHETIC);
+        List<String> texts = corpus.getTexts();
+        Random random = new Random(212);
+
+        ArrayList<Set<String>> queries = new ArrayList<>();
+
+        for (int i = 0; i < QUERIES; i++)
+        {
+            String[] words = texts.get(random.nextInt(texts.size())).split("\\s+");
+            queries.add(TextFileStemmer.uniqueStems(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]));
+        }
+
+        System.out.printf("%-28s %10s %10s %10s %10s%n", "phase", "queries", "p50 us", "p99 us", "max us");
+
+        for (boolean concurrent : new boolean[] {false, true})
+        {
+            Path directory = Files.createTempDirectory("watch");
+
+            for (int i = 0; i < texts.size(); i++)
+            {
+                Files.writeString(directory.resolve("doc" + i + ".txt"), texts.get(i));
+            }
+
+            ThreadSafeIndexInterface index = concurrent ? new ConcurrentInvertedIndex() : new ThreadSafeInvertedIndex();
+            WorkQueue queue = new WorkQueue(4);
+            DirectoryWatcher watcher = new DirectoryWatcher(index, queue, 50);
+
+            watcher.register(directory);
+            new ThreadSafeInvertedIndexBuilder(index, queue).directoryTraverseAndParse(directory);
+
+            Thread watching = new Thread(() -> {
+                try
+                {
+                    watcher.watch(0, null);
+                }
+
+                catch (IOException e)
+                {
+                    System.out.println("Unable to watch " + directory);
+                }
+            });
+
+            watching.start();
+
+            String name = index.getClass().getSimpleName();
+            measure(name + " idle", index, queries, seconds);
+
+            Thread writer = new Thread(() -> {
+                Random edits = new Random(7);
+
+                while (!Thread.currentThread().isInterrupted())
+                {
+                    try
+                    {
+                        Path file = directory.resolve("doc" + edits.nextInt(texts.size()) + ".txt");
+                        Files.writeString(file, texts.get(edits.nextInt(texts.size())));
+                        Thread.sleep(interval);
+                    }
+
+                    catch (IOException e)
+                    {
+                        System.out.println("Unable to write to " + directory);
+                    }
+
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+            });
+
+            writer.start();
+            measure(name + " updating", index, queries, seconds);
+
+            writer.interrupt();
+            writer.join();
+            Thread.sleep(3000);
+
+            System.out.println("  " + watcher);
+
+            watcher.close();
+            watching.join();
+
+            InvertedIndex fresh = new InvertedIndex();
+            new InvertedIndexBuilder(fresh).directoryTraverseAndParse(directory);
+            System.out.println("  matches a fresh index: " + json(fresh).equals(json(index)));
+
+            queue.shutdown();
+
+            try (Stream<Path> files = Files.list(directory))
+            {
+                for (Path file : files.collect(Collectors.toList()))
+                {
+                    Files.delete(file);
+                }
+            }
+
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package cs212.bench;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import cs212.engine.*;
+
+/**
+ * Measures how fast tiny tasks get through the work-stealing WorkQueue and through the single-monitor queue it
+ * replaced. Tasks are submitted from the main thread, and from the workers themselves as the index builders
+ * and the crawler do. For tasks submitted from the main thread, the time from each submit to the start of its
+ * task is also recorded.
+ *
+ * Usage: {@code java WorkQueueBenchmark [tasks]}
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class WorkQueueBenchmark
+{
+    /**
+     * The worker counts every queue is measured at
+     */
+    private static final int[] THREAD_COUNTS = {16, 32};
+
+    /**
+     * The methods shared by the queues being compared
+     */
+    private interface Queue
+    {
+        /**
+         * Queues a task
+         *
+         * @param task  the task
+         */
+        void execute(Runnable task);
+
+        /**
+         * Waits for every queued task to finish
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        void finish() throws InterruptedException;
+
+        /**
+         * Stops the workers
+         */
+        void shutdown();
+    }
+
+    /**
+     * The queue WorkQueue used to be: one list behind one monitor, woken with notifyAll on every submit, and
+     * a pending count behind a second monitor
+     */
+    private static class MonitorQueue implements Queue
+    {
+        /**
+         * The tasks waiting to be run
+         */
+        private final LinkedList<Runnable> queue = new LinkedList<>();
+
+        /**
+         * The workers
+         */
+        private final Thread[] workers;
+
+        /**
+         * Whether the workers should stop
+         */
+        private volatile boolean shutdown;
+
+        /**
+         * The number of tasks queued but not finished
+         */
+        private int pending;
+
+        /**
+         * Single-arg constructor which implements a queue with its workers started
+         *
+         * @param threads   the number of workers
+         */
+        private MonitorQueue(int threads)
+        {
+            workers = new Thread[threads];
+
+            for (int i = 0; i < threads; i++)
+            {
+                workers[i] = new Thread(this::work);
+                workers[i].start();
+            }
+        }
+
+        @Override
+        public void execute(Runnable task)
+        {
+            synchronized (this)
+            {
+                pending++;
+            }
+
+            synchronized (queue)
+            {
+                queue.addLast(task);
+                queue.notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void finish() throws InterruptedException
+        {
+            while (pending > 0)
+            {
+                wait();
+            }
+        }
+
+        @Override
+        public void shutdown()
+        {
+            shutdown = true;
+
+            synchronized (queue)
+            {
+                queue.notifyAll();
+            }
+        }
+
+        /**
+         * Runs tasks until the queue is shut down
+         */
+        private void work()
+        {
+            while (true)
+            {
+                Runnable task;
+
+                synchronized (queue)
+                {
+                    while (queue.isEmpty() && !shutdown)
+                    {
+                        try
+                        {
+                            queue.wait();
+                        }
+
+                        catch (InterruptedException e)
+                        {
+                            return;
+                        }
+                    }
+
+                    if (shutdown)
+                    {
+                        return;
+                    }
+
+                    task = queue.removeFirst();
+                }
+
+                task.run();
+
+                synchronized (this)
+                {
+                    if (--pending == 0)
+                    {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a queue of either kind
+     *
+     * @param stealing  whether to create a WorkQueue instead of a MonitorQueue
+     * @param threads   the number of workers
+     * @return          the queue
+     */
+    private static Queue create(boolean stealing, int threads)
+    {
+        if (!stealing)
+        {
+            return new MonitorQueue(threads);
+        }
+
+        WorkQueue queue = new WorkQueue(threads);
+
+        return new Queue()
+        {
+            @Override
+            public void execute(Runnable task)
+            {
+                queue.execute(task);
+            }
+
+            @Override
+            public void finish() throws InterruptedException
+            {
+                queue.finish();
+            }
+
+            @Override
+            public void shutdown()
+            {
+                queue.shutdown();
+            }
+        };
+    }
+
+    /**
+     * Submits every task from the main thread and records how long each one waited to start
+     *
+     * @param queue the queue
+     * @param tasks the number of tasks
+     * @return      the time each task waited in nanoseconds, and the total time in nanoseconds last
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static long[] external(Queue queue, int tasks) throws InterruptedException
+    {
+        long[] waits = new long[tasks + 1];
+        LongAdder done = new LongAdder();
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < tasks; i++)
+        {
+            int task = i;
+            long submitted = System.nanoTime();
+
+            queue.execute(() -> {
+                waits[task] = System.nanoTime() - submitted;
+                done.increment();
+            });
+        }
+
+        queue.finish();
+        waits[tasks] = System.nanoTime() - start;
+
+        return waits;
+    }
+
+    /**
+     * Submits one task per worker from the main thread, each of which submits its share of the tasks
+     *
+     * @param queue     the queue
+     * @param tasks     the number of tasks
+     * @param threads   the number of workers
+     * @return          the total time in nanoseconds
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static long fanOut(Queue queue, int tasks, int threads) throws InterruptedException
+    {
+        LongAdder done = new LongAdder();
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < threads; i++)
+        {
+            queue.execute(() -> {
+                for (int j = 0; j < tasks / threads; j++)
+                {
+                    queue.execute(done::increment);
+                }
+            });
+        }
+
+        queue.finish();
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args the optional number of tasks
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+
+        System.out.printf("%-14s %8s %16s %16s %10s %10s %10s%n", "queue", "threads", "submit tasks/s", "fan-out tasks/s",
+                "p50 us", "p99 us", "max us");
+
+        for (int threads : THREAD_COUNTS)
+        {
+            for (boolean stealing : new boolean[] {false, true})
+            {
+                Queue queue = create(stealing, threads);
+
+                // warm up the JIT before measuring
+                for (int i = 0; i < 3; i++)
+                {
+                    external(queue, tasks);
+                    fanOut(queue, tasks, threads);
+                }
+
+                long[] waits = external(queue, tasks);
+                long total = waits[tasks];
+                long fanOut = fanOut(queue, tasks, threads);
+
+                queue.shutdown();
+
+                Arrays.sort(waits, 0, tasks);
+
+                System.out.printf("%-14s %8d %16.0f %16.0f %10.1f %10.1f %10.1f%n", stealing ? "WorkQueue" : "monitor",
+                        threads, tasks / (total / 1e9), tasks / (fanOut / 1e9), waits[tasks / 2] / 1e3,
+                        waits[(int) (tasks * 0.99)] / 1e3, waits[tasks - 1] / 1e3);
+            }
+        }
+    }
+}
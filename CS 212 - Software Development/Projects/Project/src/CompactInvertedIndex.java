@@ -0,0 +1,934 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * InvertedIndex that stores its postings in primitive arrays instead of boxed collections. Locations are
+ * interned to dense integer document IDs and the positions of a word at a location are delta encoded as
+ * variable-length integers in a byte array shared by all locations of that word. Words are kept in a
+ * {@link TermDictionary} and their postings are looked up by term ID. The term IDs of every document are kept
+ * as well, so removing a location only visits the postings of its own words. The document and term IDs of
+ * removed locations and words are given to new ones, so an index that keeps changing, such as one kept up to
+ * date by a DirectoryWatcher, does not grow with every location and word it ever held.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class CompactInvertedIndex extends InvertedIndex
+{
+    /**
+     * Nested class that stores the documents and encoded positions of a single word
+     */
+    private static class Postings
+    {
+        /**
+         * The number of documents the word appears in
+         */
+        private int size;
+
+        /**
+         * The IDs of the documents the word appears in, in ascending order
+         */
+        private int[] documents;
+
+        /**
+         * The number of positions the word has in each document
+         */
+        private int[] counts;
+
+        /**
+         * The largest position the word has in each document
+         */
+        private int[] lastPositions;
+
+        /**
+         * The offset in bytes where the positions of each document start
+         */
+        private int[] offsets;
+
+        /**
+         * The delta encoded positions of every document, one after another
+         */
+        private byte[] bytes;
+
+        /**
+         * The number of bytes in use
+         */
+        private int length;
+
+        /**
+         * Zero-arg constructor that implements arrays large enough for a single document
+         */
+        private Postings()
+        {
+            documents = new int[1];
+            counts = new int[1];
+            lastPositions = new int[1];
+            offsets = new int[1];
+            bytes = new byte[4];
+        }
+
+        /**
+         * Adds a position of the word in a document
+         *
+         * @param document  the ID of the document
+         * @param position  the position of the word in the document
+         * @return          whether the document was not in the postings before
+         */
+        private boolean add(int document, int position)
+        {
+            int last = size - 1;
+
+            if (size > 0 && documents[last] == document && position > lastPositions[last])
+            {
+                writeVarint(position - lastPositions[last]);
+                counts[last]++;
+                lastPositions[last] = position;
+                return false;
+            }
+
+            else if (size == 0 || documents[last] < document)
+            {
+                append(document, 1, position);
+                writeVarint(position);
+                return true;
+            }
+
+            else
+            {
+                return insert(document, position);
+            }
+        }
+
+        /**
+         * Removes a document and its positions
+         *
+         * @param document  the ID of the document
+         */
+        private void remove(int document)
+        {
+            int index = indexOf(document);
+
+            if (index < 0)
+            {
+                return;
+            }
+
+            int start = offsets[index];
+            int end = end(index);
+            int moved = size - index - 1;
+
+            System.arraycopy(bytes, end, bytes, start, length - end);
+            length -= end - start;
+
+            System.arraycopy(documents, index + 1, documents, index, moved);
+            System.arraycopy(counts, index + 1, counts, index, moved);
+            System.arraycopy(lastPositions, index + 1, lastPositions, index, moved);
+            System.arraycopy(offsets, index + 1, offsets, index, moved);
+            size--;
+
+            for (int i = index; i < size; i++)
+            {
+                offsets[i] -= end - start;
+            }
+        }
+
+        /**
+         * Adds every document and position of another word's postings
+         *
+         * @param other     the postings to copy from
+         * @param mapping   the ID in this index of every document ID in the other index
+         */
+        private void addAll(Postings other, int[] mapping)
+        {
+            for (int i = 0; i < other.size; i++)
+            {
+                int document = mapping[other.documents[i]];
+
+                if (size == 0 || documents[size - 1] < document)
+                {
+                    int start = other.offsets[i];
+                    int end = other.end(i);
+
+                    append(document, other.counts[i], other.lastPositions[i]);
+                    ensureBytes(end - start);
+                    System.arraycopy(other.bytes, start, bytes, length, end - start);
+                    length += end - start;
+                }
+
+                else
+                {
+                    for (int position : other.positions(i))
+                    {
+                        add(document, position);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the index of a document within the postings
+         *
+         * @param document  the ID of the document
+         * @return          the index of the document, or a negative value if it is not found
+         */
+        private int indexOf(int document)
+        {
+            return Arrays.binarySearch(documents, 0, size, document);
+        }
+
+        /**
+         * Returns the offset in bytes where the positions of a document end
+         *
+         * @param index the index of the document within the postings
+         * @return      the end offset
+         */
+        private int end(int index)
+        {
+            return index + 1 < size ? offsets[index + 1] : length;
+        }
+
+        /**
+         * Decodes the positions of a document
+         *
+         * @param index the index of the document within the postings
+         * @return      the positions in ascending order
+         */
+        private int[] positions(int index)
+        {
+            int[] positions = new int[counts[index]];
+            int offset = offsets[index];
+            int position = 0;
+
+            for (int i = 0; i < positions.length; i++)
+            {
+                int delta = 0;
+                int shift = 0;
+                byte current;
+
+                do
+                {
+                    current = bytes[offset++];
+                    delta |= (current & 0x7F) << shift;
+                    shift += 7;
+                }
+                while (current < 0);
+
+                position += delta;
+                positions[i] = position;
+            }
+
+            return positions;
+        }
+
+        /**
+         * Adds a new document after every other document, without any positions
+         *
+         * @param document      the ID of the document
+         * @param count         the number of positions the document will have
+         * @param lastPosition  the largest position the document will have
+         */
+        private void append(int document, int count, int lastPosition)
+        {
+            if (size == documents.length)
+            {
+                int capacity = size + (size >> 1) + 1;
+
+                documents = Arrays.copyOf(documents, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                lastPositions = Arrays.copyOf(lastPositions, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+            }
+
+            documents[size] = document;
+            counts[size] = count;
+            lastPositions[size] = lastPosition;
+            offsets[size] = length;
+            size++;
+        }
+
+        /**
+         * Adds a position that is out of order by decoding and re-encoding the positions of its document
+         *
+         * @param document  the ID of the document
+         * @param position  the position of the word in the document
+         * @return          whether the document was not in the postings before
+         */
+        private boolean insert(int document, int position)
+        {
+            int index = indexOf(document);
+            int[] positions;
+
+            if (index >= 0)
+            {
+                int[] existing = positions(index);
+                int found = Arrays.binarySearch(existing, position);
+
+                if (found >= 0)
+                {
+                    return false;
+                }
+
+                found = -found - 1;
+                positions = new int[existing.length + 1];
+                System.arraycopy(existing, 0, positions, 0, found);
+                positions[found] = position;
+                System.arraycopy(existing, found, positions, found + 1, existing.length - found);
+            }
+
+            else
+            {
+                index = -index - 1;
+                append(0, 0, 0);
+
+                System.arraycopy(documents, index, documents, index + 1, size - index - 1);
+                System.arraycopy(counts, index, counts, index + 1, size - index - 1);
+                System.arraycopy(lastPositions, index, lastPositions, index + 1, size - index - 1);
+                System.arraycopy(offsets, index, offsets, index + 1, size - index - 1);
+
+                documents[index] = document;
+                offsets[index] = index + 1 < size ? offsets[index + 1] : length;
+                counts[index] = 0;
+                positions = new int[] {position};
+            }
+
+            boolean isNewDocument = counts[index] == 0;
+            replace(index, positions);
+
+            return isNewDocument;
+        }
+
+        /**
+         * Replaces the encoded positions of a document
+         *
+         * @param index     the index of the document within the postings
+         * @param positions the new positions in ascending order
+         */
+        private void replace(int index, int[] positions)
+        {
+            int start = offsets[index];
+            int end = end(index);
+
+            int tail = length - end;
+            byte[] suffix = Arrays.copyOfRange(bytes, end, length);
+
+            length = start;
+
+            int previous = 0;
+
+            for (int position : positions)
+            {
+                writeVarint(position - previous);
+                previous = position;
+            }
+
+            int shift = length - end;
+
+            ensureBytes(tail);
+            System.arraycopy(suffix, 0, bytes, length, tail);
+            length += tail;
+
+            for (int i = index + 1; i < size; i++)
+            {
+                offsets[i] += shift;
+            }
+
+            counts[index] = positions.length;
+            lastPositions[index] = positions[positions.length - 1];
+        }
+
+        /**
+         * Makes sure there is room for more bytes
+         *
+         * @param needed    the number of bytes about to be written
+         */
+        private void ensureBytes(int needed)
+        {
+            if (length + needed > bytes.length)
+            {
+                bytes = Arrays.copyOf(bytes, Math.max(length + needed, bytes.length + (bytes.length >> 1)));
+            }
+        }
+
+        /**
+         * Writes a non-negative integer as a variable-length sequence of 7-bit groups
+         *
+         * @param value the value to write
+         */
+        private void writeVarint(int value)
+        {
+            ensureBytes(5);
+
+            while ((value & ~0x7F) != 0)
+            {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * Initializes a dictionary from each word to its term ID
+     */
+    private final TermDictionary terms;
+
+    /**
+     * Initializes a list of the postings of every term ID
+     */
+    private final ArrayList<Postings> postings;
+
+    /**
+     * Initializes a list of the location of every document ID
+     */
+    private final ArrayList<String> locations;
+
+    /**
+     * Initializes a map from each location to its document ID
+     */
+    private final HashMap<String, Integer> documentIds;
+
+    /**
+     * Initializes an array of the word count of every document ID
+     */
+    private int[] wordCounts;
+
+    /**
+     * Initializes an array of the term IDs of every document ID, in the order they were added. A term ID may
+     * be listed more than once for the same document.
+     */
+    private int[][] documentTerms;
+
+    /**
+     * Initializes an array of the number of term IDs listed for every document ID
+     */
+    private int[] documentTermCounts;
+
+    /**
+     * Initializes a stack of the document IDs of removed locations, which new locations are given first
+     */
+    private int[] freeDocuments;
+
+    /**
+     * Initializes the number of free document IDs
+     */
+    private int freeDocumentCount;
+
+    /**
+     * Zero-arg constructor which implements an empty index
+     */
+    public CompactInvertedIndex()
+    {
+        super();
+        terms = new TermDictionary();
+        postings = new ArrayList<>();
+        locations = new ArrayList<>();
+        documentIds = new HashMap<>();
+        wordCounts = new int[16];
+        documentTerms = new int[16][];
+        documentTermCounts = new int[16];
+        freeDocuments = new int[16];
+        freeDocumentCount = 0;
+    }
+
+    /**
+     * Returns the document ID of a location, assigning the ID of a removed location or a new one if necessary
+     *
+     * @param location  the location of the document
+     * @return          the document ID
+     */
+    private int documentId(String location)
+    {
+        Integer id = documentIds.get(location);
+
+        if (id == null)
+        {
+            if (freeDocumentCount > 0)
+            {
+                id = freeDocuments[--freeDocumentCount];
+                locations.set(id, location);
+            }
+
+            else
+            {
+                id = locations.size();
+                locations.add(location);
+
+                if (id == wordCounts.length)
+                {
+                    wordCounts = Arrays.copyOf(wordCounts, id * 2);
+                    documentTerms = Arrays.copyOf(documentTerms, id * 2);
+                    documentTermCounts = Arrays.copyOf(documentTermCounts, id * 2);
+                }
+            }
+
+            documentIds.put(location, id);
+            documentTerms[id] = new int[4];
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the term ID of a word, adding the word and its empty postings if necessary. A new word may be
+     * given the term ID of a removed word, whose postings were cleared when it was removed.
+     *
+     * @param word  the word
+     * @return      the term ID of the word
+     */
+    private int termId(String word)
+    {
+        int term = terms.add(word);
+
+        if (term == postings.size())
+        {
+            postings.add(new Postings());
+        }
+
+        else if (postings.get(term) == null)
+        {
+            postings.set(term, new Postings());
+        }
+
+        return term;
+    }
+
+    /**
+     * Records that a word appears in a document, so the word is visited when the document is removed
+     *
+     * @param document  the ID of the document
+     * @param term      the term ID of the word
+     */
+    private void addDocumentTerm(int document, int term)
+    {
+        int count = documentTermCounts[document];
+
+        if (count == documentTerms[document].length)
+        {
+            documentTerms[document] = Arrays.copyOf(documentTerms[document], count * 2);
+        }
+
+        documentTerms[document][count] = term;
+        documentTermCounts[document] = count + 1;
+    }
+
+    /**
+     * Returns the postings of a word without adding it
+     *
+     * @param word  the word
+     * @return      the postings of the word, or null if the word is not in the index
+     */
+    private Postings find(String word)
+    {
+        int term = terms.get(word);
+
+        return term < 0 ? null : postings.get(term);
+    }
+
+    /**
+	 * Returns an unmodifiable set of the words in the InvertedIndex
+
+	 * @return  a set with the words (keys) of the InvertedIndex
+	 */
+    @Override
+    public Set<String> getWords()
+    {
+        return terms.asSet();
+    }
+
+    /**
+     * Returns an unmodifiable set of the locations of a word in the InvertedIndex
+     *
+	 * @param word  the word that the locations pertain to
+	 * @return      a set with the locations associated with the word
+	 */
+    @Override
+    public Set<String> getLocations(String word)
+    {
+        Postings wordPostings = find(word);
+
+        if (wordPostings == null)
+        {
+            return Collections.emptySet();
+        }
+
+        TreeSet<String> setOfLocations = new TreeSet<>();
+
+        for (int i = 0; i < wordPostings.size; i++)
+        {
+            setOfLocations.add(locations.get(wordPostings.documents[i]));
+        }
+
+        return Collections.unmodifiableSet(setOfLocations);
+    }
+
+    /**
+	 * Returns an unmodifiable set of the positions of a word at a location in the InvertedIndex
+	 *
+	 * @param word      the word that the locations pertain to
+	 * @param location  the location the set pertains to
+	 * @return          a set with the positions associated with the word at a locations
+	 */
+    @Override
+    public Set<Integer> getPositions(String word, String location)
+    {
+        Postings wordPostings = find(word);
+        Integer id = documentIds.get(location);
+
+        if (wordPostings == null || id == null)
+        {
+            return Collections.emptySet();
+        }
+
+        int index = wordPostings.indexOf(id);
+
+        if (index < 0)
+        {
+            return Collections.emptySet();
+        }
+
+        TreeSet<Integer> setOfPositions = new TreeSet<>();
+
+        for (int position : wordPostings.positions(index))
+        {
+            setOfPositions.add(position);
+        }
+
+        return Collections.unmodifiableSet(setOfPositions);
+    }
+
+    /**
+	 * Counts a specific location for a text file
+	 *
+	 * @param location  the location to be counted at
+	 * @return          the count at the specified location
+	 */
+    @Override
+    public Integer getLocationCount(String location)
+    {
+        Integer id = documentIds.get(location);
+
+        return id == null ? null : wordCounts[id];
+    }
+
+    /**
+	 * Adds a word to the InvertedIndex along with its accompanying attributes
+	 *
+	 * @param word     the word to add
+	 * @param path     the filepath to be added from
+	 * @param location the location in the file where the word was found
+	 */
+    @Override
+    public void add(String word, String path, int location)
+    {
+        int id = documentId(path);
+        int term = termId(word);
+
+        if (postings.get(term).add(id, location))
+        {
+            addDocumentTerm(id, term);
+        }
+
+        if (wordCounts[id] < location)
+        {
+            wordCounts[id] = location;
+        }
+    }
+
+    /**
+	 * Adds all words to the InvertedIndex from another. Postings are copied without being decoded when
+     * the other index is also a CompactInvertedIndex.
+	 *
+	 * @param originIndex     the index to copy from
+	 */
+    @Override
+    public void addAll(InvertedIndex originIndex)
+    {
+        if (!(originIndex instanceof CompactInvertedIndex))
+        {
+            for (String word : originIndex.getWords())
+            {
+                for (String location : originIndex.getLocations(word))
+                {
+                    for (int position : originIndex.getPositions(word, location))
+                    {
+                        add(word, location, position);
+                    }
+
+                    int id = documentIds.get(location);
+                    wordCounts[id] = Math.max(wordCounts[id], originIndex.getLocationCount(location));
+                }
+            }
+
+            return;
+        }
+
+        CompactInvertedIndex origin = (CompactInvertedIndex) originIndex;
+        int[] mapping = new int[origin.locations.size()];
+
+        for (int i = 0; i < mapping.length; i++)
+        {
+            if (origin.locations.get(i) != null)
+            {
+                mapping[i] = documentId(origin.locations.get(i));
+                wordCounts[mapping[i]] = Math.max(wordCounts[mapping[i]], origin.wordCounts[i]);
+            }
+        }
+
+        TermDictionary.TermIterator iterator = origin.terms.iterator("");
+
+        while (iterator.hasNext())
+        {
+            int term = termId(iterator.next());
+            Postings originPostings = origin.postings.get(iterator.termId());
+
+            postings.get(term).addAll(originPostings, mapping);
+
+            for (int i = 0; i < originPostings.size; i++)
+            {
+                addDocumentTerm(mapping[originPostings.documents[i]], term);
+            }
+        }
+    }
+
+    /**
+	 * Removes every word and the word count of a location, visiting only the postings of the words found at
+	 * that location. Words left without any locations are removed from the dictionary.
+	 *
+	 * @param location  the location to be removed
+	 * @return          whether the location was in the InvertedIndex
+	 */
+    @Override
+    public boolean removeLocation(String location)
+    {
+        Integer id = documentIds.remove(location);
+
+        if (id == null)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < documentTermCounts[id]; i++)
+        {
+            int term = documentTerms[id][i];
+            Postings termPostings = postings.get(term);
+
+            if (termPostings == null)
+            {
+                continue;
+            }
+
+            termPostings.remove(id);
+
+            if (termPostings.size == 0)
+            {
+                terms.remove(term);
+                postings.set(term, null);
+            }
+        }
+
+        locations.set(id, null);
+        wordCounts[id] = 0;
+        documentTerms[id] = null;
+        documentTermCounts[id] = 0;
+
+        if (freeDocumentCount == freeDocuments.length)
+        {
+            freeDocuments = Arrays.copyOf(freeDocuments, freeDocumentCount * 2);
+        }
+
+        freeDocuments[freeDocumentCount++] = id;
+
+        return true;
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word or not
+	 *
+	 * @param word     the word to check
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word)
+    {
+        return terms.contains(word);
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word, String location)
+    {
+        Postings wordPostings = find(word);
+        Integer id = documentIds.get(location);
+
+        return wordPostings != null && id != null && wordPostings.indexOf(id) >= 0;
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location and position or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+     * @param position the position to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word, String location, int position)
+    {
+        Postings wordPostings = find(word);
+        Integer id = documentIds.get(location);
+
+        if (wordPostings == null || id == null)
+        {
+            return false;
+        }
+
+        int index = wordPostings.indexOf(id);
+
+        return index >= 0 && Arrays.binarySearch(wordPostings.positions(index), position) >= 0;
+    }
+
+    /**
+	 * Outputs a single word of the InvertedIndex with its locations and positions
+	 *
+	 * @param word      the word to be outputted
+	 * @param writer    the writer the word is streamed to
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void termWriter(String word, JsonStreamWriter writer) throws IOException
+    {
+        writer.writeTerm(word, this);
+    }
+
+    /**
+	 * Creates a writer for the -counts flag and outputs to the file passed
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void dataCountWriter(Path path) throws IOException
+    {
+        TreeMap<String, Integer> dataCountTreeMap = new TreeMap<>();
+
+        for (int i = 0; i < locations.size(); i++)
+        {
+            if (locations.get(i) != null)
+            {
+                dataCountTreeMap.put(locations.get(i), wordCounts[i]);
+            }
+        }
+
+        SimpleJsonWriter.asObject(dataCountTreeMap, path);
+    }
+
+    /**
+     * Adds the documents of a single word's postings to the search results
+     *
+     * @param wordPostings  the postings of the word to be searched
+     * @param searchResults a list that stores search results
+     * @param cachedResults an array that stores search results by document ID
+     */
+    private void search(Postings wordPostings, ArrayList<InvertedIndex.Result> searchResults, InvertedIndex.Result[] cachedResults)
+    {
+        for (int i = 0; i < wordPostings.size; i++)
+        {
+            int id = wordPostings.documents[i];
+
+            if (cachedResults[id] != null)
+            {
+                cachedResults[id].update(wordPostings.counts[i]);
+            }
+
+            else
+            {
+                Result searchResult = new Result(locations.get(id), wordPostings.counts[i], wordCounts[id]);
+                searchResults.add(searchResult);
+                cachedResults[id] = searchResult;
+            }
+        }
+    }
+
+    /**
+	 * Searches for any word stem in the InvertedIndex that starts with a query word
+	 *
+	 * @param setOfQueries  a set of the queries to be searched for
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return              a list containing the contents of the set with any word stem that starts with a query word
+	 */
+    @Override
+    public ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries, int limit)
+    {
+        InvertedIndex.Result[] cachedResults = new InvertedIndex.Result[locations.size()];
+        ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
+
+        for (String query : setOfQueries)
+        {
+            terms.forEachPrefix(query, term -> search(postings.get(term), searchResults, cachedResults));
+        }
+
+        return rank(searchResults, limit);
+    }
+
+    /**
+	 * Generates search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return                  a list of search results
+	 */
+    @Override
+    public ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries, int limit)
+    {
+        InvertedIndex.Result[] cachedResults = new InvertedIndex.Result[locations.size()];
+        ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
+
+        for (String word : setOfQueries)
+        {
+            Postings wordPostings = find(word);
+
+            if (wordPostings != null)
+            {
+                search(wordPostings, searchResults, cachedResults);
+            }
+        }
+
+        return rank(searchResults, limit);
+    }
+
+    /**
+     * @return  a visible output of the InvertedIndex
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("{");
+
+        for (String word : terms.asSet())
+        {
+            TreeMap<String, Set<Integer>> locationMap = new TreeMap<>();
+
+            for (String location : getLocations(word))
+            {
+                locationMap.put(location, getPositions(word, location));
+            }
+
+            if (builder.length() > 1)
+            {
+                builder.append(", ");
+            }
+
+            builder.append(word).append('=').append(locationMap);
+        }
+
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,596 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Implements a Thread-Safe version of the InvertedIndex class without a single global lock. Words are kept in
+ * a concurrent sorted map and the locations of each word are guarded by one of a fixed number of locks chosen
+ * by the hash of the word, so writes to different words proceed in parallel and readers only wait on writes to
+ * the words they read. Searches are consistent per word rather than across the whole index.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class ConcurrentInvertedIndex implements ThreadSafeIndexInterface
+{
+    /**
+     * The default number of locks the words are striped across
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * Initializes a concurrent map from each word to its locations and positions
+     */
+    private final ConcurrentSkipListMap<String, TreeMap<String, TreeSet<Integer>>> invertedIndexMap;
+
+    /**
+     * Initializes a concurrent map from each location to its word count
+     */
+    private final ConcurrentSkipListMap<String, Integer> dataCountMap;
+
+    /**
+     * Initializes a concurrent forward index from each location to the words found there
+     */
+    private final ConcurrentHashMap<String, Set<String>> forwardIndexMap;
+
+    /**
+     * Initializes the locks that guard the locations of the words hashed to them
+     */
+    private final SimpleReadWriteLock[] stripes;
+
+    /**
+     * Zero-arg Constructor which implements the default number of locks
+     */
+    public ConcurrentInvertedIndex()
+    {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Single-arg Constructor which implements the given number of locks
+     *
+     * @param stripeCount   the number of locks the words are striped across
+     */
+    public ConcurrentInvertedIndex(int stripeCount)
+    {
+        invertedIndexMap = new ConcurrentSkipListMap<>();
+        dataCountMap = new ConcurrentSkipListMap<>();
+        forwardIndexMap = new ConcurrentHashMap<>();
+        stripes = new SimpleReadWriteLock[Math.max(1, stripeCount)];
+
+        for (int i = 0; i < stripes.length; i++)
+        {
+            stripes[i] = new SimpleReadWriteLock();
+        }
+    }
+
+    /**
+     * Returns the lock that guards the locations of a word
+     *
+     * @param word  the word to be guarded
+     * @return      the lock for that word
+     */
+    private SimpleReadWriteLock stripe(String word)
+    {
+        return stripes[(word.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    /**
+	 * Returns an unmodifiable set of the words in the InvertedIndex. The set is weakly consistent and may be
+     * iterated while words are being added.
+
+	 * @return  a set with the words (keys) of the InvertedIndex
+	 */
+    @Override
+    public Set<String> getWords()
+    {
+        return Collections.unmodifiableSet(invertedIndexMap.keySet());
+    }
+
+    /**
+     * Returns an unmodifiable copy of the locations of a word in the InvertedIndex
+     *
+	 * @param word  the word that the locations pertain to
+	 * @return      a set with the locations associated with the word
+	 */
+    @Override
+    public Set<String> getLocations(String word)
+    {
+        SimpleReadWriteLock lock = stripe(word);
+        lock.readLock().lock();
+
+        try
+        {
+            TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+            if (locations == null)
+            {
+                return Collections.emptySet();
+            }
+
+            return Collections.unmodifiableSet(new TreeSet<>(locations.keySet()));
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Returns an unmodifiable copy of the positions of a word at a location in the InvertedIndex
+	 *
+	 * @param word      the word that the locations pertain to
+	 * @param location  the location the set pertains to
+	 * @return          a set with the positions associated with the word at a locations
+	 */
+    @Override
+    public Set<Integer> getPositions(String word, String location)
+    {
+        SimpleReadWriteLock lock = stripe(word);
+        lock.readLock().lock();
+
+        try
+        {
+            TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+            if (locations == null || !locations.containsKey(location))
+            {
+                return Collections.emptySet();
+            }
+
+            return Collections.unmodifiableSet(new TreeSet<>(locations.get(location)));
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Counts a specific location for a text file
+	 *
+	 * @param location  the location to be counted at
+	 * @return          the count at the specified location
+	 */
+    @Override
+    public Integer getLocationCount(String location)
+    {
+        return dataCountMap.get(location);
+    }
+
+    /**
+	 * Adds a word to the InvertedIndex along with its accompanying attributes
+	 *
+	 * @param word     the word to add
+	 * @param path     the filepath to be added from
+	 * @param location the location in the file where the word was found
+	 */
+    @Override
+    public void add(String word, String path, int location)
+    {
+        dataCountMap.merge(path, location, Math::max);
+
+        SimpleReadWriteLock lock = stripe(word);
+        lock.writeLock().lock();
+
+        try
+        {
+            TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+            if (locations == null)
+            {
+                locations = new TreeMap<>();
+                locations.put(path, new TreeSet<>());
+                locations.get(path).add(location);
+                invertedIndexMap.put(word, locations);
+                addForward(path, word);
+            }
+
+            else
+            {
+                if (locations.putIfAbsent(path, new TreeSet<>()) == null)
+                {
+                    addForward(path, word);
+                }
+
+                locations.get(path).add(location);
+            }
+        }
+
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+	 * Adds all words to the InvertedIndex from another, locking each word separately
+	 *
+	 * @param originIndex     the index to copy from
+	 */
+    @Override
+    public void addAll(InvertedIndex originIndex)
+    {
+        HashSet<String> setOfLocations = new HashSet<>();
+
+        for (String word : originIndex.getWords())
+        {
+            SimpleReadWriteLock lock = stripe(word);
+            lock.writeLock().lock();
+
+            try
+            {
+                TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+                boolean isNewWord = locations == null;
+
+                if (isNewWord)
+                {
+                    locations = new TreeMap<>();
+                }
+
+                for (String location : originIndex.getLocations(word))
+                {
+                    Set<Integer> positions = originIndex.getPositions(word, location);
+
+                    // word counts are published first so searches never find a location without one
+                    if (setOfLocations.add(location))
+                    {
+                        dataCountMap.merge(location, originIndex.getLocationCount(location), Math::max);
+                    }
+
+                    if (locations.containsKey(location))
+                    {
+                        locations.get(location).addAll(positions);
+                    }
+
+                    else
+                    {
+                        locations.put(location, new TreeSet<>(positions));
+                        addForward(location, word);
+                    }
+                }
+
+                if (isNewWord)
+                {
+                    invertedIndexMap.put(word, locations);
+                }
+            }
+
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Records that a word appears at a location, so the word is visited when the location is removed
+     *
+     * @param location  the location
+     * @param word      the word found there
+     */
+    private void addForward(String location, String word)
+    {
+        forwardIndexMap.computeIfAbsent(location, key -> ConcurrentHashMap.newKeySet()).add(word);
+    }
+
+    /**
+	 * Removes every word and the word count of a location, locking each of its words separately. The word
+	 * count is removed last, so searches never find a location without one. A location should not be removed
+	 * and added by different threads at the same time.
+	 *
+	 * @param location  the location to be removed
+	 * @return          whether the location was in the InvertedIndex
+	 */
+    @Override
+    public boolean removeLocation(String location)
+    {
+        Set<String> words = forwardIndexMap.remove(location);
+
+        if (words != null)
+        {
+            for (String word : words)
+            {
+                SimpleReadWriteLock lock = stripe(word);
+                lock.writeLock().lock();
+
+                try
+                {
+                    TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+                    if (locations != null && locations.remove(location) != null && locations.isEmpty())
+                    {
+                        invertedIndexMap.remove(word);
+                    }
+                }
+
+                finally
+                {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+
+        return dataCountMap.remove(location) != null || words != null;
+    }
+
+    /**
+	 * Replaces the words of a location with those of a newly built index. Like every other search of this
+	 * index, a search running at the same time is only consistent per word, so it may miss the location.
+	 *
+	 * @param location  the location to be replaced
+	 * @param document  the index holding the new words of the location
+	 */
+    @Override
+    public void replaceLocation(String location, InvertedIndex document)
+    {
+        removeLocation(location);
+        addAll(document);
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word or not
+	 *
+	 * @param word     the word to check
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word)
+    {
+        return invertedIndexMap.containsKey(word);
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word, String location)
+    {
+        SimpleReadWriteLock lock = stripe(word);
+        lock.readLock().lock();
+
+        try
+        {
+            TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+            return locations != null && locations.containsKey(location);
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location and position or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+     * @param position the position to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word, String location, int position)
+    {
+        SimpleReadWriteLock lock = stripe(word);
+        lock.readLock().lock();
+
+        try
+        {
+            TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+            return locations != null && locations.containsKey(location) && locations.get(location).contains(position);
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Outputs the contents of the InvertedIndex in the JSON format, locking one word at a time.
+	 *
+	 * @param path      the filepath of the file to be outputted
+	 * @param compact   whether newlines and indents are left out
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void invertedIndexWriter(Path path, boolean compact) throws IOException
+    {
+        try (JsonStreamWriter writer = JsonStreamWriter.open(path, compact))
+        {
+            writer.startInvertedIndex();
+
+            for (String word : invertedIndexMap.keySet())
+            {
+                termWriter(word, writer);
+            }
+
+            writer.endInvertedIndex();
+        }
+    }
+
+    /**
+	 * Outputs a single word of the InvertedIndex with its locations and positions while holding the lock for that word
+	 *
+	 * @param word      the word to be outputted
+	 * @param writer    the writer the word is streamed to
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void termWriter(String word, JsonStreamWriter writer) throws IOException
+    {
+        SimpleReadWriteLock lock = stripe(word);
+        lock.readLock().lock();
+
+        try
+        {
+            writer.writeTerm(word, invertedIndexMap.get(word));
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Outputs the contents of the InvertedIndex as a segment file, locking one word at a time.
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void segmentWriter(Path path) throws IOException
+    {
+        SegmentInvertedIndex.write(this, path);
+    }
+
+    /**
+	 * Creates a writer for the -counts flag and outputs to the file passed
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void dataCountWriter(Path path) throws IOException
+    {
+        SimpleJsonWriter.asObject(dataCountMap, path);
+    }
+
+    /**
+     * Adds the locations of a single word to the search results while holding the lock for that word
+     *
+     * @param word          the word to be searched
+     * @param searchResults a list that stores search results
+     * @param cachedResults a map that stores search results alongside their location
+     */
+    private void search(String word, ArrayList<InvertedIndex.Result> searchResults, HashMap<String, InvertedIndex.Result> cachedResults)
+    {
+        SimpleReadWriteLock lock = stripe(word);
+        lock.readLock().lock();
+
+        try
+        {
+            TreeMap<String, TreeSet<Integer>> locations = invertedIndexMap.get(word);
+
+            if (locations == null)
+            {
+                return;
+            }
+
+            for (Map.Entry<String, TreeSet<Integer>> entry : locations.entrySet())
+            {
+                InvertedIndex.Result cached = cachedResults.get(entry.getKey());
+
+                if (cached != null)
+                {
+                    cached.update(entry.getValue().size());
+                }
+
+                else
+                {
+                    InvertedIndex.Result searchResult = new InvertedIndex.Result(entry.getKey(), entry.getValue().size(), dataCountMap.get(entry.getKey()));
+                    searchResults.add(searchResult);
+                    cachedResults.put(entry.getKey(), searchResult);
+                }
+            }
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Searches for any word stem in the InvertedIndex that starts with a query word
+	 *
+	 * @param setOfQueries  a set of the queries to be searched for
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return              a list containing the contents of the set with any word stem that starts with a query word
+	 */
+    @Override
+    public ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries, int limit)
+    {
+        HashMap<String, InvertedIndex.Result> cachedResults = new HashMap<>();
+        ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
+
+        for (String query : setOfQueries)
+        {
+            for (String word : invertedIndexMap.tailMap(query).keySet())
+            {
+                if (!word.startsWith(query))
+                {
+                    break;
+                }
+
+                search(word, searchResults, cachedResults);
+            }
+        }
+
+        return InvertedIndex.rank(searchResults, limit);
+    }
+
+    /**
+	 * Generates search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return                  a list of search results
+	 */
+    @Override
+    public ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries, int limit)
+    {
+        HashMap<String, InvertedIndex.Result> cachedResults = new HashMap<>();
+        ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
+
+        for (String word : setOfQueries)
+        {
+            search(word, searchResults, cachedResults);
+        }
+
+        return InvertedIndex.rank(searchResults, limit);
+    }
+
+    /**
+     * @return  a visible output of the InvertedIndex
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("{");
+
+        for (String word : invertedIndexMap.keySet())
+        {
+            SimpleReadWriteLock lock = stripe(word);
+            lock.readLock().lock();
+
+            try
+            {
+                if (builder.length() > 1)
+                {
+                    builder.append(", ");
+                }
+
+                builder.append(word).append('=').append(invertedIndexMap.get(word));
+            }
+
+            finally
+            {
+                lock.readLock().unlock();
+            }
+        }
+
+        return builder.append('}').toString();
+    }
+}
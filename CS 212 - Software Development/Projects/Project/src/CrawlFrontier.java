@@ -0,0 +1,232 @@
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Keeps track of the URLs a WebCrawler has claimed. A URL is claimed at most once and only while fewer than
+ * the limit have been claimed, so no page is fetched twice and the limit is never exceeded. Claims are made in
+ * the order links are discovered and the fetcher starts requests in the order they are made, which keeps the
+ * crawl breadth-first. URLs are compared by their cleaned text, because {@link URL#equals(Object)} resolves
+ * host names and a list scan would make every claim slower than the last.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class CrawlFrontier
+{
+    /**
+     * A Bloom filter that records URLs in a fixed number of bits, at the cost of sometimes reporting a URL that was
+     * never added as already seen. Adding and testing a URL is atomic, because equal URLs always use the same lock.
+     */
+    private static class BloomFilter
+    {
+        /**
+         * The chance of a false positive the filter is sized for
+         */
+        private static final double FALSE_POSITIVE_RATE = 0.001;
+
+        /**
+         * The number of locks guarding the bits
+         */
+        private static final int STRIPES = 64;
+
+        /**
+         * The bits of the filter
+         */
+        private final AtomicLongArray bits;
+
+        /**
+         * The number of bits in the filter
+         */
+        private final long size;
+
+        /**
+         * The number of bits set for each URL
+         */
+        private final int hashes;
+
+        /**
+         * The locks that make adding a URL atomic
+         */
+        private final Object[] stripes;
+
+        /**
+         * Single-arg constructor which implements a filter sized for the number of URLs
+         *
+         * @param expected  the number of URLs expected to be added
+         */
+        public BloomFilter(int expected)
+        {
+            long wanted = (long) Math.ceil(-Math.max(1, expected) * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (wanted + 63) / 64));
+
+            bits = new AtomicLongArray(words);
+            size = (long) words * 64;
+            hashes = Math.max(1, (int) Math.round((double) size / Math.max(1, expected) * Math.log(2)));
+
+            stripes = new Object[STRIPES];
+
+            for (int i = 0; i < STRIPES; i++)
+            {
+                stripes[i] = new Object();
+            }
+        }
+
+        /**
+         * Adds the key to the filter
+         *
+         * @param key   the key to be added
+         * @return      true if the key was not seen before
+         */
+        public boolean add(String key)
+        {
+            long first = 0xcbf29ce484222325L;
+
+            for (int i = 0; i < key.length(); i++)
+            {
+                first = (first ^ key.charAt(i)) * 0x100000001b3L;
+            }
+
+            long second = first * 0x9e3779b97f4a7c15L;
+            second = (second ^ (second >>> 31)) | 1;
+
+            boolean added = false;
+
+            synchronized (stripes[(int) ((first >>> 32) & (STRIPES - 1))])
+            {
+                for (int i = 0; i < hashes; i++)
+                {
+                    long bit = Math.floorMod(first + i * second, size);
+                    int word = (int) (bit >>> 6);
+                    long mask = 1L << bit;
+                    long current = bits.get(word);
+
+                    while ((current & mask) == 0)
+                    {
+                        if (bits.compareAndSet(word, current, current | mask))
+                        {
+                            added = true;
+                            break;
+                        }
+
+                        current = bits.get(word);
+                    }
+                }
+            }
+
+            return added;
+        }
+    }
+
+    /**
+     * The number of URLs that can be claimed
+     */
+    private final int limit;
+
+    /**
+     * The number of URLs claimed
+     */
+    private final AtomicInteger claimed;
+
+    /**
+     * The cleaned text of every URL seen, or null if a Bloom filter is used
+     */
+    private final Set<String> visited;
+
+    /**
+     * The Bloom filter recording every URL seen, or null if a set is used
+     */
+    private final BloomFilter filter;
+
+    /**
+     * Single-arg constructor which implements a frontier that remembers every URL exactly
+     *
+     * @param limit the number of URLs that can be claimed
+     */
+    public CrawlFrontier(int limit)
+    {
+        this(limit, false);
+    }
+
+    /**
+     * Multi-arg constructor which implements a frontier
+     *
+     * @param limit the number of URLs that can be claimed
+     * @param bloom whether URLs are remembered in a Bloom filter, which uses a fixed amount of memory but
+     *              skips about one in a thousand new URLs as if they had been seen
+     */
+    public CrawlFrontier(int limit, boolean bloom)
+    {
+        this.limit = limit;
+        claimed = new AtomicInteger();
+        visited = bloom ? null : ConcurrentHashMap.newKeySet();
+        filter = bloom ? new BloomFilter(limit) : null;
+    }
+
+    /**
+     * Claims the URL for crawling if it was not seen before and the limit has not been reached
+     *
+     * @param cleaned   the cleaned URL
+     * @return          true if the URL was claimed and should be fetched
+     */
+    public boolean claim(URL cleaned)
+    {
+        if (claimed.get() >= limit)
+        {
+            return false;
+        }
+
+        String key = cleaned.toString();
+
+        if (filter != null ? !filter.add(key) : !visited.add(key))
+        {
+            return false;
+        }
+
+        int current;
+
+        do
+        {
+            current = claimed.get();
+
+            if (current >= limit)
+            {
+                return false;
+            }
+        }
+        while (!claimed.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    /**
+     * Returns the number of URLs claimed
+     *
+     * @return  the number of URLs
+     */
+    public int size()
+    {
+        return claimed.get();
+    }
+
+    /**
+     * Returns the number of URLs that can be claimed
+     *
+     * @return  the number of URLs
+     */
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Returns whether the limit has been reached
+     *
+     * @return  true if no more URLs can be claimed
+     */
+    public boolean isFull()
+    {
+        return claimed.get() >= limit;
+    }
+}
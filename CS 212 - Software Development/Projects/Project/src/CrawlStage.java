@@ -0,0 +1,285 @@
+import java.util.concurrent.*;
+
+/**
+ * One stage of the WebCrawler pipeline. A stage runs its tasks on its own WorkQueue and holds at most a fixed
+ * number of tasks at a time, so a fast stage cannot bury a slow one under queued pages. Submitting to a full
+ * stage waits for room, except from a thread that is already running a stage task: that thread runs the new
+ * task itself, so stages that feed each other can never deadlock. A stage without a WorkQueue only records
+ * metrics for work done elsewhere, such as the asynchronous fetches.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class CrawlStage
+{
+    /**
+     * The default number of tasks a stage can hold at a time
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Whether the current thread is running a stage task
+     */
+    private static final ThreadLocal<Boolean> RUNNING_TASK = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * The name of the stage used in reports
+     */
+    private final String name;
+
+    /**
+     * The group of the queue running the tasks of the stage, or null if the work is done elsewhere
+     */
+    private final WorkQueue.TaskGroup group;
+
+    /**
+     * The room left in the stage
+     */
+    private final Semaphore room;
+
+    /**
+     * The number of tasks that were submitted
+     */
+    private long submitted;
+
+    /**
+     * The number of tasks that were completed
+     */
+    private long completed;
+
+    /**
+     * The number of tasks run by the submitting thread because the stage was full
+     */
+    private long callerRuns;
+
+    /**
+     * The largest number of tasks held at a time
+     */
+    private long maxDepth;
+
+    /**
+     * The total time spent running tasks in nanoseconds
+     */
+    private long busyNanos;
+
+    /**
+     * The time the first task was submitted, or -1 if none was
+     */
+    private long firstNanos;
+
+    /**
+     * The time the last task was completed
+     */
+    private long lastNanos;
+
+    /**
+     * Single-arg constructor which implements a stage that only records metrics
+     *
+     * @param name  the name of the stage
+     */
+    public CrawlStage(String name)
+    {
+        this(name, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Multi-arg constructor which implements a stage running its tasks on the queue
+     *
+     * @param name      the name of the stage
+     * @param queue     the queue running the tasks
+     * @param capacity  the number of tasks the stage can hold at a time
+     */
+    public CrawlStage(String name, WorkQueue queue, int capacity)
+    {
+        this.name = name;
+        this.group = queue != null ? queue.newGroup() : null;
+        this.room = new Semaphore(Math.max(1, capacity));
+        firstNanos = -1;
+    }
+
+    /**
+     * Adds a task to the stage, waiting for room if the stage is full
+     *
+     * @param task  the task to be run
+     */
+    public void execute(Runnable task)
+    {
+        if (!room.tryAcquire())
+        {
+            if (RUNNING_TASK.get())
+            {
+                synchronized (this)
+                {
+                    callerRuns++;
+                }
+
+                long started = begin();
+                run(task);
+                end(started);
+
+                return;
+            }
+
+            room.acquireUninterruptibly();
+        }
+
+        begin();
+
+        group.execute(() -> {
+            long started = System.nanoTime();
+
+            try
+            {
+                run(task);
+            }
+
+            finally
+            {
+                room.release();
+                end(started);
+            }
+        });
+    }
+
+    /**
+     * Runs a task, marking the current thread as running a stage task
+     *
+     * @param task  the task to be run
+     */
+    private static void run(Runnable task)
+    {
+        boolean outer = RUNNING_TASK.get();
+        RUNNING_TASK.set(true);
+
+        try
+        {
+            task.run();
+        }
+
+        finally
+        {
+            RUNNING_TASK.set(outer);
+        }
+    }
+
+    /**
+     * Records that a task entered the stage
+     *
+     * @return  the time the task entered the stage
+     */
+    public long begin()
+    {
+        long now = System.nanoTime();
+
+        synchronized (this)
+        {
+            if (firstNanos < 0)
+            {
+                firstNanos = now;
+            }
+
+            submitted++;
+            maxDepth = Math.max(maxDepth, submitted - completed);
+        }
+
+        return now;
+    }
+
+    /**
+     * Records that a task left the stage
+     *
+     * @param started   the time the task started running
+     */
+    public void end(long started)
+    {
+        long now = System.nanoTime();
+
+        synchronized (this)
+        {
+            completed++;
+            busyNanos += now - started;
+            lastNanos = now;
+        }
+    }
+
+    /**
+     * Waits until every task submitted to the stage has been completed, without waiting for the other users of
+     * its queue
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void finish() throws InterruptedException
+    {
+        if (group != null)
+        {
+            group.finish();
+        }
+    }
+
+    /**
+     * Returns the name of the stage
+     *
+     * @return  the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the number of tasks held by the stage
+     *
+     * @return  the number of tasks
+     */
+    public synchronized long getDepth()
+    {
+        return submitted - completed;
+    }
+
+    /**
+     * Returns the largest number of tasks held by the stage at a time
+     *
+     * @return  the number of tasks
+     */
+    public synchronized long getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of tasks completed by the stage
+     *
+     * @return  the number of tasks
+     */
+    public synchronized long getCompleted()
+    {
+        return completed;
+    }
+
+    /**
+     * Returns the number of tasks completed per second between the first submission and the last completion
+     *
+     * @return  the throughput of the stage
+     */
+    public synchronized double getThroughput()
+    {
+        if (completed == 0 || lastNanos <= firstNanos)
+        {
+            return 0;
+        }
+
+        return completed / ((lastNanos - firstNanos) / 1e9);
+    }
+
+    /**
+     * Returns a single-line report of the metrics of the stage
+     *
+     * @return  the report
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%-6s %8d done %10.1f/s  depth %4d  max depth %4d  busy %8.3fs  caller runs %d",
+                name, completed, getThroughput(), submitted - completed, maxDepth, busyNanos / 1e9, callerRuns);
+    }
+}
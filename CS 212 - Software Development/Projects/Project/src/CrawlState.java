@@ -0,0 +1,446 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Remembers what a WebCrawler saw at each URL, so the next crawl can skip pages that did not change. For each
+ * page the state keeps the validators the server sent, a hash of the HTML, the cleaned links found on the page
+ * and its stemmed words in order. A page the server reports as not modified, or whose HTML hashes the same as
+ * before, is indexed and crawled from the stored words and links instead of being cleaned and stemmed again.
+ * Only the pages reached by the latest crawl are kept when the state is written.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class CrawlState
+{
+    /**
+     * What the crawler saw at one URL
+     */
+    public static class Entry
+    {
+        /**
+         * The ETag the server sent, or null
+         */
+        private volatile String etag;
+
+        /**
+         * The Last-Modified date the server sent, or null
+         */
+        private volatile String lastModified;
+
+        /**
+         * The hash of the HTML
+         */
+        private volatile String hash;
+
+        /**
+         * The cleaned links found on the page, or null if not known yet
+         */
+        private volatile String[] links;
+
+        /**
+         * The stemmed words of the page in order, or null if not known yet
+         */
+        private volatile String[] words;
+
+        /**
+         * Returns the ETag the server sent
+         *
+         * @return  the ETag, or null
+         */
+        public String getEtag()
+        {
+            return etag;
+        }
+
+        /**
+         * Returns the Last-Modified date the server sent
+         *
+         * @return  the date, or null
+         */
+        public String getLastModified()
+        {
+            return lastModified;
+        }
+
+        /**
+         * Returns the hash of the HTML
+         *
+         * @return  the hash
+         */
+        public String getHash()
+        {
+            return hash;
+        }
+
+        /**
+         * Returns the cleaned links found on the page
+         *
+         * @return  the links
+         */
+        public String[] getLinks()
+        {
+            return links;
+        }
+
+        /**
+         * Returns the stemmed words of the page in order
+         *
+         * @return  the words
+         */
+        public String[] getWords()
+        {
+            return words;
+        }
+
+        /**
+         * Returns whether the links and words of the page are both known
+         *
+         * @return  true if the entry can be reused
+         */
+        public boolean isComplete()
+        {
+            return hash != null && links != null && words != null;
+        }
+    }
+
+    /**
+     * The value every state file starts with
+     */
+    public static final int MAGIC = 0x43524c53;
+
+    /**
+     * The version of the state layout written by this class
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The entries read from the previous crawl by URL
+     */
+    private final Map<String, Entry> previous;
+
+    /**
+     * The entries of the pages reached by this crawl by URL
+     */
+    private final ConcurrentHashMap<String, Entry> current;
+
+    /**
+     * The number of pages the server reported as not modified
+     */
+    private int notModified;
+
+    /**
+     * The number of pages whose HTML hashed the same as before
+     */
+    private int sameHash;
+
+    /**
+     * The number of pages that changed or were not seen before
+     */
+    private int changed;
+
+    /**
+     * Zero-arg constructor which implements a state with no previous crawl
+     */
+    public CrawlState()
+    {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * Single-arg constructor which implements a state from the entries of the previous crawl
+     *
+     * @param previous  the entries of the previous crawl by URL
+     */
+    private CrawlState(Map<String, Entry> previous)
+    {
+        this.previous = previous;
+        this.current = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Reads the state written by a previous crawl
+     *
+     * @param path  the state file
+     * @return      the state
+     * @throws IOException if the file cannot be read or is not a state file
+     */
+    public static CrawlState read(Path path) throws IOException
+    {
+        HashMap<String, Entry> entries = new HashMap<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16)))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("Not a crawl state file: " + path);
+            }
+
+            int count = in.readInt();
+
+            for (int i = 0; i < count; i++)
+            {
+                String url = in.readUTF();
+                Entry entry = new Entry();
+
+                entry.etag = readNullable(in);
+                entry.lastModified = readNullable(in);
+                entry.hash = in.readUTF();
+                entry.links = readArray(in);
+                entry.words = readArray(in);
+
+                entries.put(url, entry);
+            }
+        }
+
+        return new CrawlState(entries);
+    }
+
+    /**
+     * Writes the entries of the pages reached by this crawl
+     *
+     * @param path  the state file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException
+    {
+        ArrayList<Map.Entry<String, Entry>> entries = new ArrayList<>();
+
+        for (Map.Entry<String, Entry> entry : current.entrySet())
+        {
+            if (entry.getValue().isComplete())
+            {
+                entries.add(entry);
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+
+            for (Map.Entry<String, Entry> entry : entries)
+            {
+                Entry value = entry.getValue();
+
+                out.writeUTF(entry.getKey());
+                writeNullable(out, value.etag);
+                writeNullable(out, value.lastModified);
+                out.writeUTF(value.hash);
+                writeArray(out, value.links);
+                writeArray(out, value.words);
+            }
+        }
+    }
+
+    /**
+     * Returns what the previous crawl saw at the URL
+     *
+     * @param url   the cleaned URL
+     * @return      the entry, or null if the previous crawl did not reach the URL
+     */
+    public Entry getPrevious(String url)
+    {
+        Entry entry = previous.get(url);
+        return entry != null && entry.isComplete() ? entry : null;
+    }
+
+    /**
+     * Records a page the server reported as not modified, keeping what the previous crawl saw
+     *
+     * @param url       the cleaned URL
+     * @param previous  what the previous crawl saw at the URL
+     */
+    public void keep(String url, Entry previous)
+    {
+        current.put(url, previous);
+
+        synchronized (this)
+        {
+            notModified++;
+        }
+    }
+
+    /**
+     * Records a page that was downloaded. If its HTML hashes the same as before, what the previous crawl saw is
+     * kept with the new validators and returned, so the page does not have to be cleaned and stemmed again.
+     *
+     * @param url           the cleaned URL
+     * @param html          the HTML of the page
+     * @param etag          the ETag the server sent, or null
+     * @param lastModified  the Last-Modified date the server sent, or null
+     * @return              what the previous crawl saw if the page did not change, or null otherwise
+     */
+    public Entry update(String url, String html, String etag, String lastModified)
+    {
+        Entry entry = new Entry();
+        entry.etag = etag;
+        entry.lastModified = lastModified;
+        entry.hash = hash(html);
+
+        Entry before = getPrevious(url);
+
+        if (before != null && before.hash.equals(entry.hash))
+        {
+            entry.links = before.links;
+            entry.words = before.words;
+            current.put(url, entry);
+
+            synchronized (this)
+            {
+                sameHash++;
+            }
+
+            return entry;
+        }
+
+        current.put(url, entry);
+
+        synchronized (this)
+        {
+            changed++;
+        }
+
+        return null;
+    }
+
+    /**
+     * Records the cleaned links found on a downloaded page
+     *
+     * @param url   the cleaned URL
+     * @param links the cleaned links
+     */
+    public void putLinks(String url, String[] links)
+    {
+        Entry entry = current.get(url);
+
+        if (entry != null)
+        {
+            entry.links = links;
+        }
+    }
+
+    /**
+     * Records the stemmed words of a downloaded page
+     *
+     * @param url   the cleaned URL
+     * @param words the stemmed words in order
+     */
+    public void putWords(String url, String[] words)
+    {
+        Entry entry = current.get(url);
+
+        if (entry != null)
+        {
+            entry.words = words;
+        }
+    }
+
+    /**
+     * Returns a single-line report of how many pages were reused or processed again
+     *
+     * @return  the report
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("state  %8d not modified  %8d same hash  %8d changed or new", notModified, sameHash, changed);
+    }
+
+    /**
+     * Hashes the HTML of a page
+     *
+     * @param html  the HTML
+     * @return      the hash as hexadecimal text
+     */
+    private static String hash(String html)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(html.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+
+            for (byte value : digest)
+            {
+                builder.append(Character.forDigit((value >> 4) & 0xf, 16)).append(Character.forDigit(value & 0xf, 16));
+            }
+
+            return builder.toString();
+        }
+
+        catch (NoSuchAlgorithmException e)
+        {
+            return Integer.toHexString(html.hashCode());
+        }
+    }
+
+    /**
+     * Writes text that may be null
+     *
+     * @param out   the output
+     * @param value the text, or null
+     * @throws IOException if the text cannot be written
+     */
+    private static void writeNullable(DataOutputStream out, String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+
+        if (value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads text written by {@link #writeNullable(DataOutputStream, String)}
+     *
+     * @param in    the input
+     * @return      the text, or null
+     * @throws IOException if the text cannot be read
+     */
+    private static String readNullable(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes an array of text
+     *
+     * @param out       the output
+     * @param values    the text
+     * @throws IOException if the text cannot be written
+     */
+    private static void writeArray(DataOutputStream out, String[] values) throws IOException
+    {
+        out.writeInt(values.length);
+
+        for (String value : values)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads an array written by {@link #writeArray(DataOutputStream, String[])}
+     *
+     * @param in    the input
+     * @return      the text
+     * @throws IOException if the text cannot be read
+     */
+    private static String[] readArray(DataInputStream in) throws IOException
+    {
+        String[] values = new String[in.readInt()];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = in.readUTF();
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,411 @@
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps a thread-safe index up to date with the text files under a directory. Every directory under the
+ * root is registered with a WatchService, since a WatchService only reports changes to the direct children of
+ * a directory. Changed paths are collected until no event has arrived for the debounce delay, so a file that
+ * is written in many small pieces is only parsed once, and are then applied as one batch: every new or
+ * modified text file is parsed on the WorkQueue and replaces its old location, and every deleted file or
+ * directory is removed. If the WatchService drops events, the whole directory is compared against the index.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class DirectoryWatcher implements Closeable
+{
+    /**
+     * The default time in milliseconds without events before a batch is applied
+     */
+    public static final long DEFAULT_DEBOUNCE = 250;
+
+    /**
+     * The number of debounce delays a batch can be held back by events that keep arriving
+     */
+    private static final int MAX_DEBOUNCES = 8;
+
+    /**
+	 * Initializes the index that is kept up to date
+	 */
+    private final ThreadSafeIndexInterface index;
+
+    /**
+     * The group of the shared WorkQueue that parses the changed files, so a batch only waits for its own files
+     */
+    private final WorkQueue.TaskGroup group;
+
+    /**
+     * The time in milliseconds without events before a batch is applied
+     */
+    private final long debounce;
+
+    /**
+     * The service reporting changes to the registered directories
+     */
+    private final WatchService service;
+
+    /**
+     * The directory of every registered key
+     */
+    private final HashMap<WatchKey, Path> directories;
+
+    /**
+     * The roots passed to {@link #register(Path)}
+     */
+    private final ArrayList<Path> roots;
+
+    /**
+     * The locations of the text files that are in the index
+     */
+    private final TreeSet<String> locations;
+
+    /**
+     * The paths that changed since the last batch, in the order they changed
+     */
+    private final LinkedHashSet<Path> pending;
+
+    /**
+     * The number of batches applied
+     */
+    private long batches;
+
+    /**
+     * The number of files parsed and replaced
+     */
+    private long updated;
+
+    /**
+     * The number of locations removed
+     */
+    private long removed;
+
+    /**
+     * The time the last batch took in nanoseconds
+     */
+    private long lastBatchNanos;
+
+    /**
+     * Multi-arg constructor which implements a watcher with the default debounce delay
+     *
+     * @param index the index to keep up to date
+     * @param queue the WorkQueue that parses the changed files
+     * @throws IOException if the WatchService cannot be created
+     */
+    public DirectoryWatcher(ThreadSafeIndexInterface index, WorkQueue queue) throws IOException
+    {
+        this(index, queue, DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Multi-arg constructor which implements a watcher
+     *
+     * @param index     the index to keep up to date
+     * @param queue     the WorkQueue that parses the changed files
+     * @param debounce  the time in milliseconds without events before a batch is applied
+     * @throws IOException if the WatchService cannot be created
+     */
+    public DirectoryWatcher(ThreadSafeIndexInterface index, WorkQueue queue, long debounce) throws IOException
+    {
+        this.index = index;
+        this.group = queue.newGroup();
+        this.debounce = Math.max(1, debounce);
+
+        service = FileSystems.getDefault().newWatchService();
+        directories = new HashMap<>();
+        roots = new ArrayList<>();
+        locations = new TreeSet<>();
+        pending = new LinkedHashSet<>();
+    }
+
+    /**
+     * Starts watching every directory under a root and remembers the text files found there as already being
+     * in the index. Registering before the index is built means no change made while it is built is missed.
+     *
+     * @param root  the directory or file to be watched
+     * @throws IOException if the directories cannot be registered
+     */
+    public void register(Path root) throws IOException
+    {
+        roots.add(root);
+
+        if (Files.isDirectory(root))
+        {
+            registerAll(root);
+        }
+
+        else if (root.getParent() != null)
+        {
+            directories.put(root.getParent().register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), root.getParent());
+        }
+
+        TextFileFinder.walk(root, (path, attributes) -> locations.add(path.toString()));
+    }
+
+    /**
+     * Registers a directory and every directory under it
+     *
+     * @param start the directory
+     * @throws IOException if the directories cannot be registered
+     */
+    private void registerAll(Path start) throws IOException
+    {
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException
+            {
+                directories.put(directory.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e)
+            {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Applies changes as they happen until the time runs out, the watcher is closed or the thread is interrupted
+     *
+     * @param millis    the time to watch for in milliseconds, or 0 to watch until interrupted
+     * @param onBatch   run after each batch is applied, or null
+     * @throws IOException if a new directory cannot be registered
+     */
+    public void watch(long millis, Runnable onBatch) throws IOException
+    {
+        long deadline = millis > 0 ? System.nanoTime() + millis * 1_000_000 : Long.MAX_VALUE;
+        long firstPending = 0;
+
+        try
+        {
+            while (true)
+            {
+                long now = System.nanoTime();
+                boolean isExpired = now >= deadline;
+
+                if (!isExpired)
+                {
+                    long wait = pending.isEmpty() ? deadline - now : Math.min(debounce * 1_000_000, deadline - now);
+                    WatchKey key;
+
+                    try
+                    {
+                        key = service.poll(wait, TimeUnit.NANOSECONDS);
+                    }
+
+                    catch (ClosedWatchServiceException e)
+                    {
+                        // closed from another thread to stop watching
+                        key = null;
+                        isExpired = true;
+                    }
+
+                    if (key != null)
+                    {
+                        if (pending.isEmpty())
+                        {
+                            firstPending = System.nanoTime();
+                        }
+
+                        collect(key);
+
+                        // events that never stop arriving cannot hold a batch back forever
+                        if (pending.isEmpty() || System.nanoTime() - firstPending < debounce * MAX_DEBOUNCES * 1_000_000)
+                        {
+                            continue;
+                        }
+                    }
+                }
+
+                // changes collected just before the time ran out or the watcher was closed are still applied
+                if (!pending.isEmpty())
+                {
+                    apply();
+
+                    if (onBatch != null)
+                    {
+                        onBatch.run();
+                    }
+                }
+
+                if (isExpired)
+                {
+                    return;
+                }
+            }
+        }
+
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the paths reported by a key to the pending batch
+     *
+     * @param key   the key with events
+     * @throws IOException if a new directory cannot be registered
+     */
+    private void collect(WatchKey key) throws IOException
+    {
+        Path directory = directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == OVERFLOW || directory == null)
+            {
+                rescan();
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path))
+            {
+                // files created before the directory was registered do not have events of their own
+                registerAll(path);
+                TextFileFinder.walk(path, (file, attributes) -> pending.add(file));
+            }
+
+            else
+            {
+                pending.add(path);
+            }
+        }
+
+        if (!key.reset())
+        {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Adds every text file under the roots and every location that no longer exists to the pending batch
+     *
+     * @throws IOException if the roots cannot be listed
+     */
+    private void rescan() throws IOException
+    {
+        for (Path root : roots)
+        {
+            if (Files.isDirectory(root))
+            {
+                registerAll(root);
+            }
+
+            if (Files.exists(root))
+            {
+                TextFileFinder.walk(root, (file, attributes) -> pending.add(file));
+            }
+        }
+
+        for (String location : locations)
+        {
+            Path path = Path.of(location);
+
+            if (!Files.exists(path))
+            {
+                pending.add(path);
+            }
+        }
+    }
+
+    /**
+     * Applies the pending batch to the index. Changed text files are parsed on the WorkQueue, each into its own
+     * index that then replaces the location as a whole, and removed paths are removed with every location under them.
+     *
+     * @throws InterruptedException if interrupted while waiting for the WorkQueue
+     */
+    private void apply() throws InterruptedException
+    {
+        long started = System.nanoTime();
+        ArrayList<String> removals = new ArrayList<>();
+        int parsed = 0;
+
+        for (Path path : pending)
+        {
+            String location = path.toString();
+
+            if (Files.isRegularFile(path) && InvertedIndexBuilder.isTextFile(path))
+            {
+                locations.add(location);
+                parsed++;
+
+                group.execute(() -> {
+                    InvertedIndex document = new InvertedIndex();
+
+                    try
+                    {
+                        InvertedIndexBuilder.fileParse(path, document);
+                        index.replaceLocation(location, document);
+                    }
+
+                    catch (IOException e)
+                    {
+                        // the file was deleted again before it could be read
+                        index.removeLocation(location);
+                    }
+                });
+            }
+
+            else if (!Files.isDirectory(path))
+            {
+                if (locations.remove(location))
+                {
+                    removals.add(location);
+                }
+
+                SortedSet<String> children = locations.subSet(location + File.separator, location + (char) (File.separatorChar + 1));
+                removals.addAll(children);
+                children.clear();
+            }
+        }
+
+        pending.clear();
+        group.finish();
+
+        for (String location : removals)
+        {
+            index.removeLocation(location);
+        }
+
+        synchronized (this)
+        {
+            batches++;
+            updated += parsed;
+            removed += removals.size();
+            lastBatchNanos = System.nanoTime() - started;
+        }
+    }
+
+    /**
+     * Stops watching every directory. Changes that were already collected are still applied.
+     *
+     * @throws IOException if the WatchService cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        service.close();
+    }
+
+    /**
+     * Returns a single-line report of the batches applied so far
+     *
+     * @return  the report
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("watch  %6d batches  %8d updated  %8d removed  last batch %8.3fs",
+                batches, updated, removed, lastBatchNanos / 1e9);
+    }
+}
@@ -29,21 +29,87 @@ public class Driver
 		int threadCount;
 		int totalURLCount;
 		
-		InvertedIndex index = new InvertedIndex();
-		ThreadSafeInvertedIndex threadedIndex = new ThreadSafeInvertedIndex();
+		ArgumentParser parser = new ArgumentParser();
+		parser.parse(args);
+
+		// -compact stores postings as encoded primitive arrays instead of boxed collections
+		boolean isCompact = parser.hasFlag("-compact");
+
+		// -minify writes the index and results as JSON without newlines or indents
+		boolean isMinified = parser.hasFlag("-minify");
+
+		InvertedIndex index = isCompact ? new CompactInvertedIndex() : new InvertedIndex();
+		ThreadSafeIndexInterface threadedIndex = new ThreadSafeInvertedIndex(isCompact ? new CompactInvertedIndex() : new InvertedIndex());
+
+		// -concurrent replaces the single index lock with locks striped by word
+		if (parser.hasFlag("-concurrent"))
+		{
+			threadedIndex = new ConcurrentInvertedIndex();
+		}
+
+		if (parser.hasFlag("-load"))
+		{
+			Path loadPath = parser.getPath("-load", Path.of("index.segment"));
+
+			try
+			{
+				index = new SegmentInvertedIndex(loadPath);
+				threadedIndex = new ThreadSafeInvertedIndex(index);
+			}
+
+			catch (IOException e)
+			{
+				System.out.println("Unable to load segment! Invalid segment file at '" + loadPath + "'!");
+			}
+		}
+
+		// -top keeps only the best results of each query instead of every result
+		int resultLimit = InvertedIndex.ALL_RESULTS;
+
+		if (parser.hasFlag("-top"))
+		{
+			try
+			{
+				resultLimit = Integer.parseInt(parser.getString("-top", "10"));
+			}
+
+			catch (NumberFormatException e)
+			{
+				return;
+			}
+		}
 
 		InvertedIndexBuilder indexBuilder = new InvertedIndexBuilder(index);
 		ThreadSafeInvertedIndexBuilder threadedIndexBuilder;
 
-		QueryBuilder queryBuilder = new QueryBuilder(index);
+		QueryBuilder queryBuilder = new QueryBuilder(index, resultLimit);
 		ThreadSafeQueryBuilder threadedQueryBuilder = null;
 
 		WebCrawler threadedWebCrawler = null;
+
+		// -crawlstate remembers each page between crawls so unchanged pages are not downloaded or stemmed again
+		CrawlState crawlState = null;
+		Path crawlStatePath = parser.getPath("-crawlstate", Path.of("crawl.state"));
+
+		if (parser.hasFlag("-crawlstate"))
+		{
+			crawlState = new CrawlState();
+
+			if (Files.exists(crawlStatePath))
+			{
+				try
+				{
+					crawlState = CrawlState.read(crawlStatePath);
+				}
+
+				catch (IOException e)
+				{
+					System.out.println("Unable to read crawl state! Invalid crawl state file at '" + crawlStatePath + "'!");
+				}
+			}
+		}
 		
 		WorkQueue queue = null;
-
-		ArgumentParser parser = new ArgumentParser();
-		parser.parse(args);
 		
 		try
 		{
@@ -55,7 +121,22 @@ public class Driver
 			return;
 		}
 
-		if (parser.hasFlag("-url"))
+		// -watch keeps the index up to date with the -path directory for the given seconds, or until stopped
+		long watchSeconds;
+
+		try
+		{
+			watchSeconds = Long.parseLong(parser.getString("-watch", "0"));
+		}
+
+		catch (NumberFormatException e)
+		{
+			return;
+		}
+
+		DirectoryWatcher watcher = null;
+
+		if (parser.hasFlag("-url") || parser.hasFlag("-watch"))
 		{
 			if (!parser.hasFlag("-threads"))
 			{
@@ -76,6 +157,70 @@ public class Driver
 			return;
 		}
 
+		// -inflight bounds how many pages the crawler downloads at a time
+		int maxInFlight;
+
+		try
+		{
+			maxInFlight = Integer.parseInt(parser.getString("-inflight", String.valueOf(PooledHtmlFetcher.DEFAULT_MAX_IN_FLIGHT)));
+		}
+
+		catch (NumberFormatException e)
+		{
+			return;
+		}
+
+		// -virtual lets thousands of pages be in flight at once, each waiting on a connection instead of a thread,
+		// and completes their responses on as many threads as -threads gives. -inflight is ignored in this mode.
+		boolean isVirtual = parser.hasFlag("-virtual");
+
+		if (isVirtual)
+		{
+			try
+			{
+				maxInFlight = Integer.parseInt(parser.getString("-virtual", String.valueOf(PooledHtmlFetcher.DEFAULT_VIRTUAL_IN_FLIGHT)));
+			}
+
+			catch (NumberFormatException e)
+			{
+				return;
+			}
+		}
+
+		// -perhost bounds how many pages of one host are downloaded at a time, and -rate how many per second
+		int maxPerHost;
+		double requestRate;
+
+		try
+		{
+			maxPerHost = Integer.parseInt(parser.getString("-perhost", String.valueOf(HostScheduler.DEFAULT_MAX_PER_HOST)));
+			requestRate = Double.parseDouble(parser.getString("-rate", String.valueOf(HostScheduler.UNLIMITED)));
+		}
+
+		catch (NumberFormatException e)
+		{
+			return;
+		}
+
+		// -capacity bounds how many tasks can wait on the work queue, so producers wait for the workers once it is full
+		int queueCapacity = WorkQueue.UNBOUNDED;
+
+		if (parser.hasFlag("-capacity"))
+		{
+			try
+			{
+				queueCapacity = Integer.parseInt(parser.getString("-capacity", String.valueOf(WorkQueue.DEFAULT_CAPACITY)));
+			}
+
+			catch (NumberFormatException e)
+			{
+				return;
+			}
+		}
+
+		// -bloom remembers crawled URLs in a fixed-size Bloom filter instead of a set, for very large limits
+		boolean isBloom = parser.hasFlag("-bloom");
+
 		if (threadCount < 1)
 		{
 			return;
@@ -83,33 +228,46 @@ public class Driver
 
 		else
 		{
-			queue = new WorkQueue(threadCount);
+			queue = new WorkQueue(threadCount, queueCapacity, WorkQueue.RejectionPolicy.BLOCK);
 			
 			if (parser.hasFlag("-url"))
 			{
-				threadedWebCrawler = new WebCrawler(threadedIndex, queue, totalURLCount);
+				HostScheduler scheduler = new HostScheduler(maxInFlight, maxPerHost, requestRate);
+				PooledHtmlFetcher fetcher = isVirtual ? new PooledHtmlFetcher(scheduler, threadCount) : new PooledHtmlFetcher(scheduler);
+
+				threadedWebCrawler = new WebCrawler(threadedIndex, queue, new CrawlFrontier(totalURLCount, isBloom), fetcher, crawlState);
 			}
 		}
 
+		// the crawl runs alongside the -path build, since each only waits for its own tasks on the shared queue
+		Thread crawlThread = null;
+
 		if (parser.hasFlag("-url"))
 		{
-			try
-			{
+			WebCrawler crawler = threadedWebCrawler;
+			String seed = parser.getString("-url");
+
+			crawlThread = new Thread(() -> {
 				try
 				{
-					threadedWebCrawler.crawl(parser.getString("-url"));
+					try
+					{
+						crawler.crawl(seed);
+					}
+
+					catch (InterruptedException e)
+					{
+						System.out.println("Invalid URL! Unable to use String URL with WebCrawler");
+					}
 				}
 
-				catch (InterruptedException e)
+				catch (MalformedURLException e)
 				{
-					System.out.println("Invalid URL! Unable to use String URL with WebCrawler");
+					System.out.println("Malformed URL Exception!");
 				}
-			}
+			});
 
-			catch (MalformedURLException e)
-			{
-				System.out.println("Malformed URL Exception!");
-			}
+			crawlThread.start();
 		}
 
 		if (parser.hasFlag("-path"))
@@ -122,9 +280,21 @@ public class Driver
 
 				try
 				{
+					if (parser.hasFlag("-watch"))
+					{
+						watcher = new DirectoryWatcher(threadedIndex, queue);
+						watcher.register(path);
+					}
+
 					threadedIndexBuilder.directoryTraverseAndParse(path);
 				}
 
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					System.out.println("Interrupted while adding '" + path + "' to InvertedIndex!");
+				}
+
 				catch (Exception e)
 				{
 					System.out.println("Invalid path! Unable to add '" + path + "' to InvertedIndex!");
@@ -143,6 +313,56 @@ public class Driver
 					System.out.println("Invalid path! Unable to add '" + path + "' to InvertedIndex!");
 				}
 			}
+
+			// -stats reports how often the stem of a word was found in the stem cache
+			if (parser.hasFlag("-stats"))
+			{
+				System.out.println(StemCache.getShared());
+			}
+		}
+
+		if (crawlThread != null)
+		{
+			try
+			{
+				crawlThread.join();
+			}
+
+			catch (InterruptedException e)
+			{
+				System.out.println("Interrupted while waiting for the crawl to finish!");
+			}
+
+			threadedWebCrawler.shutdown();
+
+			// -stats reports the throughput and queue depths of each crawl stage
+			if (parser.hasFlag("-stats"))
+			{
+				for (CrawlStage stage : threadedWebCrawler.getStages())
+				{
+					System.out.println(stage);
+				}
+
+				if (crawlState != null)
+				{
+					System.out.println(crawlState);
+				}
+
+				System.out.println(StemCache.getShared());
+			}
+
+			if (crawlState != null)
+			{
+				try
+				{
+					crawlState.write(crawlStatePath);
+				}
+
+				catch (IOException e)
+				{
+					System.out.println("Unable to write crawl state! Invalid output path at '" + crawlStatePath + "'!");
+				}
+			}
 		}
 
 		if (parser.hasFlag("-index"))
@@ -153,7 +373,7 @@ public class Driver
 			{
 				try
 				{
-					threadedIndex.invertedIndexWriter(indexPath);
+					threadedIndex.invertedIndexWriter(indexPath, isMinified);
 				}
 				
 				catch (Exception e)
@@ -166,7 +386,7 @@ public class Driver
 			{
 				try
 				{
-					index.invertedIndexWriter(indexPath);
+					index.invertedIndexWriter(indexPath, isMinified);
 				}
 				
 				catch (Exception e)
@@ -176,6 +396,29 @@ public class Driver
 			}
 		}
 
+		if (parser.hasFlag("-segment"))
+		{
+			Path segmentPath = parser.getPath("-segment", Path.of("index.segment"));
+
+			try
+			{
+				if (parser.hasFlag("-threads"))
+				{
+					threadedIndex.segmentWriter(segmentPath);
+				}
+
+				else
+				{
+					index.segmentWriter(segmentPath);
+				}
+			}
+
+			catch (IOException e)
+			{
+				System.out.println("Unable to write segment! Invalid output path at '" + segmentPath + "'!");
+			}
+		}
+
 		if (parser.hasFlag("-counts"))
 		{
 			Path countsPath = parser.getPath("-counts", Path.of("counts.json"));
@@ -222,7 +465,7 @@ public class Driver
 
 				if (parser.hasFlag("-threads"))
 				{
-					threadedQueryBuilder = new ThreadSafeQueryBuilder(threadedIndex, queue);
+					threadedQueryBuilder = new ThreadSafeQueryBuilder(threadedIndex, queue, resultLimit);
 
 					try
 					{
@@ -258,7 +501,7 @@ public class Driver
 			{
 				try
 				{
-					threadedQueryBuilder.queryWriter(resultsPath);
+					threadedQueryBuilder.queryWriter(resultsPath, isMinified);
 				}
 
 				catch (IOException e)
@@ -271,7 +514,7 @@ public class Driver
 			{
 				try
 				{
-					queryBuilder.queryWriter(resultsPath);
+					queryBuilder.queryWriter(resultsPath, isMinified);
 				}
 			
 				catch (IOException e)
@@ -281,8 +524,92 @@ public class Driver
 			}
 		}
 
+		if (watcher != null)
+		{
+			ThreadSafeIndexInterface watchedIndex = threadedIndex;
+			WorkQueue watchQueue = queue;
+			DirectoryWatcher batchWatcher = watcher;
+			int watchLimit = resultLimit;
+
+			// every batch of changes rewrites the outputs that were asked for
+			Runnable onBatch = () -> {
+				if (parser.hasFlag("-index"))
+				{
+					Path indexPath = parser.getPath("-index", Path.of("index.json"));
+
+					try
+					{
+						watchedIndex.invertedIndexWriter(indexPath, isMinified);
+					}
+
+					catch (IOException e)
+					{
+						System.out.println("Invalid output file! Cannot send '" + indexPath + "' to InvertedIndexWriter!");
+					}
+				}
+
+				if (parser.hasFlag("-counts"))
+				{
+					Path countsPath = parser.getPath("-counts", Path.of("counts.json"));
+
+					try
+					{
+						watchedIndex.dataCountWriter(countsPath);
+					}
+
+					catch (IOException e)
+					{
+						System.out.println("Unable to write data count! Invalid output path at '" + countsPath + "'!");
+					}
+				}
+
+				if (parser.hasFlag("-query") && parser.getPath("-query") != null)
+				{
+					Path queryPath = parser.getPath("-query");
+					Path resultsPath = parser.getPath("-results", Path.of("results.json"));
+					ThreadSafeQueryBuilder watchQueryBuilder = new ThreadSafeQueryBuilder(watchedIndex, watchQueue, watchLimit);
+
+					try
+					{
+						watchQueryBuilder.build(queryPath, !parser.hasFlag("-exact"));
+
+						if (parser.hasFlag("-results"))
+						{
+							watchQueryBuilder.queryWriter(resultsPath, isMinified);
+						}
+					}
+
+					catch (Exception e)
+					{
+						System.out.println("Invalid query file!: " + queryPath);
+					}
+				}
+
+				if (parser.hasFlag("-stats"))
+				{
+					System.out.println(batchWatcher);
+				}
+			};
+
+			try (batchWatcher)
+			{
+				batchWatcher.watch(watchSeconds * 1000, onBatch);
+			}
+
+			catch (IOException e)
+			{
+				System.out.println("Unable to watch '" + parser.getPath("-path") + "' for changes!");
+			}
+		}
+
 		if (queue != null)
 		{
+			// -stats reports how deep the work queue got
+			if (parser.hasFlag("-stats"))
+			{
+				System.out.println(queue);
+			}
+
 			queue.shutdown();
 		}
 
@@ -0,0 +1,285 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Decides when each request may be sent, so that a crawl is polite to every host it visits. Requests wait in a
+ * queue for their host and hosts take turns in round-robin order, so one large site cannot keep the others
+ * waiting. A request is only sent while fewer than the limit of requests are in flight overall and for its
+ * host, and while its host has a token left in its bucket. Buckets refill at a fixed rate up to a small burst.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class HostScheduler
+{
+    /**
+     * The default number of requests that can be in flight for each host
+     */
+    public static final int DEFAULT_MAX_PER_HOST = 8;
+
+    /**
+     * The rate that does not limit the requests of a host
+     */
+    public static final double UNLIMITED = 0;
+
+    /**
+     * The requests of one host and the state of its limits
+     */
+    private static class Host
+    {
+        /**
+         * The requests waiting to be sent
+         */
+        private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+
+        /**
+         * The number of requests in flight
+         */
+        private int active;
+
+        /**
+         * The tokens left in the bucket
+         */
+        private double tokens;
+
+        /**
+         * The time the bucket was last refilled
+         */
+        private long refilled;
+
+        /**
+         * Whether the host is in the round-robin ring
+         */
+        private boolean queued;
+    }
+
+    /**
+     * The number of requests that can be in flight at a time
+     */
+    private final int maxInFlight;
+
+    /**
+     * The number of requests that can be in flight for each host
+     */
+    private final int maxPerHost;
+
+    /**
+     * The number of requests each host can be sent per second, or {@link #UNLIMITED}
+     */
+    private final double rate;
+
+    /**
+     * The number of tokens each bucket can hold
+     */
+    private final double burst;
+
+    /**
+     * The state of each host by name
+     */
+    private final HashMap<String, Host> hosts;
+
+    /**
+     * The hosts with waiting requests in round-robin order
+     */
+    private final ArrayDeque<Host> ring;
+
+    /**
+     * The timer that retries sending once a bucket has refilled, or null if rates are not limited
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * The number of requests in flight
+     */
+    private int inFlight;
+
+    /**
+     * Whether the timer will retry sending
+     */
+    private boolean wakeupPending;
+
+    /**
+     * Multi-arg constructor which implements a scheduler that does not limit the rate of requests
+     *
+     * @param maxInFlight   the number of requests that can be in flight at a time
+     * @param maxPerHost    the number of requests that can be in flight for each host
+     */
+    public HostScheduler(int maxInFlight, int maxPerHost)
+    {
+        this(maxInFlight, maxPerHost, UNLIMITED);
+    }
+
+    /**
+     * Multi-arg constructor which implements a scheduler
+     *
+     * @param maxInFlight   the number of requests that can be in flight at a time
+     * @param maxPerHost    the number of requests that can be in flight for each host
+     * @param rate          the number of requests each host can be sent per second, or {@link #UNLIMITED}
+     */
+    public HostScheduler(int maxInFlight, int maxPerHost, double rate)
+    {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.rate = Math.max(0, rate);
+        this.burst = Math.max(1, Math.min(this.maxPerHost, this.rate));
+
+        hosts = new HashMap<>();
+        ring = new ArrayDeque<>();
+        inFlight = 0;
+        wakeupPending = false;
+
+        timer = this.rate > 0 ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "host-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Returns the number of requests that can be in flight at a time
+     *
+     * @return  the number of requests
+     */
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    /**
+     * Returns the number of requests that can be in flight for each host
+     *
+     * @return  the number of requests
+     */
+    public int getMaxPerHost()
+    {
+        return maxPerHost;
+    }
+
+    /**
+     * Queues a request for the host and sends it as soon as the limits allow. Every request that is sent must
+     * be followed by a call to {@link #release(String)} once it finishes.
+     *
+     * @param name  the host of the request
+     * @param send  sends the request
+     */
+    public void submit(String name, Runnable send)
+    {
+        synchronized (this)
+        {
+            Host host = hosts.computeIfAbsent(name, key -> {
+                Host created = new Host();
+                created.tokens = burst;
+                created.refilled = System.nanoTime();
+                return created;
+            });
+
+            host.waiting.addLast(send);
+
+            if (!host.queued)
+            {
+                host.queued = true;
+                ring.addLast(host);
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Marks a request to the host as finished and sends the requests that were waiting for it
+     *
+     * @param name  the host of the request
+     */
+    public void release(String name)
+    {
+        synchronized (this)
+        {
+            hosts.get(name).active--;
+            inFlight--;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Sends every waiting request the limits allow, taking one request from each host in turn
+     */
+    private void dispatch()
+    {
+        ArrayList<Runnable> ready = new ArrayList<>();
+
+        synchronized (this)
+        {
+            long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+            int skipped = 0;
+
+            while (inFlight < maxInFlight && skipped < ring.size())
+            {
+                Host host = ring.pollFirst();
+
+                if (host.active >= maxPerHost)
+                {
+                    ring.addLast(host);
+                    skipped++;
+                    continue;
+                }
+
+                if (rate > 0)
+                {
+                    host.tokens = Math.min(burst, host.tokens + (now - host.refilled) * rate / 1e9);
+                    host.refilled = now;
+
+                    if (host.tokens < 1)
+                    {
+                        wait = Math.min(wait, (long) Math.ceil((1 - host.tokens) / rate * 1e9));
+                        ring.addLast(host);
+                        skipped++;
+                        continue;
+                    }
+
+                    host.tokens--;
+                }
+
+                ready.add(host.waiting.pollFirst());
+                host.active++;
+                inFlight++;
+                skipped = 0;
+
+                if (host.waiting.isEmpty())
+                {
+                    host.queued = false;
+                }
+
+                else
+                {
+                    ring.addLast(host);
+                }
+            }
+
+            if (wait != Long.MAX_VALUE && !wakeupPending)
+            {
+                wakeupPending = true;
+                timer.schedule(this::wakeup, wait, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        for (Runnable send : ready)
+        {
+            send.run();
+        }
+    }
+
+    /**
+     * Retries sending once a bucket has refilled
+     */
+    private void wakeup()
+    {
+        synchronized (this)
+        {
+            wakeupPending = false;
+        }
+
+        dispatch();
+    }
+}
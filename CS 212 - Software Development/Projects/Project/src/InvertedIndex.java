@@ -9,12 +9,13 @@ import java.util.*;
  * @version v3.0.0
  */
 
-public class InvertedIndex
+public class InvertedIndex implements InvertedIndexInterface
 {
     /**
-     * Nested class allows for the creation of Result objects to evaluate matches
+     * Nested class allows for the creation of Result objects to evaluate matches. Results do not belong to an
+     * index, so any InvertedIndexInterface can create them.
      */
-    public class Result implements Comparable<Result>
+    public static class Result implements Comparable<Result>
     {
         /**
          * Initializes a variable to keep track of the location of the text file that can be globally accessed and modified.
@@ -30,17 +31,24 @@ public class InvertedIndex
 		 * Initializes a variable that represents the value of importance for a text file in the context of a search that can be globally accessed and modified.
 		 */
         private double priority;
+
+        /**
+         * Initializes a variable that stores the total number of words in the text file the priority is measured against.
+         */
+        private final int wordCount;
         
         /**
-		 * Multi-arg constructor that implements and defines location, count, and priority variables
+		 * Multi-arg constructor used by indexes that resolve the count of a query word themselves
          * 
          * @param location  location of the text file to be used
-		 * @param word      the query word to be used
-		 */        
-        public Result(String location, String word)
+		 * @param count     the number of times the query word appears at the location
+         * @param wordCount the total number of words at the location
+		 */
+        public Result(String location, int count, int wordCount)
         {
             this.location = location;
-            this.update(word);
+            this.wordCount = wordCount;
+            this.update(count);
         }
 
         /**
@@ -58,9 +66,9 @@ public class InvertedIndex
          * 
          * @return  count
          */
-        public String getCount()
+        public int getCount()
         {
-            return Integer.toString(count);
+            return this.count;
         }
 
         /**
@@ -74,14 +82,14 @@ public class InvertedIndex
 		}
         
         /**
-		 * Mutator method that assigns new values for count and priority variables
+		 * Mutator method that adds to the count and redefines the priority variable
 		 * 
-		 * @param word  word to be entered that redefines values for the score at that location
+		 * @param count  the number of new matches to be added at this location
 		 */
-        private void update(String word)
+        void update(int count)
         {
-			this.count += invertedIndexTreeMap.get(word).get(this.location).size();
-			this.priority = (double) this.count / dataCountTreeMap.get(location);
+			this.count += count;
+			this.priority = (double) this.count / this.wordCount;
 		}
 
         /**
@@ -93,15 +101,15 @@ public class InvertedIndex
         @Override
         public int compareTo(Result result)
         {
-            int priorityChecker = Double.compare(this.priority, result.getPriority());
+            int priorityChecker = Double.compare(this.priority, result.priority);
 
             if (priorityChecker == 0)
             {
-				int countChecker = Integer.compare(this.count, Integer.parseInt(result.getCount()));
+				int countChecker = Integer.compare(this.count, result.count);
                 
                 if (countChecker == 0)
                 {
-					int locationCheck = this.getLocation().compareToIgnoreCase(result.getLocation());
+					int locationCheck = this.location.compareToIgnoreCase(result.location);
 					return locationCheck;
                 }
                 
@@ -135,6 +143,12 @@ public class InvertedIndex
 	 */
     private final TreeMap<String, Integer> dataCountTreeMap;
 
+    /**
+	 * Initializes a forward index from each location to the words found there, so a location can be removed
+	 * without visiting every word. A word may be listed more than once for the same location.
+	 */
+    private final HashMap<String, ArrayList<String>> forwardIndexMap;
+
     /**
 	 * Implements an InvertedIndex as a TreeMap that can be globally accessed and modified
      * as well as a data storage and counting model as a TreeMap that can be globally accessed and modified.
@@ -143,6 +157,7 @@ public class InvertedIndex
     {
         invertedIndexTreeMap = new TreeMap<>();
         dataCountTreeMap = new TreeMap<>();
+        forwardIndexMap = new HashMap<>();
     }
 
     /**
@@ -217,7 +232,10 @@ public class InvertedIndex
     {
         invertedIndexTreeMap.putIfAbsent(word, new TreeMap<>());
 
-		invertedIndexTreeMap.get(word).putIfAbsent(path, new TreeSet<>());
+        if (invertedIndexTreeMap.get(word).putIfAbsent(path, new TreeSet<>()) == null)
+        {
+            forwardIndexMap.computeIfAbsent(path, key -> new ArrayList<>()).add(word);
+        }
         
         invertedIndexTreeMap.get(word).get(path).add(location);
         
@@ -228,55 +246,125 @@ public class InvertedIndex
     }
 
     /**
-	 * Adds all words to the InvertedIndex from another
+	 * Adds all words to the InvertedIndex from another. The nested collections of the other index may be
+	 * shared rather than copied, so it should not be modified afterwards.
 	 *
 	 * @param originIndex     the index to copy from
 	 */
     public void addAll(InvertedIndex originIndex)
     {
-        Set<String> setOfWords = originIndex.invertedIndexTreeMap.keySet();
-        
-        Iterator<String> wordIterator = setOfWords.iterator();
-
-        while (wordIterator.hasNext())
+        // indexes that keep their postings elsewhere can only be copied through their accessors
+        if (originIndex.getClass() != InvertedIndex.class)
         {
-            String word = wordIterator.next();
-
-            if (this.invertedIndexTreeMap.containsKey(word))
+            for (String word : originIndex.getWords())
             {
-                Set<String> setOfLocations = originIndex.invertedIndexTreeMap.get(word).keySet();
-
-                Iterator<String> locationIterator = setOfLocations.iterator();
-                
-                while (locationIterator.hasNext())
+                for (String location : originIndex.getLocations(word))
                 {
-                    String location = locationIterator.next();
-                    
-                    if (this.invertedIndexTreeMap.get(word).containsKey(location))
+                    invertedIndexTreeMap.putIfAbsent(word, new TreeMap<>());
+
+                    if (invertedIndexTreeMap.get(word).putIfAbsent(location, new TreeSet<>()) == null)
                     {
-						this.invertedIndexTreeMap.get(word).get(location).addAll(originIndex.invertedIndexTreeMap.get(word).get(location));
+                        forwardIndexMap.computeIfAbsent(location, key -> new ArrayList<>()).add(word);
                     }
-                    
-                    else
+
+                    invertedIndexTreeMap.get(word).get(location).addAll(originIndex.getPositions(word, location));
+
+                    Integer count = originIndex.getLocationCount(location);
+
+                    if (!dataCountTreeMap.containsKey(location) || dataCountTreeMap.get(location) < count)
                     {
-						this.invertedIndexTreeMap.get(word).put(location, originIndex.invertedIndexTreeMap.get(word).get(location));
-					}
-				}
+                        dataCountTreeMap.put(location, count);
+                    }
+                }
             }
 
-            else
+            return;
+        }
+
+        // an empty index can take the sorted maps of the other index in linear time
+        if (this.invertedIndexTreeMap.isEmpty())
+        {
+            this.invertedIndexTreeMap.putAll(originIndex.invertedIndexTreeMap);
+            this.dataCountTreeMap.putAll(originIndex.dataCountTreeMap);
+            this.forwardIndexMap.putAll(originIndex.forwardIndexMap);
+            return;
+        }
+
+        for (Map.Entry<String, TreeMap<String, TreeSet<Integer>>> wordEntry : originIndex.invertedIndexTreeMap.entrySet())
+        {
+            TreeMap<String, TreeSet<Integer>> locations = this.invertedIndexTreeMap.get(wordEntry.getKey());
+
+            if (locations == null)
             {
-                this.invertedIndexTreeMap.put(word, originIndex.invertedIndexTreeMap.get(word));
+                this.invertedIndexTreeMap.put(wordEntry.getKey(), wordEntry.getValue());
+                continue;
+            }
+
+            for (Map.Entry<String, TreeSet<Integer>> locationEntry : wordEntry.getValue().entrySet())
+            {
+                TreeSet<Integer> positions = locations.get(locationEntry.getKey());
+
+                if (positions == null)
+                {
+                    locations.put(locationEntry.getKey(), locationEntry.getValue());
+                }
+
+                else
+                {
+                    positions.addAll(locationEntry.getValue());
+                }
             }
         }
 
-        for (String location : originIndex.dataCountTreeMap.keySet())
+        for (Map.Entry<String, Integer> countEntry : originIndex.dataCountTreeMap.entrySet())
         {
-            if (!dataCountTreeMap.containsKey(location) || dataCountTreeMap.get(location) < originIndex.getLocationCount(location))
-            {
-				dataCountTreeMap.put(location, originIndex.dataCountTreeMap.get(location));
-			}
+            this.dataCountTreeMap.merge(countEntry.getKey(), countEntry.getValue(), Math::max);
 		}
+
+        for (Map.Entry<String, ArrayList<String>> forwardEntry : originIndex.forwardIndexMap.entrySet())
+        {
+            this.forwardIndexMap.computeIfAbsent(forwardEntry.getKey(), key -> new ArrayList<>()).addAll(forwardEntry.getValue());
+        }
+    }
+
+    /**
+	 * Removes every word and the word count of a location, visiting only the words found at that location.
+	 * Words left without any locations are removed as well.
+	 *
+	 * @param location  the location to be removed
+	 * @return          whether the location was in the InvertedIndex
+	 */
+    public boolean removeLocation(String location)
+    {
+        ArrayList<String> words = forwardIndexMap.remove(location);
+
+        if (words != null)
+        {
+            for (String word : words)
+            {
+                TreeMap<String, TreeSet<Integer>> locations = invertedIndexTreeMap.get(word);
+
+                if (locations != null && locations.remove(location) != null && locations.isEmpty())
+                {
+                    invertedIndexTreeMap.remove(word);
+                }
+            }
+        }
+
+        return dataCountTreeMap.remove(location) != null || words != null;
+    }
+
+    /**
+	 * Replaces the words of a location with those of a newly built index, such as after the file at that
+	 * location changed. The other index should only contain that location.
+	 *
+	 * @param location  the location to be replaced
+	 * @param document  the index holding the new words of the location
+	 */
+    public void replaceLocation(String location, InvertedIndex document)
+    {
+        removeLocation(location);
+        addAll(document);
     }
     
     /**
@@ -318,14 +406,49 @@ public class InvertedIndex
 	}
   
     /**
-	 * Outputs the contents of the InvertedIndex in the JSON format.
+	 * Outputs the contents of the InvertedIndex in the JSON format, streaming one word at a time.
+	 *
+	 * @param path      the filepath of the file to be outputted
+	 * @param compact   whether newlines and indents are left out
+	 * @throws IOException if an IO error occurs
+	 */
+    public void invertedIndexWriter(Path path, boolean compact) throws IOException
+    {
+        try (JsonStreamWriter writer = JsonStreamWriter.open(path, compact))
+        {
+            writer.startInvertedIndex();
+
+            for (String word : getWords())
+            {
+                termWriter(word, writer);
+            }
+
+            writer.endInvertedIndex();
+        }
+    }
+
+    /**
+	 * Outputs a single word of the InvertedIndex with its locations and positions
+	 *
+	 * @param word      the word to be outputted
+	 * @param writer    the writer the word is streamed to
+	 * @throws IOException if an IO error occurs
+	 */
+    public void termWriter(String word, JsonStreamWriter writer) throws IOException
+    {
+        writer.writeTerm(word, invertedIndexTreeMap.get(word));
+    }
+
+    /**
+	 * Outputs the contents of the InvertedIndex as a segment file that can be reopened with SegmentInvertedIndex.
 	 *
 	 * @param path  the filepath of the file to be outputted
 	 * @throws IOException if an IO error occurs
+	 * @see SegmentInvertedIndex#write(InvertedIndexInterface, Path)
 	 */
-    public void invertedIndexWriter(Path path) throws IOException
+    public void segmentWriter(Path path) throws IOException
     {
-        SimpleJsonWriter.asInvertedIndex(invertedIndexTreeMap, path);
+        SegmentInvertedIndex.write(this, path);
     }
 
     /**
@@ -340,6 +463,8 @@ public class InvertedIndex
     }
     
     /**
+     * Adds the locations of a single word to the search results. The count of each location is read from the
+     * entry being walked and its word count is only looked up the first time the location is found.
      * 
      * @param query         the word to be searched
      * @param searchResults a list that stores search results
@@ -347,29 +472,70 @@ public class InvertedIndex
      */
     private void search(String query, ArrayList<InvertedIndex.Result> searchResults, HashMap<String, InvertedIndex.Result> cachedResults)
     {
-        for (String location : this.invertedIndexTreeMap.get(query).keySet())
+        for (Map.Entry<String, TreeSet<Integer>> entry : this.invertedIndexTreeMap.get(query).entrySet())
         {
-            if (cachedResults.containsKey(location))
+            InvertedIndex.Result cached = cachedResults.get(entry.getKey());
+
+            if (cached != null)
             {
-                cachedResults.get(location).update(query);
+                cached.update(entry.getValue().size());
             }
 
             else
             {
-                Result searchResult = this.new Result(location, query);
+                Result searchResult = new Result(entry.getKey(), entry.getValue().size(), dataCountTreeMap.get(entry.getKey()));
                 searchResults.add(searchResult);
-                cachedResults.put(location, searchResult);
+                cachedResults.put(entry.getKey(), searchResult);
             }
         }
     }
     
+    /**
+     * Sorts search results, keeping only the best results when there is a limit. Limited results are selected
+     * with a bounded heap whose head is the worst result kept so far, so only the kept results are ever sorted.
+     * 
+     * @param searchResults the unsorted search results
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return              the sorted search results
+     */
+    protected static ArrayList<InvertedIndex.Result> rank(ArrayList<InvertedIndex.Result> searchResults, int limit)
+    {
+        if (limit <= ALL_RESULTS || limit >= searchResults.size())
+        {
+            Collections.sort(searchResults);
+            return searchResults;
+        }
+
+        PriorityQueue<InvertedIndex.Result> bestResults = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+
+        for (InvertedIndex.Result searchResult : searchResults)
+        {
+            if (bestResults.size() < limit)
+            {
+                bestResults.add(searchResult);
+            }
+
+            else if (searchResult.compareTo(bestResults.peek()) < 0)
+            {
+                bestResults.poll();
+                bestResults.add(searchResult);
+            }
+        }
+
+        ArrayList<InvertedIndex.Result> rankedResults = new ArrayList<>(bestResults);
+        Collections.sort(rankedResults);
+
+        return rankedResults;
+    }
+
     /**
 	 * Searches for any word stem in the InvertedIndex that starts with a query word
 	 * 
 	 * @param setOfQueries  a set of the queries to be searched for
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
      * @return              a list containing the contents of the set with any word stem that starts with a query word
 	 */
-    public ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries)
+    public ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries, int limit)
     {
         HashMap<String, InvertedIndex.Result> cachedResults = new HashMap<>();
         ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
@@ -390,18 +556,17 @@ public class InvertedIndex
             }
         }
 
-        Collections.sort(searchResults);
-
-        return searchResults;
+        return rank(searchResults, limit);
     }
     
     /**
 	 * Generates search results depending on the queries and the search configuration
 	 * 
 	 * @param setOfQueries      a set of the queries to be searched for
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
      * @return                  a list of search results
 	 */
-    public ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries)
+    public ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries, int limit)
     {
         HashMap<String, InvertedIndex.Result> cachedResults = new HashMap<>();
         ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
@@ -414,26 +579,7 @@ public class InvertedIndex
             }
         }
 
-        Collections.sort(searchResults);
-
-        return searchResults;
-    }
-
-    /**
-	 * Generates search results depending on the queries and the search configuration
-	 * 
-	 * @param setOfQueries      a set of the queries to be searched for
-     * @param isPartialSearch   the type of search to be performed (partial or not)
-     * @return                  a list of search results
-	 */
-    public ArrayList<Result> searchResultsGenerator(Set<String> setOfQueries, boolean isPartialSearch)
-    {
-        if (isPartialSearch)
-        {
-            return partialSearch(setOfQueries);
-        }
-
-        return exactSearch(setOfQueries);
+        return rank(searchResults, limit);
     }
 
     /**
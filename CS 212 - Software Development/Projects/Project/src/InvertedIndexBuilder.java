@@ -1,8 +1,6 @@
 import java.io.*;
 import java.nio.file.*;
-import java.util.*;
 
-import opennlp.tools.stemmer.Stemmer;
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
 
@@ -22,13 +20,13 @@ public class InvertedIndexBuilder
     /**
      * Initializes an InvertedIndex object to be used by the class methods
      */
-    private InvertedIndex index;
+    private InvertedIndexInterface index;
 
     /**
      * Single-arg constructor which implements the InvertedIndex object to be used by the class
      * @param index
      */
-    public InvertedIndexBuilder(InvertedIndex index)
+    public InvertedIndexBuilder(InvertedIndexInterface index)
     {
         this.index = index;
     }
@@ -52,27 +50,29 @@ public class InvertedIndexBuilder
      * @throws FileNotFoundException if a FileNotFound error occurs
 	 * @throws IOException if an IO error occurs
 	 */
-    public static void fileParse(Path path, InvertedIndex index) throws FileNotFoundException, IOException
+    public static void fileParse(Path path, InvertedIndexInterface index) throws FileNotFoundException, IOException
     {
-        try (BufferedReader br = Files.newBufferedReader(path))
-        {
-            Stemmer stemmer = new SnowballStemmer(DEFAULT);
-            
-            int count = 1;
-            String line;
-            String pathName = path.toString();
-            
-            while ((line = br.readLine()) != null)
-            {
-                String[] wordsInLine = TextParser.parse(line);
+        rangeParse(path, 0, Long.MAX_VALUE, index);
+    }
 
-                for (String word : wordsInLine)
-                {
-                    index.add(stemmer.stem(word).toString(), pathName, count);
-                    count++;
-                }
-            }
-        }
+    /**
+	 * Parses through a range of whole lines of a file and adds desired elements to the InvertedIndex, numbering
+	 * the words of the range from one. The words are found by a TextTokenizer, which finds the same words as
+	 * TextParser without reading the file line by line.
+	 *
+	 * @param path      the filepath to search at
+	 * @param start     the byte offset the range starts at
+	 * @param end       the byte offset the range ends at, which may be past the end of the file
+     * @param index     the InvertedIndex to store data in
+     * @return          the number of words added
+	 * @throws IOException if an IO error occurs
+	 */
+    public static int rangeParse(Path path, long start, long end, InvertedIndexInterface index) throws IOException
+    {
+        StemCache stemmer = StemCache.getShared();
+        String pathName = path.toString();
+
+        return TextTokenizer.tokenize(path, start, end, (word, position) -> index.add(stemmer.stem(word), pathName, position));
     }
 
     /**
@@ -81,7 +81,7 @@ public class InvertedIndexBuilder
      * @param path  the filepath to search at
      * @throws FileNotFoundException
      * @throws IOException
-     * @see #fileParse(Path, InvertedIndex)
+     * @see #fileParse(Path, InvertedIndexInterface)
      */
     public void fileParse(Path path) throws FileNotFoundException, IOException
     {
@@ -89,25 +89,20 @@ public class InvertedIndexBuilder
     }
 
     /**
-	 * Recursively searches a filepath for files to fileParse and add to the InvertedIndex
+	 * Recursively searches a filepath for files to fileParse and add to the InvertedIndex. Each file is
+	 * parsed as soon as it is found instead of after the whole tree has been listed.
 	 *
 	 * @param path     the origin filepath to search at
 	 * @throws IOException if an IO error occurs
      * @throws FileNotFoundException if a FileNotFound error occurs
+     * @throws InterruptedException if interrupted while waiting for the files to be parsed, which only a
+     *                              multithreaded builder does
 	 */
-    public void directoryTraverseAndParse(Path path) throws IOException, FileNotFoundException
+    public void directoryTraverseAndParse(Path path) throws IOException, FileNotFoundException, InterruptedException
     {
         if (path != null)
         {
-            List<Path> listing = TextFileFinder.list(path);
-
-            for (Path currentPath : listing)
-            {
-                if (Files.isRegularFile(currentPath))
-                {
-                    fileParse(currentPath);
-                }
-            }
+            TextFileFinder.walk(path, (file, attributes) -> fileParse(file));
 		}
     }
 }
\ No newline at end of file
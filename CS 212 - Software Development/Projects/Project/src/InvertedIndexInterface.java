@@ -0,0 +1,228 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Use of an interface for the InvertedIndex allows for indexes that store their words in different ways, or guard
+ * them in different ways, to be built, searched and written by the same classes
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public interface InvertedIndexInterface
+{
+    /**
+     * The search result limit that keeps every result, such as when writing results as JSON
+     */
+    public static final int ALL_RESULTS = 0;
+
+    /**
+	 * Returns an unmodifiable set of the words in the InvertedIndex
+	 *
+	 * @return  a set with the words (keys) of the InvertedIndex
+	 */
+    public Set<String> getWords();
+
+    /**
+     * Returns an unmodifiable set of the locations of a word in the InvertedIndex
+     *
+	 * @param word  the word that the locations pertain to
+	 * @return      a set with the locations associated with the word
+	 */
+    public Set<String> getLocations(String word);
+
+    /**
+	 * Returns an unmodifiable set of the positions of a word at a location in the InvertedIndex
+	 *
+	 * @param word      the word that the locations pertain to
+	 * @param location  the location the set pertains to
+	 * @return          a set with the positions associated with the word at a locations
+	 */
+    public Set<Integer> getPositions(String word, String location);
+
+    /**
+	 * Counts a specific location for a text file
+	 *
+	 * @param location  the location to be counted at
+	 * @return          the count at the specified location
+	 */
+    public Integer getLocationCount(String location);
+
+    /**
+	 * Adds a word to the InvertedIndex along with its accompanying attributes
+	 *
+	 * @param word     the word to add
+	 * @param path     the filepath to be added from
+	 * @param location the location in the file where the word was found
+	 */
+    public void add(String word, String path, int location);
+
+    /**
+	 * Adds all words to the InvertedIndex from another
+	 *
+	 * @param originIndex     the index to copy from
+	 */
+    public void addAll(InvertedIndex originIndex);
+
+    /**
+	 * Removes every word and the word count of a location
+	 *
+	 * @param location  the location to be removed
+	 * @return          whether the location was in the InvertedIndex
+	 */
+    public boolean removeLocation(String location);
+
+    /**
+	 * Replaces the words of a location with those of a newly built index, such as after the file at that
+	 * location changed. The other index should only contain that location.
+	 *
+	 * @param location  the location to be replaced
+	 * @param document  the index holding the new words of the location
+	 */
+    public void replaceLocation(String location, InvertedIndex document);
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word or not
+	 *
+	 * @param word     the word to check
+	 * @return         whether the word is contained or not
+	 */
+    public boolean contains(String word);
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    public boolean contains(String word, String location);
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location and position or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+     * @param position the position to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    public boolean contains(String word, String location, int position);
+
+    /**
+	 * Outputs the contents of the InvertedIndex in the JSON format.
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 * @see #invertedIndexWriter(Path, boolean)
+	 */
+    public default void invertedIndexWriter(Path path) throws IOException
+    {
+        invertedIndexWriter(path, false);
+    }
+
+    /**
+	 * Outputs the contents of the InvertedIndex in the JSON format, streaming one word at a time.
+	 *
+	 * @param path      the filepath of the file to be outputted
+	 * @param compact   whether newlines and indents are left out
+	 * @throws IOException if an IO error occurs
+	 */
+    public void invertedIndexWriter(Path path, boolean compact) throws IOException;
+
+    /**
+	 * Outputs a single word of the InvertedIndex with its locations and positions
+	 *
+	 * @param word      the word to be outputted
+	 * @param writer    the writer the word is streamed to
+	 * @throws IOException if an IO error occurs
+	 */
+    public void termWriter(String word, JsonStreamWriter writer) throws IOException;
+
+    /**
+	 * Outputs the contents of the InvertedIndex as a segment file that can be reopened with SegmentInvertedIndex.
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 */
+    public void segmentWriter(Path path) throws IOException;
+
+    /**
+	 * Creates a writer for the -counts flag and outputs to the file passed
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 */
+    public void dataCountWriter(Path path) throws IOException;
+
+    /**
+	 * Searches for any word stem in the InvertedIndex that starts with a query word
+	 *
+	 * @param setOfQueries  a set of the queries to be searched for
+     * @return              a list containing the contents of the set with any word stem that starts with a query word
+     * @see #partialSearch(Set, int)
+	 */
+    public default ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries)
+    {
+        return partialSearch(setOfQueries, ALL_RESULTS);
+    }
+
+    /**
+	 * Searches for any word stem in the InvertedIndex that starts with a query word
+	 *
+	 * @param setOfQueries  a set of the queries to be searched for
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return              a list containing the contents of the set with any word stem that starts with a query word
+	 */
+    public ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries, int limit);
+
+    /**
+	 * Generates search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @return                  a list of search results
+     * @see #exactSearch(Set, int)
+	 */
+    public default ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries)
+    {
+        return exactSearch(setOfQueries, ALL_RESULTS);
+    }
+
+    /**
+	 * Generates search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return                  a list of search results
+	 */
+    public ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries, int limit);
+
+    /**
+	 * Generates search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @param isPartialSearch   the type of search to be performed (partial or not)
+     * @return                  a list of search results
+	 */
+    public default ArrayList<InvertedIndex.Result> searchResultsGenerator(Set<String> setOfQueries, boolean isPartialSearch)
+    {
+        return searchResultsGenerator(setOfQueries, isPartialSearch, ALL_RESULTS);
+    }
+
+    /**
+	 * Generates the best search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @param isPartialSearch   the type of search to be performed (partial or not)
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return                  a list of search results
+	 */
+    public default ArrayList<InvertedIndex.Result> searchResultsGenerator(Set<String> setOfQueries, boolean isPartialSearch, int limit)
+    {
+        if (isPartialSearch)
+        {
+            return partialSearch(setOfQueries, limit);
+        }
+
+        return exactSearch(setOfQueries, limit);
+    }
+}
@@ -0,0 +1,689 @@
+import java.io.*;
+import java.math.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Streams an InvertedIndex or search results as JSON straight into a large byte buffer that is drained to a
+ * channel, such as a FileChannel, whenever it fills. Text is encoded as UTF-8 and numbers are formatted
+ * without creating any Strings or formatters. Pretty output is byte-for-byte the same as SimpleJsonWriter,
+ * and compact output leaves out every newline and indent.
+ *
+ * An index can be written a word at a time with {@link #startInvertedIndex()}, {@link #writeTerm(String, Map)}
+ * and {@link #endInvertedIndex()}, so a thread-safe index only needs to hold its lock while a single word is
+ * being written.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class JsonStreamWriter implements Closeable
+{
+    /**
+     * The default number of bytes buffered before they are written to the channel
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+
+    /**
+     * The number of decimal places scores are written with
+     */
+    private static final int SCORE_DIGITS = 8;
+
+    /**
+     * The factor that moves the decimal places of a score in front of the decimal point
+     */
+    private static final double SCORE_SCALE = 1e8;
+
+    /**
+     * The largest score that is formatted with primitive arithmetic, small enough that the scaled score is
+     * accurate to well within the distance from a tie that is checked for
+     */
+    private static final double FAST_SCORE_LIMIT = 1e3;
+
+    /**
+     * The channel the buffer is drained to
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * Whether newlines and indents are left out
+     */
+    private final boolean compact;
+
+    /**
+     * The bytes waiting to be written
+     */
+    private final byte[] bytes;
+
+    /**
+     * A view of the bytes used to write them to the channel
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of bytes waiting to be written
+     */
+    private int length;
+
+    /**
+     * Scratch space for the digits of a number
+     */
+    private final byte[] digits;
+
+    /**
+     * Whether the next word written by {@link #writeTerm(String, Map)} is the first word of the index
+     */
+    private boolean firstTerm;
+
+    /**
+     * Multi-arg constructor which implements a writer with the default buffer size
+     *
+     * @param channel   the channel to write to
+     * @param compact   whether newlines and indents are left out
+     */
+    public JsonStreamWriter(WritableByteChannel channel, boolean compact)
+    {
+        this(channel, compact, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Multi-arg constructor which implements a writer
+     *
+     * @param channel       the channel to write to
+     * @param compact       whether newlines and indents are left out
+     * @param bufferSize    the number of bytes buffered before they are written to the channel
+     */
+    public JsonStreamWriter(WritableByteChannel channel, boolean compact, int bufferSize)
+    {
+        this.channel = channel;
+        this.compact = compact;
+        bytes = new byte[Math.max(bufferSize, 64)];
+        buffer = ByteBuffer.wrap(bytes);
+        digits = new byte[20];
+    }
+
+    /**
+     * Opens a writer to a file, replacing anything already there
+     *
+     * @param path      the filepath to write to
+     * @param compact   whether newlines and indents are left out
+     * @return          the writer
+     * @throws IOException if an IO error occurs
+     */
+    public static JsonStreamWriter open(Path path, boolean compact) throws IOException
+    {
+        return new JsonStreamWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), compact);
+    }
+
+    /**
+     * Writes every word of an InvertedIndex with its locations and positions
+     *
+     * @param index the index to write
+     * @throws IOException if an IO error occurs
+     */
+    public void writeInvertedIndex(InvertedIndexInterface index) throws IOException
+    {
+        startInvertedIndex();
+
+        for (String word : index.getWords())
+        {
+            writeTerm(word, index);
+        }
+
+        endInvertedIndex();
+    }
+
+    /**
+     * Starts an InvertedIndex whose words are written one at a time
+     *
+     * @throws IOException if an IO error occurs
+     */
+    public void startInvertedIndex() throws IOException
+    {
+        write('{');
+        firstTerm = true;
+    }
+
+    /**
+     * Writes a word of an InvertedIndex with its locations and positions, read through the index's accessors.
+     * Words without any locations are skipped.
+     *
+     * @param word  the word to write
+     * @param index the index the word is in
+     * @throws IOException if an IO error occurs
+     */
+    public void writeTerm(String word, InvertedIndexInterface index) throws IOException
+    {
+        Set<String> locations = index.getLocations(word);
+
+        if (locations.isEmpty())
+        {
+            return;
+        }
+
+        startTerm(word);
+
+        Iterator<String> locationIterator = locations.iterator();
+
+        while (locationIterator.hasNext())
+        {
+            String location = locationIterator.next();
+            writeLocation(location, index.getPositions(word, location), locationIterator.hasNext());
+        }
+
+        endTerm();
+    }
+
+    /**
+     * Writes a word of an InvertedIndex with its locations and positions. Words without any locations are skipped.
+     *
+     * @param word      the word to write
+     * @param locations the positions of the word at each of its locations, in order
+     * @throws IOException if an IO error occurs
+     */
+    public void writeTerm(String word, Map<String, ? extends Collection<Integer>> locations) throws IOException
+    {
+        if (locations == null || locations.isEmpty())
+        {
+            return;
+        }
+
+        startTerm(word);
+
+        Iterator<? extends Map.Entry<String, ? extends Collection<Integer>>> locationIterator = locations.entrySet().iterator();
+
+        while (locationIterator.hasNext())
+        {
+            Map.Entry<String, ? extends Collection<Integer>> entry = locationIterator.next();
+            writeLocation(entry.getKey(), entry.getValue(), locationIterator.hasNext());
+        }
+
+        endTerm();
+    }
+
+    /**
+     * Ends an InvertedIndex whose words were written one at a time
+     *
+     * @throws IOException if an IO error occurs
+     */
+    public void endInvertedIndex() throws IOException
+    {
+        newline();
+        write('}');
+    }
+
+    /**
+     * Writes the search results of every query
+     *
+     * @param elements  the search results of each query, in order
+     * @throws IOException if an IO error occurs
+     */
+    public void writeQueryOutput(Map<String, ? extends List<InvertedIndex.Result>> elements) throws IOException
+    {
+        Iterator<? extends Map.Entry<String, ? extends List<InvertedIndex.Result>>> queryIterator = elements.entrySet().iterator();
+
+        write('{');
+
+        while (queryIterator.hasNext())
+        {
+            Map.Entry<String, ? extends List<InvertedIndex.Result>> entry = queryIterator.next();
+
+            newline();
+            indent(1);
+            quote(entry.getKey());
+            write(compact ? ":[" : ": [");
+            newline();
+
+            Iterator<InvertedIndex.Result> resultIterator = entry.getValue().iterator();
+
+            while (resultIterator.hasNext())
+            {
+                InvertedIndex.Result result = resultIterator.next();
+
+                indent(2);
+                write('{');
+                newline();
+
+                indent(3);
+                write(compact ? "\"where\":" : "\"where\": ");
+                quote(result.getLocation());
+                write(',');
+                newline();
+
+                indent(3);
+                write(compact ? "\"count\":" : "\"count\": ");
+                writeInt(result.getCount());
+                write(',');
+                newline();
+
+                indent(3);
+                write(compact ? "\"score\":" : "\"score\": ");
+                writeScore(result.getPriority());
+                newline();
+
+                indent(2);
+                write('}');
+
+                if (resultIterator.hasNext())
+                {
+                    write(',');
+                }
+
+                newline();
+            }
+
+            indent(1);
+            write(']');
+
+            if (queryIterator.hasNext())
+            {
+                write(',');
+            }
+        }
+
+        newline();
+        write('}');
+    }
+
+    /**
+     * Writes any buffered bytes to the channel
+     *
+     * @throws IOException if an IO error occurs
+     */
+    public void flush() throws IOException
+    {
+        buffer.clear().limit(length);
+
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+
+        length = 0;
+    }
+
+    /**
+     * Writes any buffered bytes and closes the channel
+     *
+     * @throws IOException if an IO error occurs
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the opening of a word, separated from the word before it
+     *
+     * @param word  the word
+     * @throws IOException if an IO error occurs
+     */
+    private void startTerm(String word) throws IOException
+    {
+        if (!firstTerm)
+        {
+            write(',');
+        }
+
+        firstTerm = false;
+
+        newline();
+        indent(1);
+        quote(word);
+        write(compact ? ":{" : ": {");
+        newline();
+    }
+
+    /**
+     * Writes the closing of a word
+     *
+     * @throws IOException if an IO error occurs
+     */
+    private void endTerm() throws IOException
+    {
+        indent(1);
+        write('}');
+    }
+
+    /**
+     * Writes a location of a word with its positions
+     *
+     * @param location  the location
+     * @param positions the positions of the word at the location, in order
+     * @param hasNext   whether another location of the word follows
+     * @throws IOException if an IO error occurs
+     */
+    private void writeLocation(String location, Collection<Integer> positions, boolean hasNext) throws IOException
+    {
+        indent(2);
+        quote(location);
+        write(compact ? ":[" : ": [");
+        newline();
+
+        Iterator<Integer> positionIterator = positions.iterator();
+        int indent = compact ? 0 : 6;
+
+        while (positionIterator.hasNext())
+        {
+            int position = positionIterator.next();
+
+            // room for the indent, the digits of any int, the comma and the newline
+            ensure(indent + 13);
+
+            for (int i = 0; i < indent; i++)
+            {
+                bytes[length++] = ' ';
+            }
+
+            if (position < 0)
+            {
+                writeInt(position);
+            }
+
+            else
+            {
+                int start = length;
+
+                do
+                {
+                    bytes[length++] = (byte) ('0' + position % 10);
+                    position /= 10;
+                }
+                while (position > 0);
+
+                reverse(start, length - 1);
+            }
+
+            if (positionIterator.hasNext())
+            {
+                bytes[length++] = ',';
+            }
+
+            if (!compact)
+            {
+                bytes[length++] = '\n';
+            }
+        }
+
+        indent(2);
+        write(']');
+
+        if (hasNext)
+        {
+            write(',');
+        }
+
+        newline();
+    }
+
+    /**
+     * Reverses the order of buffered bytes
+     *
+     * @param first the index of the first byte
+     * @param last  the index of the last byte
+     */
+    private void reverse(int first, int last)
+    {
+        while (first < last)
+        {
+            byte swap = bytes[first];
+            bytes[first++] = bytes[last];
+            bytes[last--] = swap;
+        }
+    }
+
+    /**
+     * Makes sure there is room in the buffer, draining it to the channel if necessary
+     *
+     * @param needed    the number of bytes about to be written
+     * @throws IOException if an IO error occurs
+     */
+    private void ensure(int needed) throws IOException
+    {
+        if (length + needed > bytes.length)
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Writes a single ASCII character
+     *
+     * @param c the character
+     * @throws IOException if an IO error occurs
+     */
+    private void write(char c) throws IOException
+    {
+        ensure(1);
+        bytes[length++] = (byte) c;
+    }
+
+    /**
+     * Writes ASCII text
+     *
+     * @param text  the text
+     * @throws IOException if an IO error occurs
+     */
+    private void write(String text) throws IOException
+    {
+        ensure(text.length());
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            bytes[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a newline unless the output is compact
+     *
+     * @throws IOException if an IO error occurs
+     */
+    private void newline() throws IOException
+    {
+        if (!compact)
+        {
+            write('\n');
+        }
+    }
+
+    /**
+     * Writes two spaces for each indent level unless the output is compact
+     *
+     * @param level the indent level
+     * @throws IOException if an IO error occurs
+     */
+    private void indent(int level) throws IOException
+    {
+        if (compact)
+        {
+            return;
+        }
+
+        ensure(level * 2);
+
+        for (int i = level * 2; i > 0; i--)
+        {
+            bytes[length++] = ' ';
+        }
+    }
+
+    /**
+     * Writes text surrounded by quotation marks, encoded as UTF-8
+     *
+     * @param text  the text
+     * @throws IOException if an IO error occurs
+     */
+    private void quote(String text) throws IOException
+    {
+        if ((long) text.length() * 3 + 2 > bytes.length)
+        {
+            write('"');
+            writeLarge(text.getBytes(StandardCharsets.UTF_8));
+            write('"');
+            return;
+        }
+
+        // a char takes at most 3 bytes, and a surrogate pair takes 4 bytes for its 2 chars
+        ensure(text.length() * 3 + 2);
+
+        bytes[length++] = '"';
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+
+            if (c < 0x80)
+            {
+                bytes[length++] = (byte) c;
+            }
+
+            else if (c < 0x800)
+            {
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+
+            else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+
+            else if (Character.isSurrogate(c))
+            {
+                bytes[length++] = '?';
+            }
+
+            else
+            {
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        bytes[length++] = '"';
+    }
+
+    /**
+     * Writes bytes that may not fit in the buffer
+     *
+     * @param encoded   the bytes
+     * @throws IOException if an IO error occurs
+     */
+    private void writeLarge(byte[] encoded) throws IOException
+    {
+        int offset = 0;
+
+        while (offset < encoded.length)
+        {
+            if (length == bytes.length)
+            {
+                flush();
+            }
+
+            int chunk = Math.min(encoded.length - offset, bytes.length - length);
+
+            System.arraycopy(encoded, offset, bytes, length, chunk);
+            length += chunk;
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Writes a non-negative integer in decimal
+     *
+     * @param value the value
+     * @throws IOException if an IO error occurs
+     */
+    private void writeInt(long value) throws IOException
+    {
+        if (value < 0)
+        {
+            write(Long.toString(value));
+            return;
+        }
+
+        int count = 0;
+
+        do
+        {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        while (value > 0);
+
+        ensure(count);
+
+        while (count > 0)
+        {
+            bytes[length++] = digits[--count];
+        }
+    }
+
+    /**
+     * Writes a score with exactly eight decimal places, rounded half-even like a DecimalFormat with the pattern
+     * {@code 0.00000000}. Scores that are too large or too close to a tie to round with doubles are rounded
+     * exactly with BigDecimal instead.
+     *
+     * @param score the score
+     * @throws IOException if an IO error occurs
+     */
+    private void writeScore(double score) throws IOException
+    {
+        if (!(score >= 0 && score < FAST_SCORE_LIMIT))
+        {
+            write(new BigDecimal(score).setScale(SCORE_DIGITS, RoundingMode.HALF_EVEN).toPlainString());
+            return;
+        }
+
+        double scaled = score * SCORE_SCALE;
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+
+        if (Math.abs(fraction - 0.5) < 1e-4)
+        {
+            write(new BigDecimal(score).setScale(SCORE_DIGITS, RoundingMode.HALF_EVEN).toPlainString());
+            return;
+        }
+
+        if (fraction > 0.5)
+        {
+            whole++;
+        }
+
+        long integerPart = whole / (long) SCORE_SCALE;
+        long fractionPart = whole % (long) SCORE_SCALE;
+
+        writeInt(integerPart);
+        ensure(SCORE_DIGITS + 1);
+        bytes[length++] = '.';
+
+        for (int i = SCORE_DIGITS - 1; i >= 0; i--)
+        {
+            bytes[length + i] = (byte) ('0' + fractionPart % 10);
+            fractionPart /= 10;
+        }
+
+        length += SCORE_DIGITS;
+    }
+}
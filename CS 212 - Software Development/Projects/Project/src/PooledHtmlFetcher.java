@@ -0,0 +1,361 @@
+import java.net.*;
+import java.net.http.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Fetches HTML the same way as {@link HtmlFetcher}, but without a blocking socket per request. Requests are
+ * sent asynchronously by a shared HttpClient, which uses non-blocking I/O and keeps HTTP/1.1 connections
+ * alive so they are reused for later requests to the same host. A {@link HostScheduler} decides when each
+ * request is sent, limiting how many are in flight overall and for each host, so crawl throughput depends on
+ * the network latency rather than on how many threads are waiting for responses. Validators from an earlier
+ * response can be sent along with a request, so a page that did not change is not downloaded again.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class PooledHtmlFetcher
+{
+    /**
+     * The outcome of fetching a page
+     */
+    public static class Page
+    {
+        /**
+         * The HTML of the page, or null if there is none
+         */
+        private final String html;
+
+        /**
+         * Whether the server reported that the page did not change
+         */
+        private final boolean notModified;
+
+        /**
+         * The ETag the server sent, or null
+         */
+        private final String etag;
+
+        /**
+         * The Last-Modified date the server sent, or null
+         */
+        private final String lastModified;
+
+        /**
+         * Multi-arg constructor which implements a page
+         *
+         * @param html          the HTML of the page, or null if there is none
+         * @param notModified   whether the server reported that the page did not change
+         * @param etag          the ETag the server sent, or null
+         * @param lastModified  the Last-Modified date the server sent, or null
+         */
+        public Page(String html, boolean notModified, String etag, String lastModified)
+        {
+            this.html = html;
+            this.notModified = notModified;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Returns the HTML of the page
+         *
+         * @return  the HTML, or null if the page is not HTML, was not modified or could not be fetched
+         */
+        public String getHtml()
+        {
+            return html;
+        }
+
+        /**
+         * Returns whether the server reported that the page did not change
+         *
+         * @return  true if the page was not modified
+         */
+        public boolean isNotModified()
+        {
+            return notModified;
+        }
+
+        /**
+         * Returns the ETag the server sent
+         *
+         * @return  the ETag, or null
+         */
+        public String getEtag()
+        {
+            return etag;
+        }
+
+        /**
+         * Returns the Last-Modified date the server sent
+         *
+         * @return  the date, or null
+         */
+        public String getLastModified()
+        {
+            return lastModified;
+        }
+    }
+
+    /**
+     * The outcome of a fetch that did not return HTML
+     */
+    private static final Page NO_PAGE = new Page(null, false, null, null);
+
+    /**
+     * The default number of requests that can be in flight at a time
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 32;
+
+    /**
+     * The default number of requests that can be in flight at a time when fetches are meant to wait on the
+     * network in the thousands, as the -virtual mode of the Driver does
+     */
+    public static final int DEFAULT_VIRTUAL_IN_FLIGHT = 4096;
+
+    /**
+     * How long to wait for a connection to be opened
+     */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * The number of times a request is sent before a failed connection is given up on. A pooled connection can
+     * be closed by the server just as it is reused, so a request that fails without a response is sent again.
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    /**
+     * How long to wait for a response
+     */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The client that sends every request and pools the connections
+     */
+    private final HttpClient client;
+
+    /**
+     * The scheduler deciding when each request is sent
+     */
+    private final HostScheduler scheduler;
+
+    /**
+     * Zero-arg constructor which implements a fetcher with the default number of requests in flight
+     */
+    public PooledHtmlFetcher()
+    {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Single-arg constructor which implements a fetcher
+     *
+     * @param maxInFlight   the number of requests that can be in flight at a time
+     */
+    public PooledHtmlFetcher(int maxInFlight)
+    {
+        this(new HostScheduler(maxInFlight, HostScheduler.DEFAULT_MAX_PER_HOST));
+    }
+
+    /**
+     * Single-arg constructor which implements a fetcher sending requests when the scheduler allows
+     *
+     * @param scheduler the scheduler deciding when each request is sent
+     */
+    public PooledHtmlFetcher(HostScheduler scheduler)
+    {
+        this.scheduler = scheduler;
+
+        client = newClient().build();
+    }
+
+    /**
+     * Multi-arg constructor which implements a fetcher completing its responses on a fixed number of threads.
+     * A request in flight holds a connection but no thread, so thousands of requests can wait on a slow network
+     * at once without the client starting a thread for each response that arrives while the others are busy.
+     *
+     * @param scheduler the scheduler deciding when each request is sent
+     * @param threads   the number of threads completing responses
+     */
+    public PooledHtmlFetcher(HostScheduler scheduler, int threads)
+    {
+        this.scheduler = scheduler;
+
+        client = newClient().executor(Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        })).build();
+    }
+
+    /**
+     * Returns a builder for the client shared by every constructor
+     *
+     * @return  the builder
+     */
+    private static HttpClient.Builder newClient()
+    {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Returns the number of requests that can be in flight at a time
+     *
+     * @return  the number of requests
+     */
+    public int getMaxInFlight()
+    {
+        return scheduler.getMaxInFlight();
+    }
+
+    /**
+     * Fetches the resource at the URL. If the status code is 200 and the content type is HTML, the future
+     * completes with the HTML, with its lines joined by newlines as {@link HtmlFetcher#fetch(URL, int)} returns it.
+     * Redirects are followed while the number of redirects is greater than 0. Otherwise, the future completes
+     * with {@code null}. The future never completes exceptionally.
+     *
+     * @param url       the url to fetch
+     * @param redirects the number of times to follow redirects
+     * @return          a future for the html or {@code null}
+     */
+    public CompletableFuture<String> fetch(URL url, int redirects)
+    {
+        return fetch(url, redirects, null, null).thenApply(Page::getHtml);
+    }
+
+    /**
+     * Fetches the resource at the URL the same way as {@link #fetch(URL, int)}, sending the validators of an
+     * earlier response so the server can report that the page did not change instead of sending it again.
+     * The validators are only sent to the URL itself, never to a URL it redirects to.
+     *
+     * @param url           the url to fetch
+     * @param redirects     the number of times to follow redirects
+     * @param etag          the ETag of an earlier response, or null
+     * @param lastModified  the Last-Modified date of an earlier response, or null
+     * @return              a future for the page
+     */
+    public CompletableFuture<Page> fetch(URL url, int redirects, String etag, String lastModified)
+    {
+        CompletableFuture<Page> result = new CompletableFuture<>();
+        HttpRequest request;
+
+        try
+        {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(url.toURI()).timeout(REQUEST_TIMEOUT).GET();
+
+            if (etag != null)
+            {
+                builder.header("If-None-Match", etag);
+            }
+
+            if (lastModified != null)
+            {
+                builder.header("If-Modified-Since", lastModified);
+            }
+
+            request = builder.build();
+        }
+
+        catch (URISyntaxException | IllegalArgumentException e)
+        {
+            result.complete(NO_PAGE);
+            return result;
+        }
+
+        String host = url.getHost().toLowerCase() + ":" + (url.getPort() < 0 ? url.getDefaultPort() : url.getPort());
+
+        send(host, request, 1, redirects, etag, lastModified, result);
+
+        return result;
+    }
+
+    /**
+     * Sends a request when the scheduler allows, sending it again if it fails without a response
+     *
+     * @param host          the host of the request
+     * @param request       the request
+     * @param attempt       the number of times the request has been sent, including this one
+     * @param redirects     the number of times to follow redirects
+     * @param etag          the ETag sent with the request, or null
+     * @param lastModified  the Last-Modified date sent with the request, or null
+     * @param result        the future to complete
+     */
+    private void send(String host, HttpRequest request, int attempt, int redirects, String etag, String lastModified, CompletableFuture<Page> result)
+    {
+        scheduler.submit(host, () -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .whenComplete((response, error) -> {
+                    scheduler.release(host);
+
+                    if (response == null && attempt < MAX_ATTEMPTS)
+                    {
+                        send(host, request, attempt + 1, redirects, etag, lastModified, result);
+                        return;
+                    }
+
+                    handle(response, redirects, etag, lastModified, result);
+                }));
+    }
+
+    /**
+     * Completes a fetch from its response, following a redirect if necessary
+     *
+     * @param response      the response, or null if the request failed
+     * @param redirects     the number of times to follow redirects
+     * @param etag          the ETag sent with the request, or null
+     * @param lastModified  the Last-Modified date sent with the request, or null
+     * @param result        the future to complete
+     */
+    private void handle(HttpResponse<String> response, int redirects, String etag, String lastModified, CompletableFuture<Page> result)
+    {
+        if (response == null)
+        {
+            result.complete(NO_PAGE);
+            return;
+        }
+
+        int status = response.statusCode();
+        HttpHeaders headers = response.headers();
+
+        if (status >= 200 && status < 300)
+        {
+            boolean isHtml = headers.firstValue("Content-Type").map(type -> type.startsWith("text/html")).orElse(false);
+
+            result.complete(isHtml ? new Page(response.body().lines().collect(Collectors.joining("\n")), false,
+                    headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null)) : NO_PAGE);
+            return;
+        }
+
+        if (status == 304 && (etag != null || lastModified != null))
+        {
+            result.complete(new Page(null, true, headers.firstValue("ETag").orElse(etag), headers.firstValue("Last-Modified").orElse(lastModified)));
+            return;
+        }
+
+        Optional<String> location = headers.firstValue("Location");
+
+        if (status >= 300 && status < 400 && redirects > 0 && location.isPresent())
+        {
+            try
+            {
+                // the validators belong to the original URL, so the redirected fetch is unconditional
+                fetch(new URL(location.get()), redirects - 1, null, null).thenAccept(result::complete);
+                return;
+            }
+
+            catch (MalformedURLException e)
+            {
+                result.complete(NO_PAGE);
+                return;
+            }
+        }
+
+        result.complete(NO_PAGE);
+    }
+}
@@ -20,13 +20,30 @@ public class QueryBuilder implements QueryBuilderInterface
      */
     private final TreeMap<String, ArrayList<InvertedIndex.Result>> cachedResults;
 
+    /**
+     * The maximum number of results kept for each query
+     */
+    private final int limit;
+
     /**
      * Multi-arg constructor that defines index and implements a TreeMap of results
      * @param index
      */
     public QueryBuilder(InvertedIndex index)
+    {
+        this(index, InvertedIndex.ALL_RESULTS);
+    }
+
+    /**
+     * Multi-arg constructor that defines index and the number of results kept for each query
+     * 
+     * @param index the InvertedIndex to be searched
+     * @param limit the maximum number of results kept for each query, or ALL_RESULTS to keep every result
+     */
+    public QueryBuilder(InvertedIndex index, int limit)
     {
         this.index = index;
+        this.limit = limit;
         cachedResults = new TreeMap<>();
     }
     
@@ -48,18 +65,22 @@ public class QueryBuilder implements QueryBuilderInterface
             return;
         }
 
-        cachedResults.put(mergedStems, index.searchResultsGenerator(setOfStems, isPartialSearch));
+        cachedResults.put(mergedStems, index.searchResultsGenerator(setOfStems, isPartialSearch, limit));
     }
 
 	/**
 	 * Writes the output of a search to a file.
 	 * 
-	 * @param path  the path where the output file will be saved
+	 * @param path      the path where the output file will be saved
+	 * @param compact   whether newlines and indents are left out
 	 * @throws IOException if an IO error occurs
 	 */
     @Override
-    public void queryWriter(Path path) throws IOException
+    public void queryWriter(Path path, boolean compact) throws IOException
     {
-        SimpleJsonWriter.asQueryOutput(cachedResults, path);
+        try (JsonStreamWriter writer = JsonStreamWriter.open(path, compact))
+        {
+            writer.writeQueryOutput(cachedResults);
+        }
 	}
 }
\ No newline at end of file
@@ -48,6 +48,19 @@ public interface QueryBuilderInterface
 	 * 
 	 * @param path  the path where the output file will be saved
 	 * @throws IOException if an IO error occurs
+	 * @see #queryWriter(Path, boolean)
 	 */
-    public void queryWriter(Path path) throws IOException;
+    public default void queryWriter(Path path) throws IOException
+    {
+        queryWriter(path, false);
+    }
+
+    /**
+	 * Writes the output of a search to a file.
+	 * 
+	 * @param path      the path where the output file will be saved
+	 * @param compact   whether newlines and indents are left out
+	 * @throws IOException if an IO error occurs
+	 */
+    public void queryWriter(Path path, boolean compact) throws IOException;
 }
\ No newline at end of file
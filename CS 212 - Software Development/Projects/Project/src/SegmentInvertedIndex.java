@@ -0,0 +1,759 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Read-only InvertedIndex backed by an immutable segment file that is memory-mapped instead of being read
+ * onto the heap. A segment is written from any InvertedIndex with {@link #write(InvertedIndexInterface, Path)} and
+ * has the following layout, with every integer stored big-endian:
+ *
+ * <pre>
+ * header     magic, version, document count, term count, dictionary offset (long)
+ * documents  one entry per document ID (ordered by location): name offset (long), word count (int)
+ * terms      one entry per term ID (ordered by word): postings offset (long), document count (int)
+ * data       locations as a varint length followed by UTF-8 bytes, and postings as a sequence of
+ *            (document ID delta, position count, position byte length, delta encoded positions) varints
+ * dictionary a {@link TermDictionary} mapping each word to its term ID, read in place
+ * </pre>
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class SegmentInvertedIndex extends InvertedIndex
+{
+    /**
+     * Nested class that tracks the file offset of a buffered stream as it is written
+     */
+    private static class CountingOutputStream extends BufferedOutputStream
+    {
+        /**
+         * The file offset of the next byte to be written
+         */
+        private long offset;
+
+        /**
+         * Multi-arg constructor which implements the stream and its starting offset
+         *
+         * @param out       the stream to be written to
+         * @param offset    the file offset of the first byte
+         */
+        private CountingOutputStream(OutputStream out, long offset)
+        {
+            super(out, 1 << 16);
+            this.offset = offset;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException
+        {
+            super.write(b);
+            offset++;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException
+        {
+            super.write(b, off, len);
+            offset += len;
+        }
+    }
+
+    /**
+     * The value every segment file starts with
+     */
+    public static final int MAGIC = 0x53494458;
+
+    /**
+     * The version of the segment layout written by this class
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The number of bytes in the header
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * The number of bytes in each entry of the documents table
+     */
+    private static final int DOCUMENT_ENTRY_SIZE = 12;
+
+    /**
+     * The number of bytes in each entry of the terms table
+     */
+    private static final int TERM_ENTRY_SIZE = 12;
+
+    /**
+     * The memory-mapped contents of the segment file
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of documents in the segment
+     */
+    private final int documentCount;
+
+    /**
+     * The dictionary from each word to its term ID, read from the mapped segment
+     */
+    private final TermDictionary dictionary;
+
+    /**
+     * The offset in bytes where the terms table starts
+     */
+    private final int termsOffset;
+
+    /**
+     * Single-arg constructor which maps a segment file into memory
+     *
+     * @param path  the filepath of the segment file
+     * @throws IOException if an IO error occurs or the file is not a segment
+     */
+    public SegmentInvertedIndex(Path path) throws IOException
+    {
+        super();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Segment larger than 2 GB cannot be mapped: " + path);
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+        {
+            throw new IOException("Not a segment file: " + path);
+        }
+
+        documentCount = buffer.getInt(8);
+        termsOffset = HEADER_SIZE + documentCount * DOCUMENT_ENTRY_SIZE;
+        dictionary = new TermDictionary(buffer.position((int) buffer.getLong(16)));
+    }
+
+    /**
+     * Writes the contents of an InvertedIndex as a segment file
+     *
+     * @param index the index to write
+     * @param path  the filepath of the segment file
+     * @throws IOException if an IO error occurs
+     */
+    public static void write(InvertedIndexInterface index, Path path) throws IOException
+    {
+        TreeSet<String> setOfLocations = new TreeSet<>();
+
+        for (String word : index.getWords())
+        {
+            setOfLocations.addAll(index.getLocations(word));
+        }
+
+        String[] locations = setOfLocations.toArray(new String[0]);
+        HashMap<String, Integer> documentIds = new HashMap<>();
+
+        for (int i = 0; i < locations.length; i++)
+        {
+            documentIds.put(locations[i], i);
+        }
+
+        int termCount = index.getWords().size();
+        long dataOffset = HEADER_SIZE + (long) locations.length * DOCUMENT_ENTRY_SIZE + (long) termCount * TERM_ENTRY_SIZE;
+
+        long[] locationOffsets = new long[locations.length];
+        TermDictionary dictionary = new TermDictionary();
+        long[] postingsOffsets = new long[termCount];
+        int[] documentCounts = new int[termCount];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            channel.position(dataOffset);
+
+            CountingOutputStream data = new CountingOutputStream(Channels.newOutputStream(channel), dataOffset);
+
+            for (int i = 0; i < locations.length; i++)
+            {
+                locationOffsets[i] = data.offset;
+                writeString(locations[i], data);
+            }
+
+            ByteArrayOutputStream positionBytes = new ByteArrayOutputStream();
+            int term = 0;
+
+            for (String word : index.getWords())
+            {
+                // words are added in ascending order, so each term ID is the index of its terms table entry
+                dictionary.add(word);
+                postingsOffsets[term] = data.offset;
+                int previousDocument = 0;
+
+                for (String location : index.getLocations(word))
+                {
+                    int document = documentIds.get(location);
+                    int previousPosition = 0;
+                    Set<Integer> positions = index.getPositions(word, location);
+
+                    positionBytes.reset();
+
+                    for (int position : positions)
+                    {
+                        writeVarint(position - previousPosition, positionBytes);
+                        previousPosition = position;
+                    }
+
+                    writeVarint(document - previousDocument, data);
+                    writeVarint(positions.size(), data);
+                    writeVarint(positionBytes.size(), data);
+                    positionBytes.writeTo(data);
+
+                    previousDocument = document;
+                    documentCounts[term]++;
+                }
+
+                term++;
+            }
+
+            long dictionaryOffset = data.offset;
+            DataOutputStream dictionaryData = new DataOutputStream(data);
+
+            dictionary.write(dictionaryData);
+            dictionaryData.flush();
+
+            if (data.offset > Integer.MAX_VALUE)
+            {
+                throw new IOException("Segment larger than 2 GB cannot be mapped: " + path);
+            }
+
+            channel.position(0);
+
+            DataOutputStream tables = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            tables.writeInt(MAGIC);
+            tables.writeInt(VERSION);
+            tables.writeInt(locations.length);
+            tables.writeInt(termCount);
+            tables.writeLong(dictionaryOffset);
+
+            for (int i = 0; i < locations.length; i++)
+            {
+                tables.writeLong(locationOffsets[i]);
+                tables.writeInt(index.getLocationCount(locations[i]));
+            }
+
+            for (int i = 0; i < termCount; i++)
+            {
+                tables.writeLong(postingsOffsets[i]);
+                tables.writeInt(documentCounts[i]);
+            }
+
+            tables.flush();
+        }
+    }
+
+    /**
+     * Writes a non-negative integer as a variable-length sequence of 7-bit groups
+     *
+     * @param value the value to write
+     * @param out   the stream to write to
+     * @throws IOException if an IO error occurs
+     */
+    private static void writeVarint(int value, OutputStream out) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    /**
+     * Writes a String as a varint length followed by its UTF-8 bytes
+     *
+     * @param text  the text to write
+     * @param out   the stream to write to
+     * @throws IOException if an IO error occurs
+     */
+    private static void writeString(String text, OutputStream out) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        writeVarint(bytes.length, out);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a varint from the segment
+     *
+     * @param cursor    a single-element array holding the offset to read at, which is advanced past the varint
+     * @return          the value read
+     */
+    private int readVarint(int[] cursor)
+    {
+        int value = 0;
+        int shift = 0;
+        byte current;
+
+        do
+        {
+            current = buffer.get(cursor[0]++);
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        }
+        while (current < 0);
+
+        return value;
+    }
+
+    /**
+     * Reads a String from the segment
+     *
+     * @param offset    the offset of the String
+     * @return          the String read
+     */
+    private String readString(long offset)
+    {
+        int[] cursor = {(int) offset};
+        int length = readVarint(cursor);
+        byte[] bytes = new byte[length];
+
+        buffer.get(cursor[0], bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the offset of the postings of a term
+     *
+     * @param term  the index of the term
+     * @return      the postings offset
+     */
+    private int postingsOffset(int term)
+    {
+        return (int) buffer.getLong(termsOffset + term * TERM_ENTRY_SIZE);
+    }
+
+    /**
+     * Returns the number of documents a term appears in
+     *
+     * @param term  the index of the term
+     * @return      the document count
+     */
+    private int documentCount(int term)
+    {
+        return buffer.getInt(termsOffset + term * TERM_ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Returns the location of a document
+     *
+     * @param document  the document ID
+     * @return          the location
+     */
+    private String documentName(int document)
+    {
+        return readString(buffer.getLong(HEADER_SIZE + document * DOCUMENT_ENTRY_SIZE));
+    }
+
+    /**
+     * Returns the word count of a document
+     *
+     * @param document  the document ID
+     * @return          the word count
+     */
+    private int wordCount(int document)
+    {
+        return buffer.getInt(HEADER_SIZE + document * DOCUMENT_ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Finds the term of a word
+     *
+     * @param word  the word to search for
+     * @return      the index of the term, or -1 if the word is not in the segment
+     */
+    private int findTerm(String word)
+    {
+        return dictionary.get(word);
+    }
+
+    /**
+     * Finds the document ID of a location
+     *
+     * @param location  the location to search for
+     * @return          the document ID, or -1 if the location is not in the segment
+     */
+    private int findDocument(String location)
+    {
+        int low = 0;
+        int high = documentCount - 1;
+
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            int compare = documentName(middle).compareTo(location);
+
+            if (compare < 0)
+            {
+                low = middle + 1;
+            }
+
+            else if (compare > 0)
+            {
+                high = middle - 1;
+            }
+
+            else
+            {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the offset of the positions of a term at a document
+     *
+     * @param term      the index of the term
+     * @param document  the document ID
+     * @return          a cursor at the position count of the document, or null if the term is not at the document
+     */
+    private int[] findPostings(int term, int document)
+    {
+        int[] cursor = {postingsOffset(term)};
+        int current = 0;
+
+        for (int i = documentCount(term); i > 0; i--)
+        {
+            current += readVarint(cursor);
+
+            if (current == document)
+            {
+                return cursor;
+            }
+
+            if (current > document)
+            {
+                return null;
+            }
+
+            readVarint(cursor);
+            int length = readVarint(cursor);
+            cursor[0] += length;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns an unmodifiable set of the words in the InvertedIndex, read from the dictionary as they are iterated
+     *
+	 * @return  a set with the words (keys) of the InvertedIndex
+	 */
+    @Override
+    public Set<String> getWords()
+    {
+        return dictionary.asSet();
+    }
+
+    /**
+     * Returns an unmodifiable set of the locations of a word in the InvertedIndex
+     *
+	 * @param word  the word that the locations pertain to
+	 * @return      a set with the locations associated with the word
+	 */
+    @Override
+    public Set<String> getLocations(String word)
+    {
+        int term = findTerm(word);
+
+        if (term < 0)
+        {
+            return Collections.emptySet();
+        }
+
+        TreeSet<String> setOfLocations = new TreeSet<>();
+        int[] cursor = {postingsOffset(term)};
+        int document = 0;
+
+        for (int i = documentCount(term); i > 0; i--)
+        {
+            document += readVarint(cursor);
+            readVarint(cursor);
+            int length = readVarint(cursor);
+            cursor[0] += length;
+
+            setOfLocations.add(documentName(document));
+        }
+
+        return Collections.unmodifiableSet(setOfLocations);
+    }
+
+    /**
+	 * Returns an unmodifiable set of the positions of a word at a location in the InvertedIndex
+	 *
+	 * @param word      the word that the locations pertain to
+	 * @param location  the location the set pertains to
+	 * @return          a set with the positions associated with the word at a locations
+	 */
+    @Override
+    public Set<Integer> getPositions(String word, String location)
+    {
+        int term = findTerm(word);
+        int document = findDocument(location);
+        int[] cursor = term < 0 || document < 0 ? null : findPostings(term, document);
+
+        if (cursor == null)
+        {
+            return Collections.emptySet();
+        }
+
+        TreeSet<Integer> setOfPositions = new TreeSet<>();
+        int count = readVarint(cursor);
+        int position = 0;
+
+        readVarint(cursor);
+
+        for (int i = 0; i < count; i++)
+        {
+            position += readVarint(cursor);
+            setOfPositions.add(position);
+        }
+
+        return Collections.unmodifiableSet(setOfPositions);
+    }
+
+    /**
+	 * Counts a specific location for a text file
+	 *
+	 * @param location  the location to be counted at
+	 * @return          the count at the specified location
+	 */
+    @Override
+    public Integer getLocationCount(String location)
+    {
+        int document = findDocument(location);
+
+        return document < 0 ? null : wordCount(document);
+    }
+
+    /**
+	 * Segments are immutable, so words cannot be added
+	 *
+	 * @param word     the word to add
+	 * @param path     the filepath to be added from
+	 * @param location the location in the file where the word was found
+	 * @throws UnsupportedOperationException always
+	 */
+    @Override
+    public void add(String word, String path, int location)
+    {
+        throw new UnsupportedOperationException("Segment indexes are read-only");
+    }
+
+    /**
+	 * Segments are immutable, so words cannot be added
+	 *
+	 * @param originIndex     the index to copy from
+	 * @throws UnsupportedOperationException always
+	 */
+    @Override
+    public void addAll(InvertedIndex originIndex)
+    {
+        throw new UnsupportedOperationException("Segment indexes are read-only");
+    }
+
+    /**
+	 * Segments are immutable, so locations cannot be removed
+	 *
+	 * @param location  the location to be removed
+	 * @return          never returns
+	 * @throws UnsupportedOperationException always
+	 */
+    @Override
+    public boolean removeLocation(String location)
+    {
+        throw new UnsupportedOperationException("Segment indexes are read-only");
+    }
+
+    /**
+	 * Segments are immutable, so locations cannot be replaced
+	 *
+	 * @param location  the location to be replaced
+	 * @param document  the index holding the new words of the location
+	 * @throws UnsupportedOperationException always
+	 */
+    @Override
+    public void replaceLocation(String location, InvertedIndex document)
+    {
+        throw new UnsupportedOperationException("Segment indexes are read-only");
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word or not
+	 *
+	 * @param word     the word to check
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word)
+    {
+        return findTerm(word) >= 0;
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word, String location)
+    {
+        int term = findTerm(word);
+        int document = findDocument(location);
+
+        return term >= 0 && document >= 0 && findPostings(term, document) != null;
+    }
+
+    /**
+	 * Checks to see if the InvertedIndex contains a word at a specified location and position or not
+	 *
+	 * @param word     the word to check
+	 * @param location the location to be checked at
+     * @param position the position to be checked at
+	 * @return         whether the word is contained or not
+	 */
+    @Override
+    public boolean contains(String word, String location, int position)
+    {
+        return getPositions(word, location).contains(position);
+    }
+
+    /**
+	 * Outputs a single word of the InvertedIndex with its locations and positions
+	 *
+	 * @param word      the word to be outputted
+	 * @param writer    the writer the word is streamed to
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void termWriter(String word, JsonStreamWriter writer) throws IOException
+    {
+        writer.writeTerm(word, this);
+    }
+
+    /**
+	 * Creates a writer for the -counts flag and outputs to the file passed
+	 *
+	 * @param path  the filepath of the file to be outputted
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void dataCountWriter(Path path) throws IOException
+    {
+        TreeMap<String, Integer> dataCountTreeMap = new TreeMap<>();
+
+        for (int i = 0; i < documentCount; i++)
+        {
+            dataCountTreeMap.put(documentName(i), wordCount(i));
+        }
+
+        SimpleJsonWriter.asObject(dataCountTreeMap, path);
+    }
+
+    /**
+     * Adds the documents of a single term to the search results
+     *
+     * @param term          the index of the term to be searched
+     * @param searchResults a list that stores search results
+     * @param cachedResults an array that stores search results by document ID
+     */
+    private void search(int term, ArrayList<InvertedIndex.Result> searchResults, InvertedIndex.Result[] cachedResults)
+    {
+        int[] cursor = {postingsOffset(term)};
+        int document = 0;
+
+        for (int i = documentCount(term); i > 0; i--)
+        {
+            document += readVarint(cursor);
+            int count = readVarint(cursor);
+            int length = readVarint(cursor);
+            cursor[0] += length;
+
+            if (cachedResults[document] != null)
+            {
+                cachedResults[document].update(count);
+            }
+
+            else
+            {
+                Result searchResult = new Result(documentName(document), count, wordCount(document));
+                searchResults.add(searchResult);
+                cachedResults[document] = searchResult;
+            }
+        }
+    }
+
+    /**
+	 * Searches for any word stem in the InvertedIndex that starts with a query word
+	 *
+	 * @param setOfQueries  a set of the queries to be searched for
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return              a list containing the contents of the set with any word stem that starts with a query word
+	 */
+    @Override
+    public ArrayList<InvertedIndex.Result> partialSearch(Set<String> setOfQueries, int limit)
+    {
+        InvertedIndex.Result[] cachedResults = new InvertedIndex.Result[documentCount];
+        ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
+
+        for (String query : setOfQueries)
+        {
+            dictionary.forEachPrefix(query, term -> search(term, searchResults, cachedResults));
+        }
+
+        return rank(searchResults, limit);
+    }
+
+    /**
+	 * Generates search results depending on the queries and the search configuration
+	 *
+	 * @param setOfQueries      a set of the queries to be searched for
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
+     * @return                  a list of search results
+	 */
+    @Override
+    public ArrayList<InvertedIndex.Result> exactSearch(Set<String> setOfQueries, int limit)
+    {
+        InvertedIndex.Result[] cachedResults = new InvertedIndex.Result[documentCount];
+        ArrayList<InvertedIndex.Result> searchResults = new ArrayList<>();
+
+        for (String word : setOfQueries)
+        {
+            int term = findTerm(word);
+
+            if (term >= 0)
+            {
+                search(term, searchResults, cachedResults);
+            }
+        }
+
+        return rank(searchResults, limit);
+    }
+
+    /**
+     * @return  a visible output of the InvertedIndex
+     */
+    @Override
+    public String toString()
+    {
+        return "SegmentInvertedIndex[documents=" + documentCount + ", words=" + dictionary.size() + "]";
+    }
+}
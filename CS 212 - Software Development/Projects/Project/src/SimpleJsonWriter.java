@@ -452,6 +452,92 @@ public class SimpleJsonWriter
 		writer.append("}");
 	}
 
+	/**
+	 * Writes the words, locations, and positions of an InvertedIndex as a pretty JSON InvertedIndex to file.
+	 *
+	 * @param index	the index to write
+	 * @param path  the filepath to output at
+	 * @throws IOException if an IO error occurs
+	 * @see #asInvertedIndex(InvertedIndexInterface, Writer, int)
+	 */
+	public static void asInvertedIndex(InvertedIndexInterface index, Path path) throws IOException
+	{
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+		{
+			asInvertedIndex(index, writer, 0);
+		}
+	}
+
+	/**
+	 * Writes the words, locations, and positions of an InvertedIndex as a pretty JSON InvertedIndex.
+	 * Only the positions of a single word and location are held in memory at a time, so indexes that
+	 * do not store their postings in a TreeMap can be written without first being copied into one.
+	 *
+	 * @param index	   the index to write
+	 * @param writer   the writer to use
+	 * @param level    the initial indent level
+	 * @throws IOException if an IO error occurs
+	 */
+	public static void asInvertedIndex(InvertedIndexInterface index, Writer writer, int level) throws IOException
+	{
+		Iterator<String> setIterator = index.getWords().iterator();
+
+		writer.write("{");
+
+		while (setIterator.hasNext())
+		{
+			String element = setIterator.next();
+
+			writer.write('\n');
+			quote(element, writer, level + 1);
+			writer.write(": {");
+			writer.write('\n');
+
+			Iterator<String> pathIterator = index.getLocations(element).iterator();
+
+			while (pathIterator.hasNext())
+			{
+				String path = pathIterator.next();
+
+				quote(path, writer, level + 2);
+				writer.write(": [\n");
+
+				Iterator<Integer> locationIterator = index.getPositions(element, path).iterator();
+
+				while (locationIterator.hasNext())
+				{
+					indent(locationIterator.next(), writer, level + 3);
+
+					if (locationIterator.hasNext())
+					{
+						writer.write(",");
+					}
+
+					writer.write('\n');
+				}
+
+				indent("]", writer, level + 2);
+
+				if (pathIterator.hasNext())
+				{
+					writer.write(',');
+				}
+
+				writer.write('\n');
+			}
+
+			indent("}", writer, level + 1);
+
+			if (setIterator.hasNext())
+			{
+				writer.write(",");
+			}
+		}
+
+		writer.write('\n');
+		writer.append("}");
+	}
+
 	/**
 	 * Writes the query as a pretty JSON format.
 	 * 
@@ -463,6 +549,7 @@ public class SimpleJsonWriter
 	public static void asQueryOutput(Map<String, ? extends ArrayList<InvertedIndex.Result>> elements, Writer writer, int level) throws IOException
 	{
 		Iterator<String> index = elements.keySet().iterator();
+		DecimalFormat formatter = new DecimalFormat("0.00000000");
 
 		writer.write("{");
 		
@@ -482,10 +569,8 @@ public class SimpleJsonWriter
 				InvertedIndex.Result result = step.next();
 
 				String location = result.getLocation();
-				String count = result.getCount();
+				String count = Integer.toString(result.getCount());
 
-				DecimalFormat formatter = new DecimalFormat("0.00000000");
-				
 				String score = formatter.format(result.getPriority());
 
 				indent("{\n", writer, level + 2);
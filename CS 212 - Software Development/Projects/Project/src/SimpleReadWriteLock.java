@@ -1,3 +1,4 @@
+import java.lang.invoke.VarHandle;
 import java.util.ConcurrentModificationException;
 
 /**
@@ -7,6 +8,13 @@ import java.util.ConcurrentModificationException;
  * also tracks which thread holds the lock. If unlock is called by any other
  * thread, a {@link ConcurrentModificationException} is thrown.
  *
+ * By default readers are let in whenever no writer holds the lock, so a
+ * steady stream of readers can keep a writer waiting forever. A lock can
+ * instead prefer writers, keeping new readers out while a writer waits, or
+ * let threads in the order they asked, letting consecutive readers in
+ * together. Short lookups can also read without taking the lock at all,
+ * using a stamp that is checked afterwards to see if a writer got in.
+ *
  * @see SimpleLock
  * @see SimpleReadWriteLock
  */
@@ -24,6 +32,38 @@ public class SimpleReadWriteLock {
     /** The number of active writers; */
     private int writers;
 
+    /**
+     * The order in which a lock lets threads in
+     */
+    public enum Mode {
+        /** Readers are let in whenever no writer holds the lock */
+        READER_PREFERENCE,
+
+        /** Readers are kept out while a writer holds or waits for the lock */
+        WRITER_PREFERENCE,
+
+        /** Threads are let in in the order they asked, with consecutive readers let in together */
+        FIFO
+    }
+
+    /** The order in which this lock lets threads in. */
+    private final Mode mode;
+
+    /** The number of writers waiting for the lock. */
+    private int waitingWriters;
+
+    /** The ticket given to the next thread to ask for the lock, in FIFO mode. */
+    private long nextTicket;
+
+    /** The ticket of the next thread to be let in, in FIFO mode. */
+    private long headTicket;
+
+    /**
+     * Counts the writes, and is odd while a writer holds the lock. It starts
+     * at 2, so a stamp of 0 can never be valid.
+     */
+    private volatile long version;
+
     /**
      * The lock object used for synchronized access of readers and writers. For
      * security reasons, a separate private final lock object is used.
@@ -38,13 +78,81 @@ public class SimpleReadWriteLock {
      * Initializes a new simple read/write lock.
      */
     public SimpleReadWriteLock() {
-        readerLock = new ReadLock();
+        this(Mode.READER_PREFERENCE);
+    }
+
+    /**
+     * Initializes a new simple read/write lock that lets threads in in the
+     * given order.
+     *
+     * @param mode the order in which threads are let in
+     */
+    public SimpleReadWriteLock(Mode mode) {
+        this.mode = mode;
+
+        switch (mode) {
+            case WRITER_PREFERENCE:
+                readerLock = new WriterPreferringReadLock();
+                break;
+
+            case FIFO:
+                readerLock = new FifoReadLock();
+                break;
+
+            default:
+                readerLock = new ReadLock();
+                break;
+        }
+
         writerLock = new WriteLock();
 
         lock = new Object();
 
         readers = 0;
         writers = 0;
+
+        waitingWriters = 0;
+        nextTicket = 0;
+        headTicket = 0;
+        version = 2;
+    }
+
+    /**
+     * Returns the order in which this lock lets threads in.
+     *
+     * @return the mode of the lock
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns a stamp for reading without the lock, which is only valid if
+     * no writer gets in before {@link #validate(long)} is called. Whatever is
+     * read with the stamp may be inconsistent, and even throw an exception,
+     * until the stamp is validated. Only data whose every read terminates
+     * whatever a writer is doing, such as a few fields or a fixed array, can
+     * be read this way: a traversal of a linked structure like a TreeMap can
+     * loop forever on a node it sees halfway through a write.
+     *
+     * @return the stamp, or 0 if a writer holds the lock
+     */
+    public long tryOptimisticRead() {
+        long stamp = version;
+        return (stamp & 1) == 0 ? stamp : 0;
+    }
+
+    /**
+     * Returns whether no writer got in since the stamp was returned, so what
+     * was read with it is consistent.
+     *
+     * @param stamp the stamp returned by {@link #tryOptimisticRead()}
+     * @return true if the reads made with the stamp can be used
+     */
+    public boolean validate(long stamp) {
+        // the reads made with the stamp must not be moved after the version is read again
+        VarHandle.acquireFence();
+        return stamp != 0 && version == stamp;
     }
 
     /**
@@ -154,6 +262,79 @@ public class SimpleReadWriteLock {
 
     }
 
+    /**
+     * Used to maintain simultaneous read operations that let waiting writers
+     * in first.
+     */
+    private class WriterPreferringReadLock extends ReadLock {
+
+        /**
+         * Will wait until there are no active or waiting writers in the system,
+         * and then will increase the number of active readers.
+         */
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+
+            synchronized (lock) {
+                while (writers > 0 || waitingWriters > 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+
+                readers++;
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Used to maintain simultaneous read operations that are let in in the
+     * order they asked, along with the writers.
+     */
+    private class FifoReadLock extends ReadLock {
+
+        /**
+         * Will wait until every thread that asked earlier has been let in and
+         * there are no active writers, and then will increase the number of
+         * active readers and let the next thread in line check its turn.
+         */
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+
+            synchronized (lock) {
+                long ticket = nextTicket++;
+
+                while (writers > 0 || ticket != headTicket) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+
+                headTicket++;
+                readers++;
+
+                // a reader next in line can join this one
+                if (nextTicket != headTicket) {
+                    lock.notifyAll();
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Used to maintain exclusive write operations.
      */
@@ -175,9 +356,14 @@ public class SimpleReadWriteLock {
              * DONE: FILL IN THIS METHOD 1) Wait until safe to write 2) Update number of
              * active writers 3) Update which thread "holds" the write lock
              */
+            boolean interrupted = false;
+
             synchronized (lock)
             {
-                while (writers != 0 || readers != 0)
+                long ticket = mode == Mode.FIFO ? nextTicket++ : headTicket;
+                waitingWriters++;
+
+                while (writers != 0 || readers != 0 || ticket != headTicket)
                 {
                     try
                     {
@@ -186,12 +372,28 @@ public class SimpleReadWriteLock {
                     
                     catch (InterruptedException e)
                     {
-						Thread.currentThread().interrupt();
+						interrupted = true;
 					}
 				}
+
+                waitingWriters--;
+
+                if (mode == Mode.FIFO)
+                {
+                    headTicket++;
+                }
                 
                 threadWriter = Thread.currentThread();
                 writers++;
+                version++;
+
+                // the writes made under the lock must not be seen before the version turns odd
+                VarHandle.storeStoreFence();
+            }
+
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
             }
         }
 
@@ -224,6 +426,7 @@ public class SimpleReadWriteLock {
             {
                 synchronized (lock)
                 {
+                    version++;
 					writers--;
                     
                     if (writers == 0)
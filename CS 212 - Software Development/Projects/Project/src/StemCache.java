@@ -0,0 +1,190 @@
+import java.util.concurrent.atomic.*;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * Remembers the stems of recently stemmed words, since the words of natural language text follow a Zipf
+ * distribution and the same few thousand words make up most of every file. The cache is a fixed array of
+ * slots chosen by the hash of the word, so it never grows and never locks: a word that is not in its slot is
+ * stemmed by a SnowballStemmer kept for the calling thread and replaces whatever the slot held before.
+ * Entries are immutable, so a thread that reads a slot while another thread replaces it sees either entry.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class StemCache implements Stemmer
+{
+    /**
+     * The default number of slots
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * The cache shared by the builders, the crawler and TextFileStemmer
+     */
+    private static final StemCache SHARED = new StemCache(TextFileStemmer.DEFAULT, DEFAULT_CAPACITY);
+
+    /**
+     * A word and its stem
+     */
+    private static class Entry
+    {
+        /**
+         * The word
+         */
+        private final String word;
+
+        /**
+         * The stem of the word
+         */
+        private final String stem;
+
+        /**
+         * Multi-arg constructor which implements an entry
+         *
+         * @param word  the word
+         * @param stem  the stem of the word
+         */
+        private Entry(String word, String stem)
+        {
+            this.word = word;
+            this.stem = stem;
+        }
+    }
+
+    /**
+     * The slots of the cache, each empty or holding the last word stemmed there
+     */
+    private final Entry[] slots;
+
+    /**
+     * The stemmer of each thread, since a SnowballStemmer cannot be shared between threads
+     */
+    private final ThreadLocal<Stemmer> stemmers;
+
+    /**
+     * The number of words found in the cache
+     */
+    private final LongAdder hits;
+
+    /**
+     * The number of words that had to be stemmed
+     */
+    private final LongAdder misses;
+
+    /**
+     * Multi-arg constructor which implements a cache
+     *
+     * @param algorithm the stemming algorithm
+     * @param capacity  the number of slots, which is rounded up to a power of two
+     */
+    public StemCache(SnowballStemmer.ALGORITHM algorithm, int capacity)
+    {
+        int size = 1;
+
+        while (size < capacity && size < 1 << 30)
+        {
+            size <<= 1;
+        }
+
+        this.slots = new Entry[size];
+        this.stemmers = ThreadLocal.withInitial(() -> new SnowballStemmer(algorithm));
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Returns the cache shared by the builders, the crawler and TextFileStemmer
+     *
+     * @return  the shared cache
+     */
+    public static StemCache getShared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Returns the stem of a word, stemming it only if it is not in the cache
+     *
+     * @param word  the word to stem
+     * @return      the stem of the word
+     */
+    @Override
+    public String stem(CharSequence word)
+    {
+        String text = word.toString();
+        int hash = text.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (slots.length - 1);
+
+        Entry entry = slots[slot];
+
+        if (entry != null && entry.word.equals(text))
+        {
+            hits.increment();
+            return entry.stem;
+        }
+
+        misses.increment();
+
+        String stem = stemmers.get().stem(text).toString();
+        slots[slot] = new Entry(text, stem);
+
+        return stem;
+    }
+
+    /**
+     * Returns the number of slots
+     *
+     * @return  the number of slots
+     */
+    public int getCapacity()
+    {
+        return slots.length;
+    }
+
+    /**
+     * Returns the number of words found in the cache
+     *
+     * @return  the number of hits
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of words that had to be stemmed
+     *
+     * @return  the number of misses
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of words found in the cache
+     *
+     * @return  the hit rate from 0 to 1, or 0 if no word was stemmed yet
+     */
+    public double getHitRate()
+    {
+        long found = getHits();
+        long total = found + getMisses();
+
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * Returns a single-line report of how often words were found in the cache
+     *
+     * @return  the report
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("stems  %10d hits  %8d misses  %5.1f%% hit rate  %8d slots", getHits(), getMisses(),
+                getHitRate() * 100, slots.length);
+    }
+}
@@ -0,0 +1,939 @@
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Compact radix trie that maps each term to a dense integer term ID. Nodes are stored as five integers each
+ * (label start, label length, first child, next sibling, term ID) and edge labels are stored in a shared
+ * character pool, with the children of every node kept in ascending order so traversals visit terms in the
+ * same order as a TreeMap. Enumerating every term with a given prefix only visits the subtree under that
+ * prefix. A dictionary can be written out and then read back as a read-only view over a ByteBuffer, such as
+ * a memory-mapped segment file.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class TermDictionary
+{
+    /**
+     * Nested class that iterates through terms in ascending order, building each term as it is reached
+     */
+    public class TermIterator implements Iterator<String>
+    {
+        /**
+         * The nodes waiting to be visited
+         */
+        private int[] nodeStack;
+
+        /**
+         * The length of the term built so far when each waiting node is visited
+         */
+        private int[] lengthStack;
+
+        /**
+         * Whether the siblings of each waiting node should also be visited
+         */
+        private boolean[] siblingStack;
+
+        /**
+         * The number of waiting nodes
+         */
+        private int depth;
+
+        /**
+         * The term being built
+         */
+        private final StringBuilder term;
+
+        /**
+         * The next term to be returned, or null if the iteration is finished
+         */
+        private String nextTerm;
+
+        /**
+         * The term ID of the next term to be returned
+         */
+        private int nextId;
+
+        /**
+         * The term ID of the last term returned
+         */
+        private int currentId;
+
+        /**
+         * Multi-arg constructor that starts the iteration at a subtree
+         *
+         * @param node      the root of the subtree, or -1 for an empty iteration
+         * @param path      the characters of every term before the subtree root's label
+         */
+        private TermIterator(int node, String path)
+        {
+            nodeStack = new int[16];
+            lengthStack = new int[16];
+            siblingStack = new boolean[16];
+            term = new StringBuilder(path);
+            currentId = -1;
+
+            if (node >= 0)
+            {
+                push(node, path.length(), false);
+            }
+
+            advance();
+        }
+
+        /**
+         * Adds a node to be visited
+         *
+         * @param node          the node to visit
+         * @param length        the length of the term built so far when it is visited
+         * @param withSiblings  whether its siblings should also be visited
+         */
+        private void push(int node, int length, boolean withSiblings)
+        {
+            if (depth == nodeStack.length)
+            {
+                nodeStack = Arrays.copyOf(nodeStack, depth * 2);
+                lengthStack = Arrays.copyOf(lengthStack, depth * 2);
+                siblingStack = Arrays.copyOf(siblingStack, depth * 2);
+            }
+
+            nodeStack[depth] = node;
+            lengthStack[depth] = length;
+            siblingStack[depth] = withSiblings;
+            depth++;
+        }
+
+        /**
+         * Visits nodes until the next term is found or there are no nodes left
+         */
+        private void advance()
+        {
+            nextTerm = null;
+
+            while (depth > 0)
+            {
+                depth--;
+
+                int node = nodeStack[depth];
+                int length = lengthStack[depth];
+
+                if (siblingStack[depth] && nextSibling(node) >= 0)
+                {
+                    push(nextSibling(node), length, true);
+                }
+
+                term.setLength(length);
+                appendLabel(node, term);
+
+                if (firstChild(node) >= 0)
+                {
+                    push(firstChild(node), term.length(), true);
+                }
+
+                if (TermDictionary.this.termId(node) >= 0)
+                {
+                    nextTerm = term.toString();
+                    nextId = TermDictionary.this.termId(node);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return nextTerm != null;
+        }
+
+        @Override
+        public String next()
+        {
+            if (nextTerm == null)
+            {
+                throw new NoSuchElementException();
+            }
+
+            String current = nextTerm;
+            currentId = nextId;
+            advance();
+
+            return current;
+        }
+
+        /**
+         * Returns the term ID of the last term returned by {@link #next()}
+         *
+         * @return  the term ID
+         */
+        public int termId()
+        {
+            return currentId;
+        }
+    }
+
+    /**
+     * The number of integers stored for each node
+     */
+    private static final int NODE_SIZE = 5;
+
+    /**
+     * The offset of the label start within a node
+     */
+    private static final int LABEL_START = 0;
+
+    /**
+     * The offset of the label length within a node
+     */
+    private static final int LABEL_LENGTH = 1;
+
+    /**
+     * The offset of the first child within a node
+     */
+    private static final int FIRST_CHILD = 2;
+
+    /**
+     * The offset of the next sibling within a node
+     */
+    private static final int NEXT_SIBLING = 3;
+
+    /**
+     * The offset of the term ID within a node
+     */
+    private static final int TERM_ID = 4;
+
+    /**
+     * The nodes of the trie, with the root at node 0
+     */
+    private IntBuffer nodes;
+
+    /**
+     * The characters of every edge label
+     */
+    private CharBuffer labels;
+
+    /**
+     * The number of nodes in use
+     */
+    private int nodeCount;
+
+    /**
+     * The number of label characters in use
+     */
+    private int labelCount;
+
+    /**
+     * The number of terms
+     */
+    private int termCount;
+
+    /**
+     * The term ID the next new term is given when no term ID of a removed term is free
+     */
+    private int nextTermId;
+
+    /**
+     * The term IDs of removed terms, which new terms are given before any other term ID
+     */
+    private int[] freeTermIds;
+
+    /**
+     * The number of free term IDs
+     */
+    private int freeTermCount;
+
+    /**
+     * The number of terms removed since the trie was last rebuilt, whose nodes are still in the trie
+     */
+    private int removedTerms;
+
+    /**
+     * The node of every term ID, or -1 once the term is removed, or null if the dictionary is read-only
+     */
+    private int[] termNodes;
+
+    /**
+     * Whether the dictionary is a view over a buffer that cannot be added to
+     */
+    private final boolean readOnly;
+
+    /**
+     * Zero-arg constructor which implements an empty dictionary that terms can be added to
+     */
+    public TermDictionary()
+    {
+        nodes = IntBuffer.wrap(new int[NODE_SIZE * 16]);
+        labels = CharBuffer.wrap(new char[64]);
+        termNodes = new int[16];
+        freeTermIds = new int[16];
+        readOnly = false;
+
+        newNode(0, 0, -1);
+    }
+
+    /**
+     * Single-arg constructor which implements a read-only view over a dictionary previously written with
+     * {@link #write(DataOutput)}. The buffer is not copied.
+     *
+     * @param buffer    the buffer holding the written dictionary, starting at its position
+     */
+    public TermDictionary(ByteBuffer buffer)
+    {
+        ByteBuffer view = buffer.slice();
+
+        nodeCount = view.getInt(0);
+        labelCount = view.getInt(4);
+        termCount = view.getInt(8);
+
+        int nodesStart = 12;
+        int labelsStart = nodesStart + nodeCount * NODE_SIZE * Integer.BYTES;
+
+        nodes = view.slice(nodesStart, nodeCount * NODE_SIZE * Integer.BYTES).asIntBuffer();
+        labels = view.slice(labelsStart, labelCount * Character.BYTES).asCharBuffer();
+        readOnly = true;
+    }
+
+    /**
+     * Returns the number of terms in the dictionary
+     *
+     * @return  the number of terms
+     */
+    public int size()
+    {
+        return termCount;
+    }
+
+    /**
+     * Returns the number of bytes {@link #write(DataOutput)} will write
+     *
+     * @return  the number of bytes
+     */
+    public long byteSize()
+    {
+        return 12 + (long) nodeCount * NODE_SIZE * Integer.BYTES + (long) labelCount * Character.BYTES;
+    }
+
+    /**
+     * Writes the dictionary so that it can be read back with {@link #TermDictionary(ByteBuffer)}
+     *
+     * @param out   the output to write to
+     * @throws IOException if an IO error occurs
+     */
+    public void write(DataOutput out) throws IOException
+    {
+        out.writeInt(nodeCount);
+        out.writeInt(labelCount);
+        out.writeInt(termCount);
+
+        for (int i = 0; i < nodeCount * NODE_SIZE; i++)
+        {
+            out.writeInt(nodes.get(i));
+        }
+
+        for (int i = 0; i < labelCount; i++)
+        {
+            out.writeChar(labels.get(i));
+        }
+    }
+
+    /**
+     * Returns the term ID of a term
+     *
+     * @param term  the term to look up
+     * @return      the term ID, or -1 if the term is not in the dictionary
+     */
+    public int get(String term)
+    {
+        int node = 0;
+        int i = 0;
+
+        while (i < term.length())
+        {
+            node = findChild(node, term.charAt(i));
+
+            if (node < 0)
+            {
+                return -1;
+            }
+
+            int length = labelLength(node);
+
+            if (term.length() - i < length || !labelMatches(node, term, i, length))
+            {
+                return -1;
+            }
+
+            i += length;
+        }
+
+        return termId(node);
+    }
+
+    /**
+     * Checks to see if the dictionary contains a term or not
+     *
+     * @param term  the term to check
+     * @return      whether the term is contained or not
+     */
+    public boolean contains(String term)
+    {
+        return get(term) >= 0;
+    }
+
+    /**
+     * Adds a term to the dictionary if it is not already there
+     *
+     * @param term  the term to add
+     * @return      the term ID of the term. A new term is given the term ID of a removed term if there is one,
+     *              or else the number of term IDs given out before it, so term IDs stay dense.
+     * @throws UnsupportedOperationException if the dictionary is read-only
+     */
+    public int add(String term)
+    {
+        if (readOnly)
+        {
+            throw new UnsupportedOperationException("Term dictionary is read-only");
+        }
+
+        int node = insert(term);
+
+        if (termId(node) < 0)
+        {
+            return newTerm(node);
+        }
+
+        return termId(node);
+    }
+
+    /**
+     * Finds the node a term ends at, adding the nodes and label characters it needs
+     *
+     * @param term  the term
+     * @return      the node the term ends at
+     */
+    private int insert(String term)
+    {
+        int node = 0;
+        int i = 0;
+
+        while (i < term.length())
+        {
+            char next = term.charAt(i);
+            int previous = -1;
+            int child = firstChild(node);
+
+            while (child >= 0 && labelChar(child, 0) < next)
+            {
+                previous = child;
+                child = nextSibling(child);
+            }
+
+            if (child < 0 || labelChar(child, 0) != next)
+            {
+                int leaf = newNode(appendLabel(term, i), term.length() - i, -1);
+                link(node, previous, leaf, child);
+                return leaf;
+            }
+
+            int length = labelLength(child);
+            int common = 1;
+
+            while (common < length && i + common < term.length() && labelChar(child, common) == term.charAt(i + common))
+            {
+                common++;
+            }
+
+            if (common < length)
+            {
+                // split the child so its first common characters become a node of their own
+                int middle = newNode(labelStart(child), common, -1);
+
+                link(node, previous, middle, nextSibling(child));
+                set(middle, FIRST_CHILD, child);
+                set(child, NEXT_SIBLING, -1);
+                set(child, LABEL_START, labelStart(child) + common);
+                set(child, LABEL_LENGTH, length - common);
+
+                child = middle;
+            }
+
+            node = child;
+            i += common;
+        }
+
+        return node;
+    }
+
+    /**
+     * Removes a term from the dictionary. Its node is left in the trie without a term and its term ID is given
+     * to the next new term. Once more terms were removed than are left, the trie is rebuilt from the terms that
+     * are left, so the nodes and labels of removed terms do not pile up. The term IDs of every other term
+     * always stay the same.
+     *
+     * @param termId    the term ID of the term to remove
+     * @return          whether the term was in the dictionary
+     * @throws UnsupportedOperationException if the dictionary is read-only
+     */
+    public boolean remove(int termId)
+    {
+        if (readOnly)
+        {
+            throw new UnsupportedOperationException("Term dictionary is read-only");
+        }
+
+        if (termId < 0 || termId >= nextTermId || termNodes[termId] < 0)
+        {
+            return false;
+        }
+
+        set(termNodes[termId], TERM_ID, -1);
+        termNodes[termId] = -1;
+        termCount--;
+
+        if (freeTermCount == freeTermIds.length)
+        {
+            freeTermIds = Arrays.copyOf(freeTermIds, freeTermCount * 2);
+        }
+
+        freeTermIds[freeTermCount++] = termId;
+
+        if (++removedTerms > termCount)
+        {
+            rebuild();
+        }
+
+        return true;
+    }
+
+    /**
+     * Rebuilds the trie and the character pool from the terms left in the dictionary, keeping their term IDs
+     */
+    private void rebuild()
+    {
+        String[] liveTerms = new String[termCount];
+        int[] liveIds = new int[termCount];
+        TermIterator iterator = iterator("");
+
+        for (int i = 0; iterator.hasNext(); i++)
+        {
+            liveTerms[i] = iterator.next();
+            liveIds[i] = iterator.termId();
+        }
+
+        nodes = IntBuffer.wrap(new int[NODE_SIZE * 16]);
+        labels = CharBuffer.wrap(new char[64]);
+        nodeCount = 0;
+        labelCount = 0;
+
+        newNode(0, 0, -1);
+
+        for (int i = 0; i < liveTerms.length; i++)
+        {
+            int node = insert(liveTerms[i]);
+
+            set(node, TERM_ID, liveIds[i]);
+            termNodes[liveIds[i]] = node;
+        }
+
+        removedTerms = 0;
+    }
+
+    /**
+     * Passes the term ID of every term that starts with a prefix to an action, in ascending order of the terms.
+     * Only the nodes under the prefix are visited and no Strings are created.
+     *
+     * @param prefix    the prefix of the terms
+     * @param action    the action to be performed on each term ID
+     */
+    public void forEachPrefix(String prefix, IntConsumer action)
+    {
+        int[] locus = findPrefix(prefix);
+
+        if (locus == null)
+        {
+            return;
+        }
+
+        int[] stack = new int[16];
+        int depth = 0;
+
+        if (termId(locus[0]) >= 0)
+        {
+            action.accept(termId(locus[0]));
+        }
+
+        if (firstChild(locus[0]) >= 0)
+        {
+            stack[depth++] = firstChild(locus[0]);
+        }
+
+        while (depth > 0)
+        {
+            int node = stack[--depth];
+
+            if (depth + 2 > stack.length)
+            {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+
+            if (nextSibling(node) >= 0)
+            {
+                stack[depth++] = nextSibling(node);
+            }
+
+            if (termId(node) >= 0)
+            {
+                action.accept(termId(node));
+            }
+
+            if (firstChild(node) >= 0)
+            {
+                stack[depth++] = firstChild(node);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator through every term that starts with a prefix, in ascending order
+     *
+     * @param prefix    the prefix of the terms
+     * @return          an iterator through the terms
+     */
+    public TermIterator iterator(String prefix)
+    {
+        int[] locus = findPrefix(prefix);
+
+        if (locus == null)
+        {
+            return new TermIterator(-1, "");
+        }
+
+        return new TermIterator(locus[0], prefix.substring(0, locus[1]));
+    }
+
+    /**
+     * Returns an unmodifiable sorted view of the terms in the dictionary
+     *
+     * @return  a set with the terms of the dictionary
+     */
+    public Set<String> asSet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                return TermDictionary.this.iterator("");
+            }
+
+            @Override
+            public int size()
+            {
+                return termCount;
+            }
+
+            @Override
+            public boolean contains(Object term)
+            {
+                return term instanceof String && get((String) term) >= 0;
+            }
+        };
+    }
+
+    /**
+     * Finds the node whose subtree holds every term that starts with a prefix
+     *
+     * @param prefix    the prefix of the terms
+     * @return          the node and the number of prefix characters before its label, or null if no term has the prefix
+     */
+    private int[] findPrefix(String prefix)
+    {
+        int node = 0;
+        int i = 0;
+
+        while (i < prefix.length())
+        {
+            int child = findChild(node, prefix.charAt(i));
+
+            if (child < 0)
+            {
+                return null;
+            }
+
+            int length = Math.min(labelLength(child), prefix.length() - i);
+
+            if (!labelMatches(child, prefix, i, length))
+            {
+                return null;
+            }
+
+            if (length < labelLength(child))
+            {
+                return new int[] {child, i};
+            }
+
+            node = child;
+            i += length;
+        }
+
+        return new int[] {node, i - labelLength(node)};
+    }
+
+    /**
+     * Finds the child of a node whose label starts with a character
+     *
+     * @param node  the parent node
+     * @param first the first character of the label
+     * @return      the child, or -1 if there is no such child
+     */
+    private int findChild(int node, char first)
+    {
+        for (int child = firstChild(node); child >= 0; child = nextSibling(child))
+        {
+            char current = labelChar(child, 0);
+
+            if (current == first)
+            {
+                return child;
+            }
+
+            if (current > first)
+            {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Checks to see if the start of a node's label matches part of a String
+     *
+     * @param node      the node whose label is checked
+     * @param text      the String to compare against
+     * @param offset    the index in the String to start at
+     * @param length    the number of characters to compare
+     * @return          whether the characters match
+     */
+    private boolean labelMatches(int node, String text, int offset, int length)
+    {
+        int start = labelStart(node);
+
+        for (int i = 0; i < length; i++)
+        {
+            if (labels.get(start + i) != text.charAt(offset + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends the label of a node to a term being built
+     *
+     * @param node  the node whose label is appended
+     * @param term  the term being built
+     */
+    private void appendLabel(int node, StringBuilder term)
+    {
+        int start = labelStart(node);
+        int end = start + labelLength(node);
+
+        for (int i = start; i < end; i++)
+        {
+            term.append(labels.get(i));
+        }
+    }
+
+    /**
+     * Inserts a node into the sibling list of a parent between two siblings
+     *
+     * @param parent    the parent node
+     * @param previous  the sibling before the new node, or -1 if it becomes the first child
+     * @param node      the node to insert
+     * @param next      the sibling after the new node, or -1 if it becomes the last child
+     */
+    private void link(int parent, int previous, int node, int next)
+    {
+        set(node, NEXT_SIBLING, next);
+
+        if (previous < 0)
+        {
+            set(parent, FIRST_CHILD, node);
+        }
+
+        else
+        {
+            set(previous, NEXT_SIBLING, node);
+        }
+    }
+
+    /**
+     * Creates a node with no children or siblings
+     *
+     * @param labelStart    the start of its label in the character pool
+     * @param labelLength   the length of its label
+     * @param termId        its term ID, or -1 if no term ends at it
+     * @return              the new node
+     */
+    private int newNode(int labelStart, int labelLength, int termId)
+    {
+        if ((nodeCount + 1) * NODE_SIZE > nodes.capacity())
+        {
+            nodes = IntBuffer.wrap(Arrays.copyOf(nodes.array(), nodes.capacity() * 2));
+        }
+
+        int node = nodeCount++;
+
+        set(node, LABEL_START, labelStart);
+        set(node, LABEL_LENGTH, labelLength);
+        set(node, FIRST_CHILD, -1);
+        set(node, NEXT_SIBLING, -1);
+        set(node, TERM_ID, termId);
+
+        return node;
+    }
+
+    /**
+     * Gives the term ending at a node a new term ID, reusing the term ID of a removed term if there is one
+     *
+     * @param node  the node
+     * @return      the new term ID
+     */
+    private int newTerm(int node)
+    {
+        int termId;
+
+        if (freeTermCount > 0)
+        {
+            termId = freeTermIds[--freeTermCount];
+        }
+
+        else
+        {
+            if (nextTermId == termNodes.length)
+            {
+                termNodes = Arrays.copyOf(termNodes, nextTermId * 2);
+            }
+
+            termId = nextTermId++;
+        }
+
+        termNodes[termId] = node;
+        set(node, TERM_ID, termId);
+        termCount++;
+
+        return termId;
+    }
+
+    /**
+     * Adds the end of a term to the character pool
+     *
+     * @param term      the term
+     * @param offset    the index of the first character to add
+     * @return          the start of the added characters in the pool
+     */
+    private int appendLabel(String term, int offset)
+    {
+        int length = term.length() - offset;
+
+        if (labelCount + length > labels.capacity())
+        {
+            labels = CharBuffer.wrap(Arrays.copyOf(labels.array(), Math.max(labelCount + length, labels.capacity() * 2)));
+        }
+
+        int start = labelCount;
+
+        for (int i = offset; i < term.length(); i++)
+        {
+            labels.put(labelCount++, term.charAt(i));
+        }
+
+        return start;
+    }
+
+    /**
+     * Sets a field of a node
+     *
+     * @param node  the node
+     * @param field the offset of the field within the node
+     * @param value the new value
+     */
+    private void set(int node, int field, int value)
+    {
+        nodes.put(node * NODE_SIZE + field, value);
+    }
+
+    /**
+     * Returns the start of a node's label in the character pool
+     *
+     * @param node  the node
+     * @return      the label start
+     */
+    private int labelStart(int node)
+    {
+        return nodes.get(node * NODE_SIZE + LABEL_START);
+    }
+
+    /**
+     * Returns the length of a node's label
+     *
+     * @param node  the node
+     * @return      the label length
+     */
+    private int labelLength(int node)
+    {
+        return nodes.get(node * NODE_SIZE + LABEL_LENGTH);
+    }
+
+    /**
+     * Returns a character of a node's label
+     *
+     * @param node  the node
+     * @param index the index of the character within the label
+     * @return      the character
+     */
+    private char labelChar(int node, int index)
+    {
+        return labels.get(labelStart(node) + index);
+    }
+
+    /**
+     * Returns the first child of a node
+     *
+     * @param node  the node
+     * @return      the first child, or -1 if it has no children
+     */
+    private int firstChild(int node)
+    {
+        return nodes.get(node * NODE_SIZE + FIRST_CHILD);
+    }
+
+    /**
+     * Returns the next sibling of a node
+     *
+     * @param node  the node
+     * @return      the next sibling, or -1 if it is the last child
+     */
+    private int nextSibling(int node)
+    {
+        return nodes.get(node * NODE_SIZE + NEXT_SIBLING);
+    }
+
+    /**
+     * Returns the term ID of the term that ends at a node
+     *
+     * @param node  the node
+     * @return      the term ID, or -1 if no term ends at the node
+     */
+    private int termId(int node)
+    {
+        return nodes.get(node * NODE_SIZE + TERM_ID);
+    }
+}
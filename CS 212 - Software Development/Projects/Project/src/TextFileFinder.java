@@ -1,8 +1,12 @@
 import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
 import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
@@ -19,6 +23,21 @@ import java.util.stream.Stream;
  */
 public class TextFileFinder
 {
+	/**
+	 * An action performed on each text file as soon as it is found, which may throw an IOException
+	 */
+	@FunctionalInterface
+	public interface TextFileVisitor
+	{
+		/**
+		 * Performs the action on a text file
+		 *
+		 * @param path       the text file
+		 * @param attributes the attributes of the text file, such as its size
+		 * @throws IOException if an I/O error occurs
+		 */
+		void visit(Path path, BasicFileAttributes attributes) throws IOException;
+	}
 
 	/**
 	 * A lambda function that returns true if the path is a file that ends in a .txt
@@ -85,4 +104,44 @@ public class TextFileFinder
 		// THIS METHOD IS PROVIDED FOR YOU DO NOT MODIFY
 		return find(start).collect(Collectors.toList());
 	}
+
+	/**
+	 * Passes every text file to an action as soon as it is found, following any symbolic links encountered. No
+	 * list of the files is built, so the action can start before the walk is finished and memory does not grow
+	 * with the size of the tree. A symbolic link back to one of its own ancestors is skipped instead of ending
+	 * the walk, so every directory in a cycle is only visited once.
+	 *
+	 * @param start  the initial path to start with
+	 * @param action the action performed on each text file
+	 * @throws IOException if an I/O error occurs
+	 *
+	 * @see Files#walkFileTree(Path, java.util.Set, int, java.nio.file.FileVisitor)
+	 */
+	public static void walk(Path start, TextFileVisitor action) throws IOException
+	{
+		Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<>()
+		{
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException
+			{
+				if (attributes.isRegularFile() && InvertedIndexBuilder.isTextFile(file))
+				{
+					action.visit(file, attributes);
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException
+			{
+				if (e instanceof FileSystemLoopException)
+				{
+					return FileVisitResult.CONTINUE;
+				}
+
+				throw e;
+			}
+		});
+	}
 }
@@ -56,14 +56,12 @@ public class TextFileStemmer
 	 * @param line the line of words to clean, split, and stem
 	 * @return a list of cleaned and stemmed words
 	 *
-	 * @see SnowballStemmer
-	 * @see #DEFAULT
+	 * @see StemCache#getShared()
 	 * @see #listStems(String, Stemmer)
 	 */
 	public static ArrayList<String> listStems(String line)
 	{
-		// THIS IS PROVIDED FOR YOU; NO NEED TO MODIFY
-		return listStems(line, new SnowballStemmer(DEFAULT));
+		return listStems(line, StemCache.getShared());
 	}
 
 	/**
@@ -94,14 +92,12 @@ public class TextFileStemmer
 	 * @param line the line of words to clean, split, and stem
 	 * @return a sorted set of unique cleaned and stemmed words
 	 *
-	 * @see SnowballStemmer
-	 * @see #DEFAULT
+	 * @see StemCache#getShared()
 	 * @see #uniqueStems(String, Stemmer)
 	 */
 	public static TreeSet<String> uniqueStems(String line)
 	{
-		// THIS IS PROVIDED FOR YOU; NO NEED TO MODIFY
-		return uniqueStems(line, new SnowballStemmer(DEFAULT));
+		return uniqueStems(line, StemCache.getShared());
 	}
 
 	/**
@@ -126,7 +122,7 @@ public class TextFileStemmer
 
 		while ((line = br.readLine()) != null)
 		{
-			setOfProcessedStrings.addAll(listStems(line, new SnowballStemmer(DEFAULT)));
+			setOfProcessedStrings.addAll(listStems(line, StemCache.getShared()));
 		}
 
 		br.close();
@@ -150,7 +146,7 @@ public class TextFileStemmer
 		// DONE Fill in uniqueStems(Path)
 
 		BufferedReader br = new BufferedReader(new FileReader(inputFile.toString()));
-		Stemmer stemmer = new SnowballStemmer(DEFAULT);
+		Stemmer stemmer = StemCache.getShared();
 		ArrayList<String> arrayOfProcessedStrings = new ArrayList<>();
 
 		String line;
@@ -174,6 +170,6 @@ public class TextFileStemmer
 	 */
 	public static String singleStemmer(String word)
 	{
-		return new SnowballStemmer(DEFAULT).stem(word).toString();
+		return StemCache.getShared().stem(word);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,473 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Splits UTF-8 text files into the same words as reading them line by line with a BufferedReader and passing
+ * each line to {@link TextParser#parse(String)}, without creating a String for every line. Large files are
+ * memory-mapped and small files are read into a single array. Lines of ASCII text are cleaned and split
+ * directly from their bytes, since normalizing ASCII text changes nothing and its only letters are A to Z.
+ * Other lines are decoded and cleaned one character at a time, using what TextParser leaves of each character
+ * once it is normalized on its own. A line with a character whose cleaned form could depend on the characters
+ * around it, such as a combining mark, a non-ASCII space or a capital sigma, is passed to TextParser instead.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public class TextTokenizer
+{
+    /**
+     * Functional interface that receives each word found by the tokenizer
+     */
+    @FunctionalInterface
+    public interface TokenVisitor
+    {
+        /**
+         * Receives a word and its position
+         *
+         * @param word      the cleaned word
+         * @param position  the position of the word, counted from one
+         */
+        public void visit(String word, int position);
+    }
+
+    /**
+     * The size in bytes from which files are memory-mapped instead of read into an array
+     */
+    public static final long MAP_BYTES = 256 * 1024;
+
+    /**
+     * The largest number of bytes mapped at a time
+     */
+    private static final long REGION_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * What TextParser leaves of each character, in blocks of 256 characters that are filled in when first used.
+     * A character that has to be cleaned together with the rest of its line is null.
+     */
+    private static final AtomicReferenceArray<String[]> CLEANED = new AtomicReferenceArray<>(256);
+
+    /**
+     * The number of words found so far
+     */
+    private int position;
+
+    /**
+     * The word being built from an ASCII line
+     */
+    private char[] word;
+
+    /**
+     * Whether the word being built has letters that are not ASCII, which are lowercased when it is finished
+     */
+    private boolean isText;
+
+    /**
+     * The characters of the line being cleaned, if it is not ASCII
+     */
+    private CharBuffer chars;
+
+    /**
+     * Whether the default locale lowercases A to Z to a to z
+     */
+    private final boolean asciiLowerCase;
+
+    /**
+     * Decodes lines that are not ASCII, reporting malformed input the same way Files.newBufferedReader does
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * Receives each word
+     */
+    private final TokenVisitor visitor;
+
+    /**
+     * Single-arg constructor which implements a tokenizer
+     *
+     * @param visitor   receives each word
+     */
+    private TextTokenizer(TokenVisitor visitor)
+    {
+        this.visitor = visitor;
+        this.position = 0;
+        this.word = new char[64];
+        this.chars = CharBuffer.allocate(256);
+        this.asciiLowerCase = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase().equals("abcdefghijklmnopqrstuvwxyz");
+        this.decoder = StandardCharsets.UTF_8.newDecoder();
+    }
+
+    /**
+     * Passes every word of a file to the visitor
+     *
+     * @param path      the file
+     * @param visitor   receives each word
+     * @return          the number of words
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     */
+    public static int tokenize(Path path, TokenVisitor visitor) throws IOException
+    {
+        return tokenize(path, 0, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Passes every word of a range of a file to the visitor. The range should start and end at the start of a line.
+     *
+     * @param path      the file
+     * @param start     the byte offset the range starts at
+     * @param end       the byte offset the range ends at, which may be past the end of the file
+     * @param visitor   receives each word
+     * @return          the number of words
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     */
+    public static int tokenize(Path path, long start, long end, TokenVisitor visitor) throws IOException
+    {
+        TextTokenizer tokenizer = new TextTokenizer(visitor);
+
+        try (FileChannel channel = FileChannel.open(path))
+        {
+            end = Math.min(end, channel.size());
+
+            if (end - start < MAP_BYTES)
+            {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, end - start));
+
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0)
+                {
+                    // keep reading until the range is read or the file ends
+                }
+
+                tokenizer.lines(buffer.flip());
+                return tokenizer.position;
+            }
+
+            while (start < end)
+            {
+                long length = Math.min(end - start, REGION_BYTES);
+                MappedByteBuffer region;
+                int limit;
+
+                // a region other than the last one ends at its last line break, and grows until it has one
+                while (true)
+                {
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+                    if (start + length >= end || length >= Integer.MAX_VALUE)
+                    {
+                        limit = (int) length;
+                        break;
+                    }
+
+                    limit = lastLineBreak(region) + 1;
+
+                    if (limit > 0)
+                    {
+                        break;
+                    }
+
+                    length = Math.min(end - start, Math.min(Integer.MAX_VALUE, length * 2));
+                }
+
+                tokenizer.lines(region.limit(limit));
+                start += limit;
+            }
+        }
+
+        return tokenizer.position;
+    }
+
+    /**
+     * Passes every word of a buffer of UTF-8 text to the visitor
+     *
+     * @param buffer    the text, from its position to its limit
+     * @param visitor   receives each word
+     * @return          the number of words
+     * @throws CharacterCodingException if the text is not valid UTF-8
+     */
+    public static int tokenize(ByteBuffer buffer, TokenVisitor visitor) throws CharacterCodingException
+    {
+        TextTokenizer tokenizer = new TextTokenizer(visitor);
+        tokenizer.lines(buffer);
+        return tokenizer.position;
+    }
+
+    /**
+     * Finds the last line break of a buffer
+     *
+     * @param buffer    the buffer
+     * @return          the index of the last '\n' or '\r', or -1 if there is none
+     */
+    private static int lastLineBreak(ByteBuffer buffer)
+    {
+        for (int i = buffer.limit() - 1; i >= 0; i--)
+        {
+            byte value = buffer.get(i);
+
+            if (value == '\n' || value == '\r')
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Splits a buffer into lines the way BufferedReader.readLine does and passes the words of each line to the
+     * visitor. A "\r\n" is split into two line breaks, which only adds an empty line.
+     *
+     * @param buffer    the text, from its position to its limit
+     * @throws CharacterCodingException if the text is not valid UTF-8
+     */
+    private void lines(ByteBuffer buffer) throws CharacterCodingException
+    {
+        int start = buffer.position();
+        int limit = buffer.limit();
+
+        while (start < limit)
+        {
+            int end = start;
+            int bits = 0;
+
+            while (end < limit)
+            {
+                byte value = buffer.get(end);
+
+                if (value == '\n' || value == '\r')
+                {
+                    break;
+                }
+
+                bits |= value;
+                end++;
+            }
+
+            if (bits >= 0)
+            {
+                asciiLine(buffer, start, end);
+            }
+
+            else
+            {
+                textLine(buffer, start, end);
+            }
+
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Passes the words of an ASCII line to the visitor. Cleaning removes every byte that is not a letter or a
+     * space, and the spaces that are left split the words.
+     *
+     * @param buffer    the text
+     * @param start     the index of the first byte of the line
+     * @param end       the index after the last byte of the line
+     */
+    private void asciiLine(ByteBuffer buffer, int start, int end)
+    {
+        int length = 0;
+
+        for (int i = start; i < end; i++)
+        {
+            length = ascii((char) buffer.get(i), length);
+        }
+
+        emit(length);
+    }
+
+    /**
+     * Cleans an ASCII character, adding it to the word being built if it is a letter
+     *
+     * @param value     the character
+     * @param length    the length of the word being built
+     * @return          the new length of the word being built
+     */
+    private int ascii(char value, int length)
+    {
+        if ((value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z'))
+        {
+            if (length == word.length)
+            {
+                word = Arrays.copyOf(word, length * 2);
+            }
+
+            word[length++] = asciiLowerCase && value <= 'Z' ? (char) (value + ('a' - 'A')) : value;
+        }
+
+        // the same characters as (?U)\p{Space}, where the line breaks cannot occur
+        else if (value == ' ' || (value >= '\t' && value <= '\r'))
+        {
+            length = emit(length);
+        }
+
+        return length;
+    }
+
+    /**
+     * Decodes a line that is not ASCII and passes its words to the visitor
+     *
+     * @param buffer    the text
+     * @param start     the index of the first byte of the line
+     * @param end       the index after the last byte of the line
+     * @throws CharacterCodingException if the line is not valid UTF-8
+     */
+    private void textLine(ByteBuffer buffer, int start, int end) throws CharacterCodingException
+    {
+        // UTF-8 never has more characters than bytes
+        if (chars.capacity() < end - start)
+        {
+            chars = CharBuffer.allocate(Math.max(end - start, chars.capacity() * 2));
+        }
+
+        decoder.reset();
+        chars.clear();
+
+        CoderResult result = decoder.decode(buffer.duplicate().position(start).limit(end), chars, true);
+
+        if (!result.isUnderflow() || !(result = decoder.flush(chars)).isUnderflow())
+        {
+            result.throwException();
+        }
+
+        char[] text = chars.array();
+        int count = chars.position();
+
+        for (int i = 0; i < count; i++)
+        {
+            if (text[i] >= 0x80 && cleaned(text[i]) == null)
+            {
+                for (String parsed : TextParser.parse(new String(text, 0, count)))
+                {
+                    visitor.visit(parsed, ++position);
+                }
+
+                return;
+            }
+        }
+
+        int length = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (text[i] < 0x80)
+            {
+                length = ascii(text[i], length);
+                continue;
+            }
+
+            String cleaned = cleaned(text[i]);
+
+            if (length + cleaned.length() > word.length)
+            {
+                word = Arrays.copyOf(word, Math.max(length + cleaned.length(), length * 2));
+            }
+
+            cleaned.getChars(0, cleaned.length(), word, length);
+            length += cleaned.length();
+            isText |= !cleaned.isEmpty();
+        }
+
+        emit(length);
+    }
+
+    /**
+     * Passes the word being built to the visitor, if there is one
+     *
+     * @param length    the length of the word
+     * @return          0, the length of the next word
+     */
+    private int emit(int length)
+    {
+        if (length > 0)
+        {
+            String text = new String(word, 0, length);
+            visitor.visit(asciiLowerCase && !isText ? text : text.toLowerCase(), ++position);
+        }
+
+        isText = false;
+        return 0;
+    }
+
+    /**
+     * Returns what TextParser leaves of a character that is not ASCII
+     *
+     * @param value the character
+     * @return      the cleaned character, or null if it has to be cleaned together with the rest of its line
+     */
+    private static String cleaned(char value)
+    {
+        String[] block = CLEANED.get(value >>> 8);
+
+        if (block == null)
+        {
+            CLEANED.compareAndSet(value >>> 8, null, block(value >>> 8));
+            block = CLEANED.get(value >>> 8);
+        }
+
+        return block[value & 0xff];
+    }
+
+    /**
+     * Cleans every character of a block on its own. A character is left null if it normalizes to a space or
+     * to a combining mark, since normalizing a whole line can reorder combining marks and TextParser keeps
+     * some of them, or if it is a capital sigma, whose lowercase depends on where it is in a word.
+     *
+     * @param high  the high byte of the characters of the block
+     * @return      the cleaned characters of the block
+     */
+    private static String[] block(int high)
+    {
+        String[] block = new String[256];
+
+        for (int low = 0; low < 256; low++)
+        {
+            char value = (char) (high << 8 | low);
+
+            if (Character.isSurrogate(value))
+            {
+                continue;
+            }
+
+            String normalized = Normalizer.normalize(String.valueOf(value), Normalizer.Form.NFD);
+            String cleaned = TextParser.CLEAN_REGEX.matcher(normalized).replaceAll("");
+
+            if (isMark(normalized.charAt(0)) || TextParser.SPLIT_REGEX.matcher(normalized).find())
+            {
+                continue;
+            }
+
+            boolean isSimple = true;
+
+            for (int i = 0; i < cleaned.length(); i++)
+            {
+                char letter = cleaned.charAt(i);
+                isSimple &= !isMark(letter) && !Character.isSurrogate(letter) && letter != '\u03a3';
+            }
+
+            if (isSimple)
+            {
+                block[low] = cleaned;
+            }
+        }
+
+        return block;
+    }
+
+    /**
+     * Returns whether a character is a combining mark
+     *
+     * @param value the character
+     * @return      true if the character is a combining mark
+     */
+    private static boolean isMark(char value)
+    {
+        int type = Character.getType(value);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+}
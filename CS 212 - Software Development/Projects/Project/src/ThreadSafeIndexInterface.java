@@ -0,0 +1,11 @@
+/**
+ * An InvertedIndex whose every method can be called from many threads at once, such as by the builders, the
+ * web crawler and the directory watcher sharing it. Implementations choose how the words are guarded, such as
+ * by a single lock around another index or by locks striped by word.
+ *
+ * @author Omar Hussain
+ * @version v4.0.0
+ */
+public interface ThreadSafeIndexInterface extends InvertedIndexInterface
+{
+}
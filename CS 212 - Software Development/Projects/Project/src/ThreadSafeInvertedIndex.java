@@ -3,25 +3,55 @@ import java.nio.file.*;
 import java.util.*;
 
 /**
- * Implements a Thread-Safe version of the InvertedIndex class
+ * Implements a Thread-Safe version of the InvertedIndex class. The lock prefers writers by default, so a steady
+ * stream of searches cannot keep the builders and the crawler from adding to the index.
  * 
  * @author Omar Hussain
  * @version v3.0.0
  */
-public class ThreadSafeInvertedIndex extends InvertedIndex
+public class ThreadSafeInvertedIndex extends InvertedIndex implements ThreadSafeIndexInterface
 {
     /**
      * Initializes a SimpleReadWriteLock object to be used by the class
      */
     private final SimpleReadWriteLock lock;
 
+    /**
+     * Initializes the InvertedIndex that stores the data protected by the lock
+     */
+    private final InvertedIndex index;
+
     /**
      * Zero-arg Constructor which implements the lock variable for the class
      */
     public ThreadSafeInvertedIndex()
+    {
+        this(new InvertedIndex());
+    }
+
+    /**
+     * Single-arg Constructor which implements the lock variable for the class around an existing InvertedIndex,
+     * such as a CompactInvertedIndex
+     * 
+     * @param index the InvertedIndex to be protected by the lock
+     */
+    public ThreadSafeInvertedIndex(InvertedIndex index)
+    {
+        this(index, SimpleReadWriteLock.Mode.WRITER_PREFERENCE);
+    }
+
+    /**
+     * Multi-arg Constructor which implements the lock variable for the class around an existing InvertedIndex,
+     * letting readers and writers in in the given order
+     * 
+     * @param index the InvertedIndex to be protected by the lock
+     * @param mode  the order in which the lock lets readers and writers in
+     */
+    public ThreadSafeInvertedIndex(InvertedIndex index, SimpleReadWriteLock.Mode mode)
     {
         super();
-        lock = new SimpleReadWriteLock();
+        this.index = index;
+        lock = new SimpleReadWriteLock(mode);
     }
 
     /**
@@ -36,7 +66,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			return super.getWords();
+			return index.getWords();
         }
         
         finally
@@ -58,7 +88,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			return super.getLocations(word);
+			return index.getLocations(word);
         }
         
         finally
@@ -81,7 +111,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			return super.getPositions(word, location);
+			return index.getPositions(word, location);
         }
         
         finally
@@ -103,7 +133,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
         
         try
         {
-			return super.getLocationCount(location);
+			return index.getLocationCount(location);
         }
         
         finally
@@ -126,7 +156,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-            super.add(word, path, location);
+            index.add(word, path, location);
         }
 
         finally
@@ -147,7 +177,52 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			super.addAll(originIndex);
+			index.addAll(originIndex);
+        }
+        
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+	 * Removes every word and the word count of a location
+	 *
+	 * @param location  the location to be removed
+	 * @return          whether the location was in the InvertedIndex
+	 */
+    @Override
+    public boolean removeLocation(String location)
+    {
+        lock.writeLock().lock();
+
+        try
+        {
+			return index.removeLocation(location);
+        }
+        
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+	 * Replaces the words of a location with those of a newly built index. Searches see either the old or the
+	 * new words of the location, never a mix of both.
+	 *
+	 * @param location  the location to be replaced
+	 * @param document  the index holding the new words of the location
+	 */
+    @Override
+    public void replaceLocation(String location, InvertedIndex document)
+    {
+        lock.writeLock().lock();
+
+        try
+        {
+			index.replaceLocation(location, document);
         }
         
         finally
@@ -169,7 +244,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			return super.contains(word);
+			return index.contains(word);
         }
         
         finally
@@ -192,7 +267,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			return super.contains(word, location);
+			return index.contains(word, location);
         }
         
         finally
@@ -218,7 +293,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			return super.contains(word, location, position);
+			return index.contains(word, location, position);
         }
         
         finally
@@ -228,19 +303,80 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
     }
 
     /**
-	 * Outputs the contents of the InvertedIndex in the JSON format.
+	 * Outputs the contents of the InvertedIndex in the JSON format. The words are copied under the lock and
+     * then written one at a time, so the lock is only held while a single word is being written.
+	 *
+	 * @param path      the filepath of the file to be outputted
+	 * @param compact   whether newlines and indents are left out
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void invertedIndexWriter(Path path, boolean compact) throws IOException
+    {
+        ArrayList<String> words;
+
+        lock.readLock().lock();
+
+        try
+        {
+            words = new ArrayList<>(index.getWords());
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        try (JsonStreamWriter writer = JsonStreamWriter.open(path, compact))
+        {
+            writer.startInvertedIndex();
+
+            for (String word : words)
+            {
+                termWriter(word, writer);
+            }
+
+            writer.endInvertedIndex();
+        }
+    }
+
+    /**
+	 * Outputs a single word of the InvertedIndex with its locations and positions
+	 *
+	 * @param word      the word to be outputted
+	 * @param writer    the writer the word is streamed to
+	 * @throws IOException if an IO error occurs
+	 */
+    @Override
+    public void termWriter(String word, JsonStreamWriter writer) throws IOException
+    {
+        lock.readLock().lock();
+
+        try
+        {
+            index.termWriter(word, writer);
+        }
+
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+	 * Outputs the contents of the InvertedIndex as a segment file that can be reopened with SegmentInvertedIndex.
 	 *
 	 * @param path  the filepath of the file to be outputted
 	 * @throws IOException if an IO error occurs
 	 */
     @Override
-    public void invertedIndexWriter(Path path) throws IOException
+    public void segmentWriter(Path path) throws IOException
     {
         lock.readLock().lock();
-        
+
         try
         {
-			super.invertedIndexWriter(path);
+			index.segmentWriter(path);
         }
         
         finally
@@ -261,7 +397,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 
         try
         {
-			super.dataCountWriter(path);
+			index.dataCountWriter(path);
         }
         
         finally
@@ -274,16 +410,17 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 	 * Searches for any word stem in the InvertedIndex that starts with a query word
 	 * 
 	 * @param setOfQueries  a set of the queries to be searched for
+     * @param limit         the maximum number of results to keep, or ALL_RESULTS to keep every result
      * @return              a list containing the contents of the set with any word stem that starts with a query word
 	 */
     @Override
-    public ArrayList<Result> partialSearch(Set<String> setOfQueries)
+    public ArrayList<Result> partialSearch(Set<String> setOfQueries, int limit)
     {
         lock.readLock().lock();
 
         try
         {
-			return super.partialSearch(setOfQueries);
+			return index.partialSearch(setOfQueries, limit);
         }
         
         finally
@@ -296,15 +433,16 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
 	 * Generates search results depending on the queries and the search configuration
 	 * 
 	 * @param setOfQueries      a set of the queries to be searched for
+     * @param limit             the maximum number of results to keep, or ALL_RESULTS to keep every result
      * @return                  a list of search results
 	 */
-    public ArrayList<Result> exactSearch(Set<String> setOfQueries)
+    public ArrayList<Result> exactSearch(Set<String> setOfQueries, int limit)
     {
         lock.readLock().lock();
         
         try
         {
-			return super.exactSearch(setOfQueries);
+			return index.exactSearch(setOfQueries, limit);
         }
         
         finally
@@ -323,7 +461,7 @@ public class ThreadSafeInvertedIndex extends InvertedIndex
         
         try
         {
-			return super.toString();
+			return index.toString();
         }
         
         finally
@@ -1,8 +1,16 @@
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * Implements a Thread-Safe version of the InvertedIndexBuilder class
+ * Implements a Thread-Safe version of the InvertedIndexBuilder class. Work is scheduled by file size: tiny
+ * files are parsed in batches, so each task is worth queueing, and very large files are split into chunks
+ * of whole lines that are parsed in parallel, so one file cannot keep a single worker busy long after the
+ * others are done. Files waiting to be queued are queued largest first.
  * 
  * @author Omar Hussain
  * @version v3.0.0
@@ -39,7 +47,7 @@ public class ThreadSafeInvertedIndexBuilder extends InvertedIndexBuilder
                 InvertedIndex originIndex = new InvertedIndex();
 
                 fileParse(path, originIndex);
-                index.addAll(originIndex);
+                offer(originIndex);
             }
 
             catch (IOException e)
@@ -49,62 +57,606 @@ public class ThreadSafeInvertedIndexBuilder extends InvertedIndexBuilder
         }
     }
 
+    /**
+     * Nested class that parses a batch of tiny files into a single partial index
+     */
+    public class BatchTask implements Runnable
+    {
+        /**
+         * The files to be parsed
+         */
+        private final List<Path> paths;
+
+        /**
+         * Single-arg constructor which implements the files of the batch
+         * 
+         * @param paths the files to be parsed
+         */
+        public BatchTask(List<Path> paths)
+        {
+            this.paths = paths;
+        }
+
+        /**
+         * Overriden run() method parses every file of the batch and offers their partial index. The words of a
+         * file that fails part way through are removed again, so the batch only holds files that parsed fully.
+         */
+        @Override
+        public void run()
+        {
+            InvertedIndex originIndex = new InvertedIndex();
+
+            for (Path path : paths)
+            {
+                try
+                {
+                    fileParse(path, originIndex);
+                }
+
+                catch (IOException e)
+                {
+                    originIndex.removeLocation(path.toString());
+                    System.out.println("Invalid path! Unable to add '" + path + "' to InvertedIndex!");
+                }
+            }
+
+            offer(originIndex);
+        }
+    }
+
+    /**
+     * Nested class that holds the chunks of a large file until all of them are parsed
+     */
+    private class SplitFile
+    {
+        /**
+         * The file that was split
+         */
+        private final Path path;
+
+        /**
+         * The byte offset where each chunk starts, followed by the size of the file
+         */
+        private final long[] bounds;
+
+        /**
+         * The partial index of each parsed chunk, with positions counted from the start of the chunk
+         */
+        private final InvertedIndex[] parts;
+
+        /**
+         * The number of words in each parsed chunk
+         */
+        private final int[] counts;
+
+        /**
+         * The number of chunks not yet parsed
+         */
+        private int remaining;
+
+        /**
+         * Whether a chunk could not be parsed
+         */
+        private boolean failed;
+
+        /**
+         * Multi-arg constructor which implements a file split at the given offsets
+         * 
+         * @param path      the file that was split
+         * @param bounds    the byte offset where each chunk starts, followed by the size of the file
+         */
+        private SplitFile(Path path, long[] bounds)
+        {
+            this.path = path;
+            this.bounds = bounds;
+            this.parts = new InvertedIndex[bounds.length - 1];
+            this.counts = new int[bounds.length - 1];
+            this.remaining = parts.length;
+        }
+
+        /**
+         * Records a parsed chunk. Once every chunk is parsed, the positions of each chunk are moved past the words
+         * of the chunks before it and the whole file is offered as one partial index. Counting the words of every
+         * chunk before parsing would avoid moving positions, but would clean every line twice, which costs more.
+         * 
+         * @param chunk the index of the chunk
+         * @param part  the partial index of the chunk, or null if it could not be parsed
+         * @param count the number of words in the chunk
+         */
+        private void finished(int chunk, InvertedIndex part, int count)
+        {
+            synchronized (this)
+            {
+                parts[chunk] = part;
+                counts[chunk] = count;
+                failed |= part == null;
+
+                if (--remaining > 0)
+                {
+                    return;
+                }
+            }
+
+            if (failed)
+            {
+                System.out.println("Invalid path! Unable to add '" + path + "' to InvertedIndex!");
+                return;
+            }
+
+            String location = path.toString();
+            InvertedIndex combined = parts[0];
+            int offset = counts[0];
+
+            for (int i = 1; i < parts.length; i++)
+            {
+                for (String word : parts[i].getWords())
+                {
+                    for (int position : parts[i].getPositions(word, location))
+                    {
+                        combined.add(word, location, position + offset);
+                    }
+                }
+
+                offset += counts[i];
+            }
+
+            offer(combined);
+        }
+    }
+
+    /**
+     * Nested class that parses one chunk of a large file
+     */
+    private class ChunkTask implements Runnable
+    {
+        /**
+         * The file the chunk belongs to
+         */
+        private final SplitFile file;
+
+        /**
+         * The index of the chunk
+         */
+        private final int chunk;
+
+        /**
+         * Multi-arg constructor which implements a chunk of a split file
+         * 
+         * @param file  the file the chunk belongs to
+         * @param chunk the index of the chunk
+         */
+        private ChunkTask(SplitFile file, int chunk)
+        {
+            this.file = file;
+            this.chunk = chunk;
+        }
+
+        /**
+         * Overriden run() method parses the lines of the chunk, numbering its words from one
+         */
+        @Override
+        public void run()
+        {
+            InvertedIndex part = new InvertedIndex();
+            int count;
+
+            try
+            {
+                count = rangeParse(file.path, file.bounds[chunk], file.bounds[chunk + 1], part);
+            }
+
+            catch (IOException e)
+            {
+                part = null;
+                count = 0;
+            }
+
+            file.finished(chunk, part, count);
+        }
+    }
+
+    /**
+     * Nested class that pairs a task with the number of bytes it parses
+     */
+    private static class Unit
+    {
+        /**
+         * The number of bytes the task parses
+         */
+        private final long bytes;
+
+        /**
+         * The task
+         */
+        private final Runnable task;
+
+        /**
+         * Multi-arg constructor which implements a unit of work
+         * 
+         * @param bytes the number of bytes the task parses
+         * @param task  the task
+         */
+        private Unit(long bytes, Runnable task)
+        {
+            this.bytes = bytes;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Nested class allows two partial indexes to be merged on a worker thread without locking the shared index
+     */
+    public class MergeTask implements Runnable
+    {
+        /**
+         * The first partial index to be merged
+         */
+        private InvertedIndex first;
+
+        /**
+         * The second partial index to be merged
+         */
+        private InvertedIndex second;
+
+        /**
+         * Multi-arg constructor which implements the partial indexes to be merged
+         * 
+         * @param first     the first partial index to be merged
+         * @param second    the second partial index to be merged
+         */
+        public MergeTask(InvertedIndex first, InvertedIndex second)
+        {
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Overriden run() method merges the smaller partial index into the larger one and offers the result
+         */
+        @Override
+        public void run()
+        {
+            if (first.getWords().size() < second.getWords().size())
+            {
+                second.addAll(first);
+                offer(second);
+            }
+
+            else
+            {
+                first.addAll(second);
+                offer(first);
+            }
+        }
+    }
+
+    /**
+     * The number of tasks each worker thread can have waiting to be run
+     */
+    public static final int FILES_PER_THREAD = 4;
+
+    /**
+     * The size in bytes below which files are parsed in batches
+     */
+    public static final long SMALL_FILE_BYTES = 16 * 1024;
+
+    /**
+     * The number of bytes of tiny files parsed by a single batch
+     */
+    public static final long BATCH_BYTES = 256 * 1024;
+
+    /**
+     * The size in bytes of the chunks large files are split into. Files smaller than two chunks are not split.
+     */
+    public static final long CHUNK_BYTES = 1024 * 1024;
+
     /**
 	 * Initializes a variable to store information from text files that can be globally accessed and modified.
 	 */
-	private final ThreadSafeInvertedIndex index;
+	private final ThreadSafeIndexInterface index;
+
+    /**
+     * The group of the shared WorkQueue that runs the tasks of the class, so a build only waits for its own tasks
+     */
+    private final WorkQueue.TaskGroup group;
+
+    /**
+     * A partial index waiting for another partial index to be merged with
+     */
+    private InvertedIndex pendingIndex;
+
+    /**
+     * The lock object used for synchronized access of the pending partial index
+     */
+    private final Object pendingLock;
+
+    /**
+     * The room left for files waiting to be parsed, so the traversal waits for the workers instead of queueing
+     * every file of a large tree
+     */
+    private final Semaphore room;
+
+    /**
+     * The number of tasks that can wait in {@link #waiting}
+     */
+    private final int window;
 
     /**
-     * Initializes a WorkQueue object to be used by the class
+     * The tasks found by the traversal but not yet queued, with the largest first
      */
-    private final WorkQueue queue;
+    private final PriorityQueue<Unit> waiting;
+
+    /**
+     * The tiny files waiting to be parsed as a batch
+     */
+    private ArrayList<Path> batch;
+
+    /**
+     * The number of bytes of the tiny files waiting to be parsed as a batch
+     */
+    private long batchBytes;
 
     /**
      * Multi-arg constructor that implements index and queue variables for the class
-     * @param index     the ThreadSafeInvertedIndex to be used by the class
+     * @param index     the ThreadSafeIndexInterface to be used by the class
      * @param queue     the WorkQueue to be used by the class
      */
-    public ThreadSafeInvertedIndexBuilder(ThreadSafeInvertedIndex index, WorkQueue queue)
+    public ThreadSafeInvertedIndexBuilder(ThreadSafeIndexInterface index, WorkQueue queue)
     {
         super(index);
         this.index = index;
-        this.queue = queue;
+        this.group = queue.newGroup();
+        this.pendingIndex = null;
+        this.pendingLock = new Object();
+        this.window = Math.max(1, queue.size() * FILES_PER_THREAD);
+        this.room = new Semaphore(window);
+        this.waiting = new PriorityQueue<>((first, second) -> Long.compare(second.bytes, first.bytes));
+        this.batch = new ArrayList<>();
+        this.batchBytes = 0;
     }
 
     /**
-	 * Recursively searches a filepath for files to fileParse and add to the InvertedIndex
+     * Pairs a finished partial index with the pending one and queues their merge, or leaves it pending if there
+     * is nothing to pair it with yet. Partial indexes are reduced pairwise in parallel this way, so the shared index
+     * is only written to once per traversal.
+     * 
+     * @param partialIndex  the partial index to be merged
+     */
+    private void offer(InvertedIndex partialIndex)
+    {
+        InvertedIndex otherIndex;
+
+        synchronized (pendingLock)
+        {
+            if (pendingIndex == null)
+            {
+                pendingIndex = partialIndex;
+                return;
+            }
+
+            otherIndex = pendingIndex;
+            pendingIndex = null;
+        }
+
+        group.execute(new MergeTask(partialIndex, otherIndex));
+    }
+
+    /**
+	 * Recursively searches a filepath for files to fileParse and add to the InvertedIndex. Files are scheduled
+	 * by size as soon as they are found, and the files found before an error are still added.
 	 *
 	 * @param path     the origin filepath to search at
 	 * @throws IOException if an IO error occurs
      * @throws FileNotFoundException if a FileNotFound error occurs
+     * @throws InterruptedException if interrupted while waiting for the files to be parsed
 	 */
     @Override
-    public void directoryTraverseAndParse(Path path) throws IOException, FileNotFoundException
+    public void directoryTraverseAndParse(Path path) throws IOException, FileNotFoundException, InterruptedException
     {
-        super.directoryTraverseAndParse(path);
-
         try
         {
-            queue.finish();
+            if (path != null)
+            {
+                TextFileFinder.walk(path, this::schedule);
+            }
         }
 
-        catch (InterruptedException e)
+        finally
         {
-            throw new IOException();
+            flushBatch();
+
+            while (!waiting.isEmpty())
+            {
+                execute(waiting.poll().task);
+            }
+
+            group.finish();
+
+            InvertedIndex mergedIndex;
+
+            synchronized (pendingLock)
+            {
+                mergedIndex = pendingIndex;
+                pendingIndex = null;
+            }
+
+            if (mergedIndex != null)
+            {
+                index.addAll(mergedIndex);
+            }
         }
     }
 
+    /**
+     * Schedules a file found by the traversal according to its size. Tiny files are added to the current batch,
+     * very large files are split into chunks and every other file becomes a task of its own. Tasks wait until
+     * more than a window of them are found, and the largest waiting task is queued first.
+     * 
+     * @param path          the file
+     * @param attributes    the attributes of the file
+     * @throws IOException if a large file cannot be split
+     */
+    private void schedule(Path path, BasicFileAttributes attributes) throws IOException
+    {
+        long size = attributes.size();
+
+        if (size < SMALL_FILE_BYTES)
+        {
+            batch.add(path);
+            batchBytes += size;
+
+            if (batchBytes >= BATCH_BYTES)
+            {
+                flushBatch();
+            }
+
+            return;
+        }
+
+        if (size < 2 * CHUNK_BYTES)
+        {
+            plan(new Unit(size, new Task(path)));
+            return;
+        }
+
+        long[] bounds = split(path, size);
+
+        // a file without lines to split at is parsed whole
+        if (bounds.length == 2)
+        {
+            plan(new Unit(size, new Task(path)));
+            return;
+        }
+
+        SplitFile file = new SplitFile(path, bounds);
+
+        for (int i = 0; i < file.parts.length; i++)
+        {
+            plan(new Unit(file.bounds[i + 1] - file.bounds[i], new ChunkTask(file, i)));
+        }
+    }
+
+    /**
+     * Finds where the chunks of a large file start. Each chunk starts right after a newline, so no line is
+     * split between chunks.
+     * 
+     * @param path  the file
+     * @param size  the size of the file in bytes
+     * @return      the byte offset where each chunk starts, followed by the size of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] split(Path path, long size) throws IOException
+    {
+        long[] bounds = new long[(int) Math.min(Integer.MAX_VALUE - 8, size / CHUNK_BYTES + 2)];
+        int count = 1;
+
+        try (FileChannel channel = FileChannel.open(path))
+        {
+            long start = nextLine(channel, CHUNK_BYTES);
+
+            while (start > 0 && start < size)
+            {
+                bounds[count++] = start;
+                start = nextLine(channel, start + CHUNK_BYTES);
+            }
+        }
+
+        bounds[count++] = size;
+
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Finds the start of the first line that starts after a byte offset
+     * 
+     * @param channel   the file
+     * @param position  the byte offset to search from
+     * @return          the byte offset right after the next newline, or -1 if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLine(FileChannel channel, long position) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        int read;
+
+        while ((read = channel.read(buffer.clear(), position)) > 0)
+        {
+            for (int i = 0; i < read; i++)
+            {
+                if (buffer.get(i) == '\n')
+                {
+                    return position + i + 1;
+                }
+            }
+
+            position += read;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Adds the current batch of tiny files to the waiting tasks
+     */
+    private void flushBatch()
+    {
+        if (!batch.isEmpty())
+        {
+            plan(new Unit(batchBytes, new BatchTask(batch)));
+            batch = new ArrayList<>();
+            batchBytes = 0;
+        }
+    }
+
+    /**
+     * Adds a task to the waiting tasks, and queues the largest one once more than a window of them are waiting
+     * 
+     * @param unit  the task and its size
+     */
+    private void plan(Unit unit)
+    {
+        waiting.add(unit);
+
+        if (waiting.size() > window)
+        {
+            execute(waiting.poll().task);
+        }
+    }
+
+    /**
+     * Queues a task, waiting while every worker already has its share of tasks waiting, so the queue does not
+     * grow with the size of the tree
+     * 
+     * @param task  the task to be queued
+     */
+    protected void execute(Runnable task)
+    {
+        room.acquireUninterruptibly();
+
+        group.execute(() -> {
+            try
+            {
+                task.run();
+            }
+
+            finally
+            {
+                room.release();
+            }
+        });
+    }
+
     /**
      * fileParse helper method which takes in only a filepath
      * 
      * @param path  the filepath to search at
      * @throws FileNotFoundException
      * @throws IOException
-     * @see #fileParse(Path, InvertedIndex)
+     * @see #fileParse(Path, InvertedIndexInterface)
      */
     @Override
     public void fileParse(Path path) throws FileNotFoundException, IOException
     {
-        queue.execute(new Task(path));
+        execute(new Task(path));
     }
 }
\ No newline at end of file
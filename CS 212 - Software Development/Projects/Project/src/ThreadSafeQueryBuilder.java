@@ -59,7 +59,7 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface
                 return;
             }
 
-            ArrayList<InvertedIndex.Result> searchResults = index.searchResultsGenerator(setOfStems, isPartialSearch);
+            ArrayList<InvertedIndex.Result> searchResults = index.searchResultsGenerator(setOfStems, isPartialSearch, limit);
 
             synchronized (cachedResults)
             {
@@ -71,7 +71,7 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface
     /**
 	 * Initializes a variable to store information from text files that can be globally accessed and modified.
 	 */
-	private final ThreadSafeInvertedIndex index;
+	private final ThreadSafeIndexInterface index;
     
     /**
      * Initializes a nested data structure used to hold query values that can be globally accessed and modified.
@@ -79,19 +79,36 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface
     private final TreeMap<String, ArrayList<InvertedIndex.Result>> cachedResults;
 
     /**
-     * Initializes a WorkQueue object to be used by the class
+     * The group of the shared WorkQueue that runs the queries, so a build only waits for its own queries
      */
-    private final WorkQueue queue;
+    private final WorkQueue.TaskGroup group;
+
+    /**
+     * The maximum number of results kept for each query
+     */
+    private final int limit;
 
     /**
      * Multi-arg constructor that implements index and queue variables as well as TreeMap of results for the class
-     * @param index     the ThreadSafeInvertedIndex to be used by the class
+     * @param index     the ThreadSafeIndexInterface to be used by the class
      * @param queue     the WorkQueue to be used by the class
      */
-    public ThreadSafeQueryBuilder(ThreadSafeInvertedIndex index, WorkQueue queue)
+    public ThreadSafeQueryBuilder(ThreadSafeIndexInterface index, WorkQueue queue)
+    {
+        this(index, queue, InvertedIndex.ALL_RESULTS);
+    }
+
+    /**
+     * Multi-arg constructor that implements index, queue, and limit variables as well as TreeMap of results for the class
+     * @param index     the ThreadSafeIndexInterface to be used by the class
+     * @param queue     the WorkQueue to be used by the class
+     * @param limit     the maximum number of results kept for each query, or ALL_RESULTS to keep every result
+     */
+    public ThreadSafeQueryBuilder(ThreadSafeIndexInterface index, WorkQueue queue, int limit)
     {
         this.index = index;
-        this.queue = queue;
+        this.group = queue.newGroup();
+        this.limit = limit;
         cachedResults = new TreeMap<>();
     }
     
@@ -104,7 +121,7 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface
     @Override
     public void searchQuery(String query, boolean isPartialSearch)
     {
-        queue.execute(new Task(query, isPartialSearch));
+        group.execute(new Task(query, isPartialSearch));
     }
 
     /**
@@ -120,21 +137,25 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface
     public void build(Path path, boolean isPartialSearch) throws FileNotFoundException, IOException, InterruptedException
     {
         QueryBuilderInterface.super.build(path, isPartialSearch);
-		queue.finish();
+		group.finish();
     }
 
 	/**
 	 * Writes the output of a search to a file.
 	 * 
-	 * @param path  the path where the output file will be saved
+	 * @param path      the path where the output file will be saved
+	 * @param compact   whether newlines and indents are left out
 	 * @throws IOException if an IO error occurs
 	 */
     @Override
-    public void queryWriter(Path path) throws IOException
+    public void queryWriter(Path path, boolean compact) throws IOException
     {
         synchronized (cachedResults)
         {
-            SimpleJsonWriter.asQueryOutput(cachedResults, path);
+            try (JsonStreamWriter writer = JsonStreamWriter.open(path, compact))
+            {
+                writer.writeQueryOutput(cachedResults);
+            }
         }
 	}
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 import java.net.*;
 import java.util.*;
 
-import opennlp.tools.stemmer.Stemmer;
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
 /**
@@ -13,7 +12,7 @@ import opennlp.tools.stemmer.snowball.SnowballStemmer;
 public class WebCrawler
 {
     /**
-     * Nested class allows for the creation of Runnable objects to support multithreading
+     * Nested class allows for the creation of Runnable objects that index a fetched page
      */
     private class Task implements Runnable
     {
@@ -23,12 +22,26 @@ public class WebCrawler
         private URL url;
 
         /**
-         * Single-arg constructor which implements url variables
+         * The HTML content fetched from the url
+         */
+        private String html;
+
+        /**
+         * The stemmed words of the page kept from the previous crawl, or null if they must be found again
+         */
+        private String[] words;
+
+        /**
+         * Multi-arg constructor which implements url, html and words variables
          * @param link
+         * @param html
+         * @param words
          */
-        public Task(URL link)
+        public Task(URL link, String html, String[] words)
         {
             this.url = link;
+            this.html = html;
+            this.words = words;
         }
 
         /**
@@ -37,30 +50,104 @@ public class WebCrawler
         @Override
         public void run()
         {
-            Stemmer stemmer = new SnowballStemmer(DEFAULT);
+            InvertedIndex originIndex = new InvertedIndex();
+            String location = url.toString();
 
             int count = 1;
 
-            String html = HtmlFetcher.fetch(url, 3);
-
-            if (html == null)
+            if (words == null)
             {
-				return;
+                StemCache stemmer = StemCache.getShared();
+                ArrayList<String> stems = state != null ? new ArrayList<>() : null;
+
+                String cleanedHTML = HtmlCleaner.stripHtml(html);
+                
+                for (String word : TextParser.parse(cleanedHTML))
+                {
+                    String stem = stemmer.stem(word);
+                    originIndex.add(stem, location, count++);
+
+                    if (stems != null)
+                    {
+                        stems.add(stem);
+                    }
+                }
+
+                if (stems != null)
+                {
+                    state.putWords(location, stems.toArray(new String[0]));
+                }
             }
-            
-            String cleanedHTML = HtmlCleaner.stripHtml(html);
-            
-            synchronized (index)
+
+            else
             {
-                for (String word : TextParser.parse(cleanedHTML))
+                for (String word : words)
                 {
-                    index.add(stemmer.stem(word).toString(), url.toString(), count++);
-				}
+                    originIndex.add(word, location, count++);
+                }
             }
-            
+
+            index.addAll(originIndex);
+        }
+    }
+
+    /**
+     * Nested class allows for the creation of Runnable objects that find and fetch the links of a fetched page
+     */
+    private class LinkTask implements Runnable
+    {
+        /**
+         * The origin url to be used by the WebCrawler
+         */
+        private URL url;
+
+        /**
+         * The HTML content fetched from the url
+         */
+        private String html;
+
+        /**
+         * The cleaned links of the page kept from the previous crawl, or null if they must be found again
+         */
+        private String[] links;
+
+        /**
+         * Multi-arg constructor which implements url, html and links variables
+         * @param link
+         * @param html
+         * @param links
+         */
+        public LinkTask(URL link, String html, String[] links)
+        {
+            this.url = link;
+            this.html = html;
+            this.links = links;
+        }
+
+        /**
+         * Overriden run() method allows for custom tasks to be carried out
+         */
+        @Override
+        public void run()
+        {
             try
             {
-				crawl(url);
+                if (links == null)
+                {
+                    crawl(url, html);
+                }
+
+                else
+                {
+                    ArrayList<URL> cleanedLinks = new ArrayList<>(links.length);
+
+                    for (String link : links)
+                    {
+                        cleanedLinks.add(new URL(link));
+                    }
+
+                    claimLinks(cleanedLinks);
+                }
             }
             
             catch (MalformedURLException e)
@@ -78,48 +165,226 @@ public class WebCrawler
     /**
 	 * Initializes a variable to store information from text files that can be globally accessed and modified.
 	 */
-    private final ThreadSafeInvertedIndex index;
+    private final ThreadSafeIndexInterface index;
 
     /**
-     * An ArrayList that stores processed URL objects
+     * The frontier that claims each URL to be processed
      */
-    private final ArrayList<URL> listOfURLs;
+    private final CrawlFrontier frontier;
     
     /**
-     * Initializes a WorkQueue object to be used by the class
+     * Initializes a WorkQueue object that runs the link stage
+     */
+    private final WorkQueue linkQueue;
+
+    /**
+     * The stage recording the fetches
      */
-    private final WorkQueue queue;
+    private final CrawlStage fetchStage;
+
+    /**
+     * The stage finding and fetching the links of each page
+     */
+    private final CrawlStage linkStage;
+
+    /**
+     * The stage cleaning, stemming and indexing each page
+     */
+    private final CrawlStage indexStage;
     
     /**
-     * The number of URLs to be processed
+     * The fetcher used to download every URL
+     */
+    private final PooledHtmlFetcher fetcher;
+
+    /**
+     * The state of the previous crawl used to skip unchanged pages, or null if every page is processed
+     */
+    private final CrawlState state;
+
+    /**
+     * The lock guarding the fetch counters
+     */
+    private final Object fetchLock;
+
+    /**
+     * The number of fetches that have not completed yet
+     */
+    private int pendingFetches;
+
+    /**
+     * The number of fetches started since the crawler was created
      */
-    private final int totalURLCount;
+    private int startedFetches;
+
+    /**
+     * Multi-arg constructor that implements index and queue variables as well as a CrawlFrontier for the class
+     * 
+     * @param index
+     * @param queue
+     * @param totalURLCount
+     */
+    public WebCrawler(ThreadSafeIndexInterface index, WorkQueue queue, int totalURLCount)
+    {
+        this(index, queue, totalURLCount, new PooledHtmlFetcher());
+    }
 
     /**
-     * Multi-arg constructor that implements index and queue variables as well as an ArrayList of URLs for the class
+     * Multi-arg constructor that implements index, queue and fetcher variables as well as a CrawlFrontier for the class
      * 
      * @param index
      * @param queue
      * @param totalURLCount
+     * @param fetcher
      */
-    public WebCrawler(ThreadSafeInvertedIndex index, WorkQueue queue, int totalURLCount)
+    public WebCrawler(ThreadSafeIndexInterface index, WorkQueue queue, int totalURLCount, PooledHtmlFetcher fetcher)
+    {
+        this(index, queue, new CrawlFrontier(totalURLCount), fetcher);
+    }
+
+    /**
+     * Multi-arg constructor that implements index, queue, frontier and fetcher variables for the class
+     * 
+     * @param index
+     * @param queue
+     * @param frontier
+     * @param fetcher
+     */
+    public WebCrawler(ThreadSafeIndexInterface index, WorkQueue queue, CrawlFrontier frontier, PooledHtmlFetcher fetcher)
+    {
+        this(index, queue, frontier, fetcher, null);
+    }
+
+    /**
+     * Multi-arg constructor that implements index, queue, frontier, fetcher and state variables for the class
+     * 
+     * @param index
+     * @param queue
+     * @param frontier
+     * @param fetcher
+     * @param state     the state of the previous crawl, which is updated as pages are fetched, or null
+     */
+    public WebCrawler(ThreadSafeIndexInterface index, WorkQueue queue, CrawlFrontier frontier, PooledHtmlFetcher fetcher, CrawlState state)
     {
         this.index = index;
-        this.queue = queue;
-        this.totalURLCount = totalURLCount;
-        listOfURLs = new ArrayList<>();
+        this.frontier = frontier;
+        this.fetcher = fetcher;
+        this.state = state;
+        linkQueue = new WorkQueue(Math.max(1, queue.size() / 2));
+        fetchStage = new CrawlStage("fetch");
+        linkStage = new CrawlStage("links", linkQueue, CrawlStage.DEFAULT_CAPACITY);
+        indexStage = new CrawlStage("index", queue, CrawlStage.DEFAULT_CAPACITY);
+        fetchLock = new Object();
+        pendingFetches = 0;
+        startedFetches = 0;
     }
 
     /**
-     * Creates a new Task object that stores data in the InvertedIndex
+     * Fetches the URL without blocking. Once the HTML arrives, it is handed to both the link stage, which
+     * fetches the new links it finds, and the index stage, which stores its data in the InvertedIndex,
+     * so each URL is fetched only once and parsing overlaps with the fetches still in flight. With a CrawlState,
+     * the request is conditional, and a page that did not change is crawled and indexed from its stored links
+     * and words instead.
      * 
      * @param link  the URL to be processed
      */
     public void storeHTML(URL link)
     {
-		queue.execute(new Task(link));
+        synchronized (fetchLock)
+        {
+            pendingFetches++;
+            startedFetches++;
+        }
+
+        long started = fetchStage.begin();
+
+        String location = link.toString();
+        CrawlState.Entry previous = state != null ? state.getPrevious(location) : null;
+
+        String etag = previous != null ? previous.getEtag() : null;
+        String lastModified = previous != null ? previous.getLastModified() : null;
+
+        fetcher.fetch(link, 3, etag, lastModified).whenComplete((page, error) -> {
+            fetchStage.end(started);
+
+            if (page != null && page.isNotModified() && previous != null)
+            {
+                state.keep(location, previous);
+
+                linkStage.execute(new LinkTask(link, null, previous.getLinks()));
+                indexStage.execute(new Task(link, null, previous.getWords()));
+            }
+
+            else if (page != null && page.getHtml() != null)
+            {
+                String html = page.getHtml();
+                CrawlState.Entry unchanged = state != null ? state.update(location, html, page.getEtag(), page.getLastModified()) : null;
+
+                linkStage.execute(new LinkTask(link, html, unchanged != null ? unchanged.getLinks() : null));
+                indexStage.execute(new Task(link, html, unchanged != null ? unchanged.getWords() : null));
+            }
+
+            synchronized (fetchLock)
+            {
+                pendingFetches--;
+                fetchLock.notifyAll();
+            }
+        });
+    }
+
+    /**
+     * Waits until every fetch has completed and every task it created has finished
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void finish() throws InterruptedException
+    {
+        int seen;
+
+        while (true)
+        {
+            synchronized (fetchLock)
+            {
+                seen = startedFetches;
+
+                while (pendingFetches > 0)
+                {
+                    fetchLock.wait();
+                }
+            }
+
+            linkStage.finish();
+            indexStage.finish();
+
+            synchronized (fetchLock)
+            {
+                if (startedFetches == seen)
+                {
+                    return;
+                }
+            }
+        }
     }
     
+    /**
+     * Returns the stages of the crawl in pipeline order, so their throughput and queue depths can be reported
+     * 
+     * @return  the fetch, link and index stages
+     */
+    public List<CrawlStage> getStages()
+    {
+        return List.of(fetchStage, linkStage, indexStage);
+    }
+
+    /**
+     * Stops the threads of the link stage once crawling is done. The index stage runs on the WorkQueue
+     * given to the constructor, which is left for its owner to shut down.
+     */
+    public void shutdown()
+    {
+        linkQueue.shutdown();
+    }
+
     /**
      * Adds all HTML content at the URL link to the InvertedIndex
      * 
@@ -127,15 +392,15 @@ public class WebCrawler
      * @param html          the HTML content as a String
      * @param index         the InvertedIndex to be used
      */
-    public static void addHTML(String linkAsString, String html, ThreadSafeInvertedIndex index)
+    public static void addHTML(String linkAsString, String html, ThreadSafeIndexInterface index)
     {
-        Stemmer stemmer = new SnowballStemmer(DEFAULT);
+        StemCache stemmer = StemCache.getShared();
 
         int count = 1;
         
         for (String word : TextParser.parse(html))
         {
-			index.add(stemmer.stem(word).toString(), linkAsString, count++);
+			index.add(stemmer.stem(word), linkAsString, count++);
 		}
     }
 
@@ -143,36 +408,56 @@ public class WebCrawler
      * Stores the HTML information in the links found within a URL
      * 
      * @param link                      the URL to be processed
+     * @param html                      the HTML content already fetched from the URL
      * @throws MalformedURLException    if an MalformedURLException error occurs
      */
-    public void crawl(URL link) throws MalformedURLException
+    public void crawl(URL link, String html) throws MalformedURLException
     {
-        String html = HtmlFetcher.fetch(link, 3);
-
-        if (html == null)
+        // the links of every page are still recorded for the next crawl when a state is kept
+        if (frontier.isFull() && state == null)
         {
-			return;
+            return;
         }
-        
+
+        ArrayList<URL> cleanedLinks = new ArrayList<>();
+
         for (URL tempURL : LinkParser.listLinks(link, html))
         {
-            boolean containsURL = false;
+            cleanedLinks.add(LinkParser.clean(tempURL));
+        }
 
-            URL tempCleanedURL = LinkParser.clean(tempURL);
-            
-            synchronized (listOfURLs)
+        if (state != null)
+        {
+            String[] links = new String[cleanedLinks.size()];
+
+            for (int i = 0; i < links.length; i++)
             {
-                if (listOfURLs.contains(tempCleanedURL))
-                {
-					containsURL = true;
-                }
+                links[i] = cleanedLinks.get(i).toString();
             }
 
-            if (!containsURL && listOfURLs.size() < totalURLCount)
+            state.putLinks(link.toString(), links);
+        }
+
+        claimLinks(cleanedLinks);
+    }
+
+    /**
+     * Claims and fetches the cleaned links of a page in order, until the frontier is full
+     * 
+     * @param cleanedLinks  the cleaned links of the page
+     */
+    private void claimLinks(List<URL> cleanedLinks)
+    {
+        for (URL tempCleanedURL : cleanedLinks)
+        {
+            if (frontier.claim(tempCleanedURL))
             {
                 storeHTML(tempCleanedURL);
-                
-                listOfURLs.add(tempCleanedURL);
+            }
+
+            else if (frontier.isFull())
+            {
+                return;
             }
         }
     }
@@ -189,8 +474,11 @@ public class WebCrawler
     {
         URL cleaned = LinkParser.clean(new URL(linkAsString));
         
-		storeHTML(cleaned);
-		listOfURLs.add(cleaned);
-        queue.finish();
+        if (frontier.claim(cleaned))
+        {
+            storeHTML(cleaned);
+        }
+
+        finish();
     }
 }
\ No newline at end of file
@@ -1,10 +1,30 @@
-import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 /**
  * A simple work queue implementation based on the IBM Developer article by
  * Brian Goetz. It is up to the user of this class to keep track of whether
  * there is any pending work remaining.
  *
+ * Each worker has a deque of its own instead of every worker sharing one list
+ * behind one monitor. A task queued by a worker goes to that worker's deque,
+ * and a task queued from any other thread goes to the deque of a random
+ * worker. A worker runs the tasks of its own deque first and steals from the
+ * other deques once its own is empty, so no lock is shared by every submit.
+ * Idle workers park. A submit only wakes one of them when no worker is
+ * already looking for a task, instead of waking every worker.
+ *
+ * Components sharing one queue each submit through a {@link TaskGroup} of
+ * their own, so each can wait for just its own tasks while the others keep
+ * running. {@link #finish()} still waits for every task of every group.
+ *
+ * A queue can be given a capacity, so a producer that outpaces the workers
+ * cannot fill the heap with waiting tasks. Once that many tasks are waiting,
+ * a submit waits for room, runs the task itself or drops it, as chosen by its
+ * {@link RejectionPolicy}. A worker never waits for room, since every worker
+ * could be waiting at once: it runs the task itself instead.
+ *
  * @see <a href=
  *      "https://www.ibm.com/developerworks/library/j-jtp0730/index.html"> Java
  *      Theory and Practice: Thread Pools and Work Queues</a>
@@ -20,8 +40,8 @@ public class WorkQueue {
      */
     private final PoolWorker[] workers;
 
-    /** Queue of pending work requests. */
-    private final LinkedList<Runnable> queue;
+    /** The workers waiting for work, which each submit takes one from to wake. */
+    private final ConcurrentLinkedQueue<PoolWorker> idle;
 
     /** Used to signal the queue should be shutdown. */
     private volatile boolean shutdown;
@@ -30,7 +50,147 @@ public class WorkQueue {
     public static final int DEFAULT = 5;
 
     /** The number of tasks awaiting completion */
-    private int tasksPending;
+    private final AtomicInteger tasksPending;
+
+    /** The number of workers looking for a task, which will find a new task without being woken. */
+    private final AtomicInteger searching;
+
+    /** The capacity of a queue that does not limit how many tasks can wait. */
+    public static final int UNBOUNDED = 0;
+
+    /** The default number of tasks that can wait in a bounded queue. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** How often a submit waiting for room checks whether the queue was shut down, in milliseconds. */
+    private static final long ROOM_CHECK_MILLIS = 10;
+
+    /**
+     * What a submit does once the queue is full
+     */
+    public enum RejectionPolicy
+    {
+        /** Waits until a worker takes a task, or runs the task itself if it is a worker */
+        BLOCK,
+
+        /** Runs the task on the submitting thread */
+        CALLER_RUNS,
+
+        /** Drops the task, which is never run */
+        DROP
+    }
+
+    /** The number of tasks that can wait at a time, or {@link #UNBOUNDED}. */
+    private final int capacity;
+
+    /** The room left for waiting tasks, or null if the queue is unbounded. */
+    private final Semaphore room;
+
+    /** What a submit does once the queue is full. */
+    private final RejectionPolicy policy;
+
+    /** The number of tasks waiting to be taken by a worker. */
+    private final AtomicInteger depth;
+
+    /** The largest number of tasks that waited at a time. */
+    private final AtomicInteger maxDepth;
+
+    /** The number of tasks run by the submitting thread because the queue was full. */
+    private final LongAdder callerRuns;
+
+    /** The number of tasks dropped because the queue was full. */
+    private final LongAdder dropped;
+
+    /**
+     * A set of tasks submitted to this queue that can be waited for on their
+     * own. A task of a group must not wait for its own group to finish, since
+     * it would be waiting for itself.
+     */
+    public class TaskGroup
+    {
+        /** The number of tasks of the group awaiting completion */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Adds a work request of this group to the queue
+         *
+         * @param r work request (in the form of a {@link Runnable} object)
+         */
+        public void execute(Runnable r)
+        {
+            pending.incrementAndGet();
+
+            boolean accepted = submit(() -> {
+                try
+                {
+                    r.run();
+                }
+
+                finally
+                {
+                    // only the last task takes the monitor, the same as for the whole queue
+                    remove();
+                }
+            });
+
+            // a dropped task never runs, so it is never counted down
+            if (!accepted)
+            {
+                remove();
+            }
+        }
+
+        /**
+         * Counts down a task of the group, waking the threads waiting for the
+         * group once none are left
+         */
+        private void remove()
+        {
+            if (pending.decrementAndGet() == 0)
+            {
+                synchronized (this)
+                {
+                    this.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Waits for every task of this group to be finished, without waiting
+         * for the tasks of other groups
+         *
+         * @throws InterruptedException if interrupted
+         */
+        public void finish() throws InterruptedException
+        {
+            synchronized (this)
+            {
+                while (pending.get() > 0)
+                {
+                    this.wait();
+                }
+            }
+        }
+
+        /**
+         * Returns the number of tasks of this group that have not finished
+         *
+         * @return the number of tasks
+         */
+        public int getPending()
+        {
+            return pending.get();
+        }
+
+        /**
+         * Returns the work queue running the tasks of this group
+         *
+         * @return the work queue
+         */
+        public WorkQueue getQueue()
+        {
+            return WorkQueue.this;
+        }
+    }
 
     /**
      * Starts a work queue with the default number of threads.
@@ -47,38 +207,168 @@ public class WorkQueue {
      * @param threads number of worker threads; should be greater than 1
      */
     public WorkQueue(int threads) {
-        this.queue = new LinkedList<Runnable>();
+        this(threads, UNBOUNDED, RejectionPolicy.BLOCK);
+    }
+
+    /**
+     * Starts a work queue with the specified number of threads, holding at
+     * most the specified number of waiting tasks.
+     *
+     * @param threads   number of worker threads; should be greater than 1
+     * @param capacity  number of tasks that can wait at a time, or {@link #UNBOUNDED}
+     * @param policy    what a submit does once the queue is full
+     */
+    public WorkQueue(int threads, int capacity, RejectionPolicy policy) {
+        if (threads <= 0)
+        {
+			threads = DEFAULT;
+		}
+
         this.workers = new PoolWorker[threads];
+        this.idle = new ConcurrentLinkedQueue<>();
 
         this.shutdown = false;
 
-        this.tasksPending = 0;
+        this.tasksPending = new AtomicInteger();
+        this.searching = new AtomicInteger(threads);
 
-        if (threads <= 0)
-        {
-			threads = 5;
-		}
+        this.capacity = Math.max(UNBOUNDED, capacity);
+        this.room = this.capacity == UNBOUNDED ? null : new Semaphore(this.capacity);
+        this.policy = policy;
+        this.depth = new AtomicInteger();
+        this.maxDepth = new AtomicInteger();
+        this.callerRuns = new LongAdder();
+        this.dropped = new LongAdder();
 
-        // start the threads so they are waiting in the background
         for (int i = 0; i < threads; i++) {
             workers[i] = new PoolWorker();
-            workers[i].start();
+        }
+
+        // start the threads so they are waiting in the background
+        for (PoolWorker worker : workers) {
+            worker.start();
         }
     }
 
     /**
      * Adds a work request to the queue. A thread will process this request when
-     * available.
+     * available. If the queue is full, the request is handled as its
+     * {@link RejectionPolicy} says.
      *
      * @param r work request (in the form of a {@link Runnable} object)
      */
     public void execute(Runnable r)
     {
+        submit(r);
+    }
+
+    /**
+     * Adds a work request to the queue, or handles it as the rejection policy
+     * says if the queue is full
+     *
+     * @param r work request (in the form of a {@link Runnable} object)
+     * @return  false if the request was dropped, or if the queue was shut down
+     *          while waiting for room
+     */
+    private boolean submit(Runnable r)
+    {
+        Thread current = Thread.currentThread();
+        boolean isWorker = current instanceof PoolWorker && ((PoolWorker) current).getQueue() == this;
+
+        if (room != null && !room.tryAcquire())
+        {
+            if (policy == RejectionPolicy.DROP)
+            {
+                dropped.increment();
+                return false;
+            }
+
+            if (policy == RejectionPolicy.CALLER_RUNS || isWorker)
+            {
+                callerRuns.increment();
+                run(r);
+                return true;
+            }
+
+            if (!awaitRoom())
+            {
+                return false;
+            }
+        }
+
         addTasks();
 
-        synchronized (queue) {
-            queue.addLast(r);
-            queue.notifyAll();
+        int waiting = depth.incrementAndGet();
+
+        if (waiting > maxDepth.get())
+        {
+            maxDepth.accumulateAndGet(waiting, Math::max);
+        }
+
+        // a worker keeps the tasks it queues, where other workers can still steal them
+        PoolWorker worker = isWorker ? (PoolWorker) current : workers[ThreadLocalRandom.current().nextInt(workers.length)];
+
+        worker.tasks.addLast(r);
+        signal();
+
+        return true;
+    }
+
+    /**
+     * Waits until a worker takes a task and leaves room for another
+     *
+     * @return false if the queue was shut down while waiting
+     */
+    private boolean awaitRoom()
+    {
+        boolean interrupted = false;
+
+        try
+        {
+            while (!shutdown)
+            {
+                try
+                {
+                    if (room.tryAcquire(ROOM_CHECK_MILLIS, TimeUnit.MILLISECONDS))
+                    {
+                        return true;
+                    }
+                }
+
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+
+            return false;
+        }
+
+        finally
+        {
+            // the wait cannot be interrupted, but the interrupt is kept for the caller
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs a task, catching runtime exceptions to avoid leaking threads
+     *
+     * @param r the task
+     */
+    private static void run(Runnable r)
+    {
+        try
+        {
+            r.run();
+        }
+
+        catch (RuntimeException ex)
+        {
+            System.err.println("Warning: Work queue encountered an exception while running.");
         }
     }
 
@@ -91,7 +381,7 @@ public class WorkQueue {
     {
         synchronized (this)
         {
-            while (this.tasksPending > 0)
+            while (this.tasksPending.get() > 0)
             {
 				this.wait();
 			}
@@ -106,11 +396,21 @@ public class WorkQueue {
         // safe to do unsynchronized due to volatile keyword
         shutdown = true;
 
-        synchronized (queue) {
-            queue.notifyAll();
+        for (PoolWorker worker : workers) {
+            LockSupport.unpark(worker);
         }
     }
 
+    /**
+     * Creates a group of tasks that run on this queue and can be waited for
+     * on their own.
+     *
+     * @return the new task group
+     */
+    public TaskGroup newGroup() {
+        return new TaskGroup();
+    }
+
     /**
      * Returns the number of worker threads being used by the work queue.
      *
@@ -120,27 +420,170 @@ public class WorkQueue {
         return workers.length;
     }
 
+    /**
+     * Returns the number of tasks that can wait at a time.
+     *
+     * @return the capacity, or {@link #UNBOUNDED}
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of tasks waiting to be taken by a worker.
+     *
+     * @return the number of waiting tasks
+     */
+    public int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Returns the largest number of tasks that waited at a time.
+     *
+     * @return the largest number of waiting tasks
+     */
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * Returns the number of tasks run by the submitting thread because the
+     * queue was full.
+     *
+     * @return the number of tasks
+     */
+    public long getCallerRuns() {
+        return callerRuns.sum();
+    }
+
+    /**
+     * Returns the number of tasks dropped because the queue was full.
+     *
+     * @return the number of tasks
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns a single-line report of the depth gauges of the queue.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        return String.format("queue  %4d threads  capacity %8s  depth %8d  max depth %8d  caller runs %8d  dropped %8d",
+                workers.length, capacity == UNBOUNDED ? "none" : String.valueOf(capacity), getDepth(), getMaxDepth(),
+                getCallerRuns(), getDropped());
+    }
+
+    /**
+     * Records that a worker took a task, leaving room for another
+     */
+    private void taken()
+    {
+        depth.decrementAndGet();
+
+        if (room != null)
+        {
+            room.release();
+        }
+    }
+
     /**
      * Helper method that increases the amount of tasks that are awaiting completion
      */
-    private synchronized void addTasks()
+    private void addTasks()
     {
-        this.tasksPending++;
+        this.tasksPending.incrementAndGet();
     }
 
     /**
      * Helper method that decreases the amount of tasks that are awaiting completion
     */
-    private synchronized void removeTasks()
+    private void removeTasks()
     {
-        assert this.tasksPending > 0;
-        
-        this.tasksPending--;
+        int remaining = this.tasksPending.decrementAndGet();
 
-        if (this.tasksPending == 0)
+        assert remaining >= 0;
+
+        // only the last task takes the monitor, and a waiting finish() holds it until it waits
+        if (remaining == 0)
         {
-			this.notifyAll();
-		}
+            synchronized (this)
+            {
+                this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wakes one idle worker, if there is one and no worker is already looking for a task
+     */
+    private void signal()
+    {
+        if (searching.get() > 0)
+        {
+            return;
+        }
+
+        PoolWorker worker;
+
+        while ((worker = idle.poll()) != null)
+        {
+            if (worker.isIdle.compareAndSet(true, false))
+            {
+                LockSupport.unpark(worker);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether any deque has a task waiting
+     *
+     * @return  true if a task is waiting to be run
+     */
+    private boolean hasWaitingTasks()
+    {
+        for (PoolWorker worker : workers)
+        {
+            if (!worker.tasks.isEmpty())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Takes a task from the deque of another worker
+     *
+     * @param thief the worker looking for a task
+     * @return      the oldest task of the first deque with one, or null if every deque is empty
+     */
+    private Runnable steal(PoolWorker thief)
+    {
+        int start = ThreadLocalRandom.current().nextInt(workers.length);
+
+        for (int i = 0; i < workers.length; i++)
+        {
+            PoolWorker victim = workers[(start + i) % workers.length];
+
+            if (victim != thief)
+            {
+                Runnable task = victim.tasks.pollFirst();
+
+                if (task != null)
+                {
+                    return task;
+                }
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -151,39 +594,93 @@ public class WorkQueue {
      */
     private class PoolWorker extends Thread {
 
+        /** The tasks queued to this worker, oldest first. */
+        private final ConcurrentLinkedDeque<Runnable> tasks = new ConcurrentLinkedDeque<>();
+
+        /** Whether this worker is parked or about to park, waiting for a submit to wake it. */
+        private final AtomicBoolean isIdle = new AtomicBoolean();
+
+        /**
+         * Returns the work queue this worker belongs to
+         *
+         * @return the work queue
+         */
+        private WorkQueue getQueue() {
+            return WorkQueue.this;
+        }
+
+        /**
+         * Takes the oldest task of this worker, or steals one
+         *
+         * @return the task, or null if there is none
+         */
+        private Runnable take() {
+            Runnable task = tasks.pollFirst();
+
+            if (task == null) {
+                task = steal(this);
+            }
+
+            if (task != null) {
+                taken();
+            }
+
+            return task;
+        }
+
         @Override
         public void run() {
             Runnable r = null;
 
             while (true) {
-                synchronized (queue) {
-                    while (queue.isEmpty() && !shutdown) {
-                        try {
-                            queue.wait();
-                        } catch (InterruptedException ex) {
-                            System.err.println("Warning: Work queue interrupted.");
-                            Thread.currentThread().interrupt();
+                if (shutdown) {
+                    break;
+                }
+
+                r = take();
+
+                if (r == null) {
+                    // announce the wait before looking once more, so a task queued in between is never missed
+                    isIdle.set(true);
+                    idle.add(this);
+                    searching.decrementAndGet();
+
+                    r = take();
+
+                    if (r == null) {
+                        if (!shutdown) {
+                            LockSupport.park(this);
                         }
-                    }
 
-                    // exit while for one of two reasons:
-                    // (a) queue has work, or (b) shutdown has been called
+                        if (isIdle.compareAndSet(true, false)) {
+                            idle.remove(this);
+                        }
 
-                    if (shutdown) {
-                        break;
-                    } else {
-                        r = queue.removeFirst();
+                        searching.incrementAndGet();
+                        continue;
+                    }
+
+                    if (isIdle.compareAndSet(true, false)) {
+                        idle.remove(this);
                     }
                 }
 
-                try {
-                    r.run();
-                } catch (RuntimeException ex) {
-                    // catch runtime exceptions to avoid leaking threads
-                    System.err.println("Warning: Work queue encountered an exception while running.");
+                else {
+                    searching.decrementAndGet();
                 }
 
+                // the last worker to stop looking wakes another one if tasks are still waiting
+                if (searching.get() == 0 && hasWaitingTasks()) {
+                    signal();
+                }
+
+                WorkQueue.run(r);
+
                 removeTasks();
+
+                // an interrupt left by a task would otherwise keep every park from waiting
+                Thread.interrupted();
+                searching.incrementAndGet();
             }
         }
     }